@@ -2,16 +2,46 @@ package com.marvel.reservation.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
+@EnableConfigurationProperties({RoomInventoryProperties.class, IdempotencyProperties.class, PaymentUpdateDedupeProperties.class,
+        CancellationSweepProperties.class, CreditCardVerificationRetryProperties.class})
 public class AppConfig {
 
+    // Executor for the asynchronous credit card checks. On virtual threads every check gets its own thread and
+    // max-concurrency bounds the in-flight calls; otherwise a bounded pool. Either way a check that does not fit is
+    // rejected rather than run on the request thread, and the service submits it again later
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public TaskExecutor creditCardVerificationExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${reservation.credit-card.async.pool-size:8}") int poolSize,
+            @Value("${reservation.credit-card.async.queue-capacity:1000}") int queueCapacity,
+            @Value("${reservation.credit-card.async.max-concurrency:200}") int maxConcurrency) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("card-verification-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(maxConcurrency);
+            executor.setRejectTasksWhenLimitReached(true);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("card-verification-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
     }
 
     @Bean
@@ -0,0 +1,46 @@
+package com.marvel.reservation.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Running the overdue bank transfer cancellation sweep on several instances of the service,
+ * e.g. {@code reservation.cancellation.shard-size=100000}.
+ */
+@ConfigurationProperties(prefix = "reservation.cancellation")
+@Getter
+@Setter
+public class CancellationSweepProperties {
+    // Owner recorded on the leases this instance takes; must differ between instances
+    private String nodeId = System.getenv().getOrDefault("HOSTNAME", "node") + "-" + UUID.randomUUID().toString().substring(0, 8);
+    // Reservation ids per shard; 0 runs the whole sweep on the one instance that gets its lease
+    private long shardSize = 0;
+    private Lease lease = new Lease();
+    private DeadlineWheel deadlineWheel = new DeadlineWheel();
+
+    @Getter
+    @Setter
+    public static class Lease {
+        // Without a lease every instance runs the sweep, for a single-instance deployment
+        private boolean enabled = true;
+        // A lease not released within this time belongs to an instance that died and is taken over;
+        // must exceed the longest sweep or shard
+        private Duration duration = Duration.ofMinutes(30);
+        // A finished sweep or shard keeps its lease this long, so an instance whose clock reaches midnight
+        // later does not run it again
+        private Duration minimumHold = Duration.ofMinutes(5);
+    }
+
+    @Getter
+    @Setter
+    public static class DeadlineWheel {
+        // Cancels each pending bank transfer at its own payment deadline; the midnight sweep then only catches up
+        private boolean enabled = true;
+        // Resolution of the deadlines and interval of the scheduler that advances the wheel
+        private Duration tick = Duration.ofSeconds(1);
+    }
+}
@@ -0,0 +1,190 @@
+package com.marvel.reservation.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client of the credit card payment service: pooled keep-alive connections with connect, read,
+ * lease and total deadlines, see {@link CreditCardPaymentClientProperties}. The pool is exported
+ * as the {@code httpcomponents.httpclient.pool.*} metrics tagged {@code httpclient=credit-card-payment}.
+ * <p>
+ * Calls also go through a circuit breaker and a bulkhead named {@code credit-card-payment}, exported as the
+ * {@code resilience4j.circuitbreaker.*} and {@code resilience4j.bulkhead.*} metrics. The answers are cached per
+ * payment reference and exported as the {@code cache.*} metrics tagged {@code cache=credit-card-payment-status}.
+ */
+@Configuration
+@EnableConfigurationProperties(CreditCardPaymentClientProperties.class)
+public class CreditCardPaymentClientConfig {
+
+    public static final String POOL_NAME = "credit-card-payment";
+    public static final String STATUS_CACHE_NAME = "credit-card-payment-status";
+    public static final String CONFIRMED_STATUS = "CONFIRMED";
+
+    @Bean
+    public PoolingHttpClientConnectionManager creditCardConnectionManager(CreditCardPaymentClientProperties properties) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(timeout(properties.getConnectTimeout()))
+                        .setSocketTimeout(timeout(properties.getReadTimeout()))
+                        .setValidateAfterInactivity(TimeValue.of(properties.getValidateAfterInactivity()))
+                        .build())
+                .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public DeadlineExecChainHandler creditCardDeadlineHandler(CreditCardPaymentClientProperties properties) {
+        return new DeadlineExecChainHandler(properties.getTotalDeadline());
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient creditCardHttpClient(PoolingHttpClientConnectionManager creditCardConnectionManager,
+                                                    DeadlineExecChainHandler creditCardDeadlineHandler,
+                                                    CreditCardPaymentClientProperties properties) {
+        return HttpClients.custom()
+                .setConnectionManager(creditCardConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(timeout(properties.getConnectionRequestTimeout()))
+                        .setResponseTimeout(timeout(properties.getReadTimeout()))
+                        .setConnectionKeepAlive(TimeValue.of(properties.getKeepAlive()))
+                        .build())
+                .addExecInterceptorFirst("total-deadline", creditCardDeadlineHandler)
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getKeepAlive()))
+                .build();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(CloseableHttpClient creditCardHttpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(creditCardHttpClient));
+    }
+
+    // Bound to the meter registries by Spring Boot, like every MeterBinder bean
+    @Bean
+    public PoolingHttpClientConnectionManagerMetricsBinder creditCardConnectionPoolMetrics(
+            PoolingHttpClientConnectionManager creditCardConnectionManager) {
+        return new PoolingHttpClientConnectionManagerMetricsBinder(creditCardConnectionManager, POOL_NAME);
+    }
+
+    @Bean
+    public CircuitBreaker creditCardCircuitBreaker(CreditCardPaymentClientProperties properties, MeterRegistry meterRegistry) {
+        CreditCardPaymentClientProperties.CircuitBreakerSettings settings = properties.getCircuitBreaker();
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(settings.getSlidingWindowSize())
+                .minimumNumberOfCalls(settings.getMinimumNumberOfCalls())
+                .failureRateThreshold(settings.getFailureRateThreshold())
+                .slowCallRateThreshold(settings.getSlowCallRateThreshold())
+                .slowCallDurationThreshold(settings.getSlowCallDuration())
+                .waitDurationInOpenState(settings.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(settings.getPermittedCallsInHalfOpenState())
+                // An unknown payment reference is an answer of a healthy service, not a failure
+                .ignoreExceptions(HttpClientErrorException.class)
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry.circuitBreaker(POOL_NAME);
+    }
+
+    @Bean
+    public Bulkhead creditCardBulkhead(CreditCardPaymentClientProperties properties, MeterRegistry meterRegistry) {
+        BulkheadRegistry registry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(properties.getBulkhead().getMaxConcurrentCalls())
+                .maxWaitDuration(properties.getBulkhead().getMaxWait())
+                .build());
+        TaggedBulkheadMetrics.ofBulkheadRegistry(registry).bindTo(meterRegistry);
+        return registry.bulkhead(POOL_NAME);
+    }
+
+    @Bean
+    public Cache<String, String> creditCardPaymentStatusCache(CreditCardPaymentClientProperties properties,
+                                                              MeterRegistry meterRegistry) {
+        CreditCardPaymentClientProperties.StatusCacheSettings settings = properties.getStatusCache();
+        Cache<String, String> cache = Caffeine.newBuilder()
+                .maximumSize(settings.getMaximumSize())
+                .expireAfter(Expiry.<String, String>creating((paymentReference, status) ->
+                        CONFIRMED_STATUS.equalsIgnoreCase(status) ? settings.getConfirmedTtl() : settings.getNegativeTtl()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, STATUS_CACHE_NAME);
+        return cache;
+    }
+
+    private static Timeout timeout(Duration duration) {
+        return Timeout.ofMilliseconds(duration.toMillis());
+    }
+
+    /**
+     * Aborts the exchange when the response headers have not arrived within the total deadline, whether it is
+     * still waiting for a pooled connection, connecting, retrying or waiting for the response. Reading the body
+     * afterwards is bounded by the read timeout. Closing it stops its timer thread.
+     */
+    public static final class DeadlineExecChainHandler implements ExecChainHandler, AutoCloseable {
+
+        private final ScheduledThreadPoolExecutor timer;
+        private final long deadlineMillis;
+
+        DeadlineExecChainHandler(Duration totalDeadline) {
+            this.deadlineMillis = totalDeadline.toMillis();
+            this.timer = new ScheduledThreadPoolExecutor(1, Thread.ofPlatform().name("card-payment-deadline").daemon().factory());
+            this.timer.setRemoveOnCancelPolicy(true);
+        }
+
+        @Override
+        public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain)
+                throws IOException, HttpException {
+            if (!(scope.originalRequest instanceof Cancellable exchange)) {
+                return chain.proceed(request, scope);
+            }
+            ScheduledFuture<?> abort = timer.schedule(exchange::cancel, deadlineMillis, TimeUnit.MILLISECONDS);
+            try {
+                return chain.proceed(request, scope);
+            } finally {
+                abort.cancel(false);
+            }
+        }
+
+        @Override
+        public void close() {
+            timer.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.marvel.reservation.config;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and timeouts of the HTTP client used for the credit card payment service,
+ * e.g. {@code credit.card.payment.client.read-timeout=2s}.
+ */
+@ConfigurationProperties(prefix = "credit.card.payment.client")
+@Validated
+@Getter
+@Setter
+public class CreditCardPaymentClientProperties {
+    // Pooled connections in total and per host
+    private int maxConnections = 100;
+    private int maxConnectionsPerRoute = 50;
+    // Waiting for a free pooled connection
+    private Duration connectionRequestTimeout = Duration.ofMillis(500);
+    private Duration connectTimeout = Duration.ofSeconds(1);
+    // Maximum silence between two packets of the response
+    private Duration readTimeout = Duration.ofSeconds(2);
+    // Upper bound of the whole call, connection lease and retries included
+    private Duration totalDeadline = Duration.ofSeconds(3);
+    // How long an idle connection is kept open when the server does not send a Keep-Alive header
+    private Duration keepAlive = Duration.ofSeconds(30);
+    // Pooled connections idle for longer are checked before they are reused
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+
+    private CircuitBreakerSettings circuitBreaker = new CircuitBreakerSettings();
+    private BulkheadSettings bulkhead = new BulkheadSettings();
+    private StatusCacheSettings statusCache = new StatusCacheSettings();
+    @Valid
+    private BatchSettings batch = new BatchSettings();
+
+    /**
+     * Opens the circuit when too many of the recent calls failed or were slow, e.g.
+     * {@code credit.card.payment.client.circuit-breaker.failure-rate-threshold=50}.
+     */
+    @Getter
+    @Setter
+    public static class CircuitBreakerSettings {
+        // Percentage of failed or slow calls in the sliding window that opens the circuit
+        private float failureRateThreshold = 50;
+        private float slowCallRateThreshold = 80;
+        private Duration slowCallDuration = Duration.ofSeconds(1);
+        // Count-based window of the most recent calls; no decision before minimum-number-of-calls
+        private int slidingWindowSize = 50;
+        private int minimumNumberOfCalls = 20;
+        // Time the circuit stays open before a few probe calls are let through
+        private Duration waitInOpenState = Duration.ofSeconds(10);
+        private int permittedCallsInHalfOpenState = 5;
+    }
+
+    /**
+     * Caps the concurrent calls, so a slow card service cannot hold every request thread,
+     * e.g. {@code credit.card.payment.client.bulkhead.max-concurrent-calls=50}.
+     */
+    @Getter
+    @Setter
+    public static class BulkheadSettings {
+        private int maxConcurrentCalls = 50;
+        // Time a call waits for a free slot before it is rejected
+        private Duration maxWait = Duration.ZERO;
+    }
+
+    /**
+     * Payment statuses remembered per payment reference, so retried confirmations do not call the card service again,
+     * e.g. {@code credit.card.payment.client.status-cache.confirmed-ttl=24h}.
+     */
+    @Getter
+    @Setter
+    public static class StatusCacheSettings {
+        private long maximumSize = 100_000;
+        // A confirmed payment never changes
+        private Duration confirmedTtl = Duration.ofHours(24);
+        // Rejected, failed or pending payments may still change, so they are asked again soon
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Optional micro-batching: lookups are collected for up to max-wait or max-size references and sent as one
+     * {@code POST /payment-status/batch}, e.g. {@code credit.card.payment.client.batch.enabled=true}.
+     */
+    @Getter
+    @Setter
+    public static class BatchSettings {
+        private boolean enabled = false;
+        // maxItems of the batch endpoint in creditcardpayment_api.yaml
+        @Min(1)
+        @Max(100)
+        private int maxSize = 50;
+        private Duration maxWait = Duration.ofMillis(5);
+    }
+}
@@ -0,0 +1,31 @@
+package com.marvel.reservation.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Retries of the background credit card checks that could not reach the card service,
+ * e.g. {@code reservation.credit-card.async.retry.max-attempts=6}.
+ */
+@ConfigurationProperties(prefix = "reservation.credit-card.async.retry")
+@Getter
+@Setter
+public class CreditCardVerificationRetryProperties {
+    // Checks per reservation, the first one included; after the last one the reservation is cancelled
+    private int maxAttempts = 6;
+    // Wait before the second check, multiplied by multiplier before each further one, up to max-backoff
+    private Duration backoff = Duration.ofSeconds(10);
+    private double multiplier = 2.0;
+    private Duration maxBackoff = Duration.ofMinutes(5);
+
+    /**
+     * Wait after the given failed attempt, counted from 1.
+     */
+    public Duration backoff(int attempt) {
+        double millis = backoff.toMillis() * Math.pow(multiplier, attempt - 1);
+        return millis >= maxBackoff.toMillis() ? maxBackoff : Duration.ofMillis((long) millis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.marvel.reservation.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Handling of the {@code Idempotency-Key} header of {@code POST /api/v1/reservations/confirm},
+ * e.g. {@code reservation.idempotency.ttl=24h}.
+ */
+@ConfigurationProperties(prefix = "reservation.idempotency")
+@Getter
+@Setter
+public class IdempotencyProperties {
+    // How long a response is replayed for its key
+    private Duration ttl = Duration.ofHours(24);
+    // Completed responses kept in memory in front of the idempotency_key table
+    private long cacheSize = 10_000;
+    // How long a duplicate waits for the first request of its key before it gets a 409
+    private Duration waitTimeout = Duration.ofSeconds(10);
+    private Duration pollInterval = Duration.ofMillis(50);
+    // A key in progress for longer belongs to a request that died with its instance and is taken over
+    private Duration inProgressTimeout = Duration.ofSeconds(30);
+}
@@ -0,0 +1,56 @@
+package com.marvel.reservation.config;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.listener.PaymentUpdateListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.ExponentialBackOffWithMaxRetries;
+
+/**
+ * Retries and dead letters of the batch mode of the payment update listener. Retry topics need one record at a time,
+ * so a failing batch is retried in place, with the attempts and backoff of record mode. Once they are used up every
+ * record of the batch is published to the dead-letter topic of record mode, with the same exception headers.
+ * Records that cannot succeed are published there by the listener right away, without failing their batch.
+ */
+@Configuration
+@ConditionalOnProperty(name = "reservation.payment-updates.batch.enabled", havingValue = "true")
+@Slf4j
+public class PaymentUpdateBatchConfig {
+
+    @Bean
+    public ConsumerRecordRecoverer paymentUpdateDeadLetterRecoverer(KafkaOperations<?, ?> kafkaTemplate, MeterRegistry meterRegistry) {
+        DeadLetterPublishingRecoverer deadLetters = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE_DLT, -1));
+        return (record, e) -> {
+            Throwable cause = e.getCause() == null ? e : e.getCause();
+            String exception = cause.getClass().getSimpleName();
+            meterRegistry.counter(PaymentUpdateListener.DEAD_LETTERS_METRIC, "exception", exception).increment();
+            log.error(String.format(Constants.PAYMENT_UPDATE_DEAD_LETTER, record.topic(), exception, cause.getMessage()));
+            deadLetters.accept(record, e);
+        };
+    }
+
+    // Picked up by the listener container factory of Spring Boot
+    @Bean
+    public DefaultErrorHandler paymentUpdateBatchErrorHandler(
+            ConsumerRecordRecoverer paymentUpdateDeadLetterRecoverer,
+            @Value(Constants.PAYMENT_UPDATE_RETRY_ATTEMPTS) int attempts,
+            @Value(Constants.PAYMENT_UPDATE_RETRY_DELAY) long delay,
+            @Value(Constants.PAYMENT_UPDATE_RETRY_MULTIPLIER) double multiplier,
+            @Value(Constants.PAYMENT_UPDATE_RETRY_MAX_DELAY) long maxDelay) {
+        ExponentialBackOffWithMaxRetries backOff = new ExponentialBackOffWithMaxRetries(attempts - 1);
+        backOff.setInitialInterval(delay);
+        backOff.setMultiplier(multiplier);
+        backOff.setMaxInterval(maxDelay);
+        return new DefaultErrorHandler(paymentUpdateDeadLetterRecoverer, backOff);
+    }
+}
@@ -0,0 +1,24 @@
+package com.marvel.reservation.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Dropping of redelivered and resent bank transfer payment updates by {@code paymentId},
+ * e.g. {@code reservation.payment-updates.dedupe.window=24h}.
+ */
+@ConfigurationProperties(prefix = "reservation.payment-updates.dedupe")
+@Getter
+@Setter
+public class PaymentUpdateDedupeProperties {
+    private boolean enabled = true;
+    // How long a processed paymentId is remembered; should cover the resend window of the bank gateway
+    private Duration window = Duration.ofHours(24);
+    // Processed paymentIds kept in memory, the oldest are evicted first
+    private long maxSize = 100_000;
+    // Also record processed paymentIds in the processed_payment_update table, so they survive restarts
+    private boolean persistent = false;
+}
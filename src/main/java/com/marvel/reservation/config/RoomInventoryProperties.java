@@ -0,0 +1,21 @@
+package com.marvel.reservation.config;
+
+import com.marvel.reservation.model.enums.RoomSegment;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Room numbers of the hotel per segment, e.g. {@code reservation.inventory.rooms.LARGE=L-101,L-102}.
+ * Rooms that only show up in reservations are added to the availability index when they are first booked.
+ */
+@ConfigurationProperties(prefix = "reservation.inventory")
+@Getter
+@Setter
+public class RoomInventoryProperties {
+    private Map<RoomSegment, List<String>> rooms = new EnumMap<>(RoomSegment.class);
+}
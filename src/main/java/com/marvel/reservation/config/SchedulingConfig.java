@@ -0,0 +1,15 @@
+package com.marvel.reservation.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables the {@code @Scheduled} jobs. With {@code spring.threads.virtual.enabled=true} Spring Boot runs them
+ * on virtual threads; the test configuration switches them off with {@code spring.task.scheduling.enabled=false}.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "spring.task.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,91 @@
+package com.marvel.reservation.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, e.g. while blocking inside a
+ * {@code synchronized} block, by streaming the JFR {@code jdk.VirtualThreadPinned} event.
+ * Every event is counted in {@code jvm.threads.virtual.pinned} and logged with the top frames of its stack.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+
+    static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 8;
+    // Frames of the park call itself, skipped so the log shows where the pinning thread blocked
+    private static final List<String> PARKING_FRAMES = List.of(
+            "java.lang.VirtualThread", "java.lang.System$", "jdk.internal.misc.", "java.util.concurrent.locks.LockSupport");
+
+    private final Counter pinnedCounter;
+    private final Duration threshold;
+    private RecordingStream recordingStream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${reservation.virtual-threads.pinning-threshold:20ms}") Duration threshold) {
+        this.pinnedCounter = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads pinned to their carrier thread for longer than the threshold")
+                .register(meterRegistry);
+        this.threshold = threshold;
+    }
+
+    @Override
+    public void start() {
+        recordingStream = new RecordingStream();
+        recordingStream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        recordingStream.onEvent(PINNED_EVENT, this::onPinned);
+        recordingStream.startAsync();
+        log.info("Reporting virtual threads pinned for more than {}", threshold);
+    }
+
+    @Override
+    public void stop() {
+        if (recordingStream != null) {
+            recordingStream.close();
+            recordingStream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return recordingStream != null;
+    }
+
+    void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        log.warn("Virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), topFrames(event));
+    }
+
+    private static String topFrames(RecordedEvent event) {
+        if (event.getStackTrace() == null) {
+            return "unknown location";
+        }
+        StringBuilder location = new StringBuilder();
+        int logged = 0;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (logged == LOGGED_FRAMES) {
+                break;
+            }
+            String type = frame.getMethod().getType().getName();
+            if (logged == 0 && PARKING_FRAMES.stream().anyMatch(type::startsWith)) {
+                continue;
+            }
+            location.append(logged++ == 0 ? "" : " <- ")
+                    .append(type).append('.').append(frame.getMethod().getName()).append(':').append(frame.getLineNumber());
+        }
+        return location.toString();
+    }
+}
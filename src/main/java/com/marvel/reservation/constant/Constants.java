@@ -3,11 +3,41 @@ package com.marvel.reservation.constant;
 public class Constants {
 
     // Reservation confirmation
-    public static final String FAILED_MAPPING = "Failed to map ReservationRequest to Reservation entity";
     public static final String PAYMENT_REFERENCE_REQUIRED_CC = "Payment reference is required for Credit Card payment.";
     public static final String PAYMENT_REFERENCE_REQUIRED_BANK = "Payment reference is required for Bank Transfer payment.";
     public static final String CREDIT_CARD_NOT_CONFIRMED = "Credit card payment not confirmed. Reservation failed.";
     public static final String INVALID_PAYMENT_MODE = "Invalid payment mode.";
+    public static final String ROOM_ALREADY_RESERVED = "Room %s is already reserved between %s and %s.";
+    public static final String PAYMENT_REFERENCE_ALREADY_USED = "Payment reference %s is already used by another reservation.";
+    public static final int MAX_RESERVATION_DAYS = 30;
+
+    // Batch reservation confirmation
+    public static final int MAX_BATCH_SIZE = 500;
+    public static final String INVALID_BATCH_SIZE = "A batch must contain between 1 and " + MAX_BATCH_SIZE + " reservations.";
+    public static final String BATCH_ROOM_ALREADY_RESERVED = "A room in the batch was reserved concurrently. No reservation of the batch was saved.";
+    public static final String BATCH_PAYMENT_REFERENCE_ALREADY_USED = "A payment reference of the batch is already used by another reservation. No reservation of the batch was saved.";
+
+    // Availability search
+    public static final String AVAILABILITY_PARAMETERS_REQUIRED = "Room segment, start date and end date are required.";
+    public static final String AVAILABILITY_START_AFTER_END = "Start date cannot be after end date";
+    public static final String AVAILABILITY_PERIOD_TOO_LONG = "Availability can be searched for at most " + MAX_RESERVATION_DAYS + " days";
+
+    // Asynchronous credit card confirmation
+    public static final String RESERVATION_ID_NOT_FOUND = "Reservation %d not found.";
+    public static final String RESERVATION_CONFIRMED_CARD = "Reservation %d confirmed after credit card verification.";
+    public static final String RESERVATION_CANCELLED_CARD = "Reservation %d cancelled, credit card payment not confirmed.";
+    public static final String RESERVATION_VERIFICATION_DEFERRED = "Credit card check of reservation %d deferred by %d ms: %s";
+    public static final String RESERVATION_VERIFICATION_ABANDONED = "Reservation %d cancelled, credit card payment not verified after %d attempts: %s";
+
+    // Idempotent reservation confirmation
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    public static final String INVALID_IDEMPOTENCY_KEY = "Idempotency-Key must contain between 1 and " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters.";
+    public static final String IDEMPOTENCY_KEY_MISMATCH = "Idempotency-Key %s was already used for a different reservation request.";
+    public static final String IDEMPOTENCY_KEY_IN_PROGRESS = "A request with Idempotency-Key %s is still being processed. Please retry later.";
+    public static final String IDEMPOTENCY_KEYS_PURGED = "Purged %d expired idempotency keys";
+    public static final String PROCESSED_PAYMENT_UPDATES_PURGED = "Purged %d expired processed payment updates";
 
     // Bank transfer
     public static final String INVALID_TRANSACTION_FORMAT = "Invalid transaction description format: %s";
@@ -15,22 +45,41 @@ public class Constants {
     public static final String RESERVATION_CONFIRMED_BANK = "Reservation %d confirmed via bank transfer update.";
     public static final String RESERVATION_ALREADY_CONFIRMED = "Reservation %d is already %s. No change made.";
     public static final String RESERVATION_NOT_FOUND = "Reservation not found for payment reference: %s";
+    public static final String BANK_TRANSFER_BATCH_CONFIRMED = "Confirmed %d reservations from a batch of %d bank transfer updates.";
 
     // Scheduler
-    public static final String FINISHED_SCHEDULER = "Finished scheduled task. %d reservations checked.";
+    public static final String FINISHED_SCHEDULER = "Finished scheduled task. %d reservations cancelled.";
+    public static final String OVERDUE_RESERVATIONS_CANCELLED = "%d bank transfer reservations made before %s cancelled.";
+    public static final String CANCELLED_RESERVATION_IDS = "Cancelled reservations: %s";
+    public static final String SCHEDULER_LEASE_HELD = "Lease %s is held by another instance, skipped.";
+    public static final String SCHEDULER_LEASES_PURGED = "%d expired shard leases purged.";
+    public static final String EXPIRED_RESERVATIONS_CANCELLED = "%d of %d bank transfer reservations cancelled at their payment deadline.";
+    public static final String EXPIRED_RESERVATIONS_RETRIED = "Cancelling %d bank transfer reservations at their payment deadline failed, retrying: %s";
     public static final String NO_OVERDUE_RESERVATION = "No overdue reservation found";
     public static final String RUNNING_SCHEDULER_TASK = "Running scheduled task to cancel overdue bank transfer reservations...";
 
     // Kafka / external
     public static final String KAFKA_EXCEPTION = "Error processing Kafka message: %s";
     public static final String CARD_PAYMENT_EXCEPTION = "Error calling credit card payment service: %s";
+    public static final String CARD_SERVICE_CIRCUIT_OPEN = "Credit card payment service is unavailable. Please retry later.";
+    public static final String CARD_SERVICE_BUSY = "Credit card payment service is busy. Please retry later.";
+    public static final String CARD_SERVICE_UNREACHABLE = "Credit card payment service did not answer. Please retry later.";
 
     // Reservation cancellation
     public static final String RESERVATION_CANCELLED = "Reservation %d automatically cancelled due to overdue payment.";
 
     // KAFKA
     public static final String TOPIC_BANK_TRANSFER_PAYMENT_UPDATE = "bank-transfer-payment-update";
+    public static final String TOPIC_BANK_TRANSFER_PAYMENT_UPDATE_DLT = TOPIC_BANK_TRANSFER_PAYMENT_UPDATE + "-dlt";
     public static final String GROUP_ROOM_RESERVATION = "room-reservation-group";
+    public static final String BYTE_ARRAY_VALUE_DESERIALIZER = "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer";
+    public static final String PAYMENT_UPDATE_CONCURRENCY = "${reservation.payment-updates.concurrency:1}";
+    public static final String PAYMENT_UPDATE_RETRY_ATTEMPTS = "${reservation.payment-updates.retry.attempts:4}";
+    public static final String PAYMENT_UPDATE_RETRY_DELAY = "${reservation.payment-updates.retry.delay:1000}";
+    public static final String PAYMENT_UPDATE_RETRY_MULTIPLIER = "${reservation.payment-updates.retry.multiplier:2.0}";
+    public static final String PAYMENT_UPDATE_RETRY_MAX_DELAY = "${reservation.payment-updates.retry.max-delay:30000}";
+    public static final String PAYMENT_UPDATE_DEAD_LETTER = "Payment update from %s moved to the dead-letter topic after %s: %s";
+    public static final String PAYMENT_UPDATE_DUPLICATE = "Dropped duplicate payment update %s";
 
     public static final String RUNTIME_EXCEPTION =  "Internal server error while processing reservation %s";
 }
@@ -0,0 +1,71 @@
+package com.marvel.reservation.controller;
+
+import com.marvel.reservation.api.PaymentStatusApi;
+import com.marvel.reservation.api.model.PaymentStatusBatchItem;
+import com.marvel.reservation.api.model.PaymentStatusBatchRequest;
+import com.marvel.reservation.api.model.PaymentStatusBatchResponse;
+import com.marvel.reservation.api.model.PaymentStatusResponse;
+import com.marvel.reservation.api.model.PaymentStatusRetrievalRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Local stand-in for the credit card payment service, active with the {@code card-stub} profile.
+ * Point {@code credit.card.payment.service.url} and {@code batch-url} at {@code /card-stub/api/v1/payment-status}.
+ * References containing {@code REJECT} are rejected, references containing {@code UNKNOWN} are not found,
+ * all others are confirmed. Every request takes {@code card-stub.latency}, whatever the number of references.
+ */
+@RestController
+@RequestMapping("/card-stub/api/v1")
+@Profile("card-stub")
+public class CreditCardPaymentStubController implements PaymentStatusApi {
+
+    @Value("${card-stub.latency:20ms}")
+    private Duration latency;
+
+    @Override
+    public ResponseEntity<PaymentStatusResponse> paymentStatusPost(PaymentStatusRetrievalRequest request) {
+        pause();
+        String status = statusOf(request.getPaymentReference());
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(new PaymentStatusResponse().status(status).lastUpdateDate(Instant.now().toString()));
+    }
+
+    @Override
+    public ResponseEntity<PaymentStatusBatchResponse> paymentStatusBatchPost(PaymentStatusBatchRequest request) {
+        pause();
+        PaymentStatusBatchResponse response = new PaymentStatusBatchResponse();
+        String lastUpdateDate = Instant.now().toString();
+        for (String paymentReference : request.getPaymentReferences()) {
+            String status = statusOf(paymentReference);
+            if (status != null) {
+                response.addPaymentsItem(new PaymentStatusBatchItem()
+                        .paymentReference(paymentReference).status(status).lastUpdateDate(lastUpdateDate));
+            }
+        }
+        return ResponseEntity.ok(response);
+    }
+
+    private static String statusOf(String paymentReference) {
+        if (paymentReference.contains("UNKNOWN")) {
+            return null;
+        }
+        return paymentReference.contains("REJECT") ? "REJECTED" : "CONFIRMED";
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latency);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,12 +1,26 @@
 package com.marvel.reservation.controller;
 
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.dto.BatchReservationResponse;
 import com.marvel.reservation.dto.ReservationRequest;
 import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.dto.RoomAvailabilityResponse;
+import com.marvel.reservation.idempotency.IdempotencyService;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.RoomSegment;
 import com.marvel.reservation.service.ReservationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/reservations")
@@ -14,10 +28,50 @@ import org.springframework.web.bind.annotation.*;
 public class ReservationController {
 
     private final ReservationService reservationService;
+    private final IdempotencyService idempotencyService;
+
+    // When enabled, credit card reservations are answered with 202 before the card processor is asked
+    @Value("${reservation.credit-card.async.enabled:false}")
+    private boolean asyncCreditCard;
 
     @PostMapping("/confirm")
-    @ResponseStatus(HttpStatus.CREATED)
-    public ReservationResponse confirmReservation(@Valid @RequestBody ReservationRequest request) {
-        return reservationService.confirmReservation(request);
+    public ResponseEntity<ReservationResponse> confirmReservation(
+            @Valid @RequestBody ReservationRequest request,
+            @RequestHeader(value = Constants.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return confirm(request);
+        }
+        return idempotencyService.execute(idempotencyKey, request, () -> confirm(request));
+    }
+
+    private ResponseEntity<ReservationResponse> confirm(ReservationRequest request) {
+        if (asyncCreditCard && request.getPaymentMode() == PaymentMode.CREDIT_CARD) {
+            ReservationResponse response = reservationService.acceptReservation(request);
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/api/v1/reservations/{reservationId}")
+                    .buildAndExpand(response.getReservationId())
+                    .toUri();
+            return ResponseEntity.accepted().location(location).body(response);
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservationService.confirmReservation(request));
+    }
+
+    @GetMapping("/{reservationId}")
+    public ReservationResponse getReservation(@PathVariable Long reservationId) {
+        return reservationService.getReservation(reservationId);
+    }
+
+    // Items are validated one by one so that a single invalid reservation does not reject the whole batch
+    @PostMapping("/confirm/batch")
+    public BatchReservationResponse confirmReservations(@RequestBody List<ReservationRequest> requests) {
+        return reservationService.confirmReservations(requests);
+    }
+
+    @GetMapping("/availability")
+    public RoomAvailabilityResponse findAvailableRooms(
+            @RequestParam(required = false) RoomSegment segment,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        return reservationService.findAvailableRooms(segment, start, end);
     }
 }
@@ -0,0 +1,14 @@
+package com.marvel.reservation.dto;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.util.List;
+
+@Builder
+@Getter
+public class BatchReservationResponse {
+    private int accepted;
+    private int rejected;
+    private List<BatchReservationResult> results;
+}
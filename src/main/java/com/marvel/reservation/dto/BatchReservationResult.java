@@ -0,0 +1,16 @@
+package com.marvel.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchReservationResult {
+    private int index;
+    private Long reservationId;
+    private ReservationStatus reservationStatus;
+    private String error;
+}
@@ -0,0 +1,23 @@
+package com.marvel.reservation.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.marvel.reservation.model.enums.RoomSegment;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Builder
+@Getter
+public class RoomAvailabilityResponse {
+    private RoomSegment roomSegment;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate startDate;
+
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private LocalDate endDate;
+
+    private List<String> availableRooms;
+}
@@ -49,6 +49,45 @@ public class GlobalExceptionHandler {
         return Map.of("error", ex.getMessage());
     }
 
+    // The card service was not called: circuit open or too many calls in flight
+    @ExceptionHandler(PaymentServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    @ResponseBody
+    public Map<String, String> handlePaymentServiceUnavailableException(PaymentServiceUnavailableException ex) {
+        return Map.of("error", ex.getMessage());
+    }
+
+    // Handle double booking of a room
+    @ExceptionHandler(ReservationConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Map<String, String> handleReservationConflictException(ReservationConflictException ex) {
+        return Map.of("error", ex.getMessage());
+    }
+
+    // The Idempotency-Key was used before for another request body
+    @ExceptionHandler(IdempotencyKeyMismatchException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_CONTENT)
+    @ResponseBody
+    public Map<String, String> handleIdempotencyKeyMismatchException(IdempotencyKeyMismatchException ex) {
+        return Map.of("error", ex.getMessage());
+    }
+
+    // The first request of the Idempotency-Key did not finish while its duplicate was waiting
+    @ExceptionHandler(IdempotencyKeyInProgressException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    @ResponseBody
+    public Map<String, String> handleIdempotencyKeyInProgressException(IdempotencyKeyInProgressException ex) {
+        return Map.of("error", ex.getMessage());
+    }
+
+    @ExceptionHandler(ReservationNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    @ResponseBody
+    public Map<String, String> handleReservationNotFoundException(ReservationNotFoundException ex) {
+        return Map.of("error", ex.getMessage());
+    }
+
     @ExceptionHandler(RuntimeException.class)
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     @ResponseBody
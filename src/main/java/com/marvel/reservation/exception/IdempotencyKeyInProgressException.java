@@ -0,0 +1,7 @@
+package com.marvel.reservation.exception;
+
+public class IdempotencyKeyInProgressException extends jakarta.validation.ValidationException {
+    public IdempotencyKeyInProgressException(String message) {
+        super(message);
+    }
+}
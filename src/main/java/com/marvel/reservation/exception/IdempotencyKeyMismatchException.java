@@ -0,0 +1,7 @@
+package com.marvel.reservation.exception;
+
+public class IdempotencyKeyMismatchException extends jakarta.validation.ValidationException {
+    public IdempotencyKeyMismatchException(String message) {
+        super(message);
+    }
+}
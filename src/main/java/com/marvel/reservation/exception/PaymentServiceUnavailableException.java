@@ -0,0 +1,11 @@
+package com.marvel.reservation.exception;
+
+/**
+ * The credit card payment service gave no answer: it was not called because its circuit is open or too many calls are
+ * in flight, or the call timed out, failed to connect or got a server error.
+ */
+public class PaymentServiceUnavailableException extends PaymentException {
+    public PaymentServiceUnavailableException(String message) {
+        super(message);
+    }
+}
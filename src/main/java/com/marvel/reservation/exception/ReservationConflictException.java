@@ -0,0 +1,7 @@
+package com.marvel.reservation.exception;
+
+public class ReservationConflictException extends jakarta.validation.ValidationException {
+    public ReservationConflictException(String message) {
+        super(message);
+    }
+}
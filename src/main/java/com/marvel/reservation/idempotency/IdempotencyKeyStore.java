@@ -0,0 +1,88 @@
+package com.marvel.reservation.idempotency;
+
+import com.marvel.reservation.model.IdempotencyKey;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Reads and writes the {@code idempotency_key} table. Every statement commits on its own, so a claim is
+ * visible to the other instances of the service while the request it belongs to is still running.
+ */
+@Component
+@RequiredArgsConstructor
+public class IdempotencyKeyStore {
+
+    private static final String INSERT_CLAIM = "INSERT INTO idempotency_key (idempotency_key, fingerprint, state, created_at, expires_at) "
+            + "VALUES (?, ?, 'IN_PROGRESS', ?, ?)";
+    private static final String SELECT_KEY = "SELECT * FROM idempotency_key WHERE idempotency_key = ?";
+    private static final String UPDATE_COMPLETED = "UPDATE idempotency_key SET state = 'COMPLETED', http_status = ?, reservation_id = ?, "
+            + "reservation_status = ?, location = ?, expires_at = ? WHERE idempotency_key = ?";
+    private static final String DELETE_CLAIM = "DELETE FROM idempotency_key WHERE idempotency_key = ? AND state = 'IN_PROGRESS'";
+    private static final String DELETE_UNCHANGED = "DELETE FROM idempotency_key WHERE idempotency_key = ? AND created_at = ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM idempotency_key WHERE expires_at < ?";
+
+    private static final RowMapper<IdempotencyKey> ROW_MAPPER = (rs, rowNum) -> {
+        IdempotencyKey key = new IdempotencyKey();
+        key.setKey(rs.getString("idempotency_key"));
+        key.setFingerprint(rs.getString("fingerprint"));
+        key.setState(IdempotencyKey.State.valueOf(rs.getString("state")));
+        key.setHttpStatus(rs.getObject("http_status", Integer.class));
+        key.setReservationId(rs.getObject("reservation_id", Long.class));
+        String reservationStatus = rs.getString("reservation_status");
+        key.setReservationStatus(reservationStatus == null ? null : ReservationStatus.valueOf(reservationStatus));
+        key.setLocation(rs.getString("location"));
+        key.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+        key.setExpiresAt(rs.getTimestamp("expires_at").toInstant());
+        return key;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts an {@code IN_PROGRESS} row for the key, false when the key already has a row.
+     */
+    public boolean claim(String key, String fingerprint, Instant now, Instant expiresAt) {
+        try {
+            jdbcTemplate.update(INSERT_CLAIM, key, fingerprint, Timestamp.from(now), Timestamp.from(expiresAt));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public Optional<IdempotencyKey> find(String key) {
+        return jdbcTemplate.query(SELECT_KEY, ROW_MAPPER, key).stream().findFirst();
+    }
+
+    public void complete(String key, StoredResponse response, Instant expiresAt) {
+        jdbcTemplate.update(UPDATE_COMPLETED, response.httpStatus(), response.reservationId(),
+                response.reservationStatus() == null ? null : response.reservationStatus().name(),
+                response.location(), Timestamp.from(expiresAt), key);
+    }
+
+    /**
+     * Gives up a claim whose request failed, so that a retry runs again.
+     */
+    public void release(String key) {
+        jdbcTemplate.update(DELETE_CLAIM, key);
+    }
+
+    /**
+     * Deletes an expired or abandoned row, unless another request has replaced it in the meantime.
+     */
+    public boolean remove(IdempotencyKey key) {
+        return jdbcTemplate.update(DELETE_UNCHANGED, key.getKey(), Timestamp.from(key.getCreatedAt())) > 0;
+    }
+
+    public int purgeExpired(Instant now) {
+        return jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(now));
+    }
+}
@@ -0,0 +1,199 @@
+package com.marvel.reservation.idempotency;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marvel.reservation.config.IdempotencyProperties;
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.exception.IdempotencyKeyInProgressException;
+import com.marvel.reservation.exception.IdempotencyKeyMismatchException;
+import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.model.IdempotencyKey;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Runs a reservation request at most once per {@code Idempotency-Key}.
+ * <p>
+ * The first request of a key claims it in the {@code idempotency_key} table, runs, and stores its response;
+ * repeats get the stored response without running again. Completed responses are also kept in a bounded
+ * in-memory cache, so most repeats never reach the database. Duplicates that arrive while the first request
+ * is running wait for it: on the same instance on its future, on other instances by polling the table.
+ * A request that fails gives its key up, so that the client can retry it.
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    static final String REQUESTS_METRIC = "reservation.idempotency.requests";
+
+    private final IdempotencyKeyStore store;
+    private final IdempotencyProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, StoredResponse> completed;
+    private final ConcurrentMap<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyService(IdempotencyKeyStore store, IdempotencyProperties properties,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, completed, "reservation-idempotency");
+    }
+
+    public ResponseEntity<ReservationResponse> execute(String key, Object request,
+                                                       Supplier<ResponseEntity<ReservationResponse>> action) {
+        if (key == null || key.isBlank() || key.length() > Constants.MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new ValidationException(Constants.INVALID_IDEMPOTENCY_KEY);
+        }
+        String fingerprint = fingerprint(request);
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+        while (true) {
+            StoredResponse stored = completed.getIfPresent(key);
+            if (stored != null) {
+                return replay(key, fingerprint, stored);
+            }
+            CompletableFuture<StoredResponse> flight = new CompletableFuture<>();
+            CompletableFuture<StoredResponse> running = inFlight.putIfAbsent(key, flight);
+            if (running == null) {
+                try {
+                    return claimAndRun(key, fingerprint, action, flight, deadline);
+                } catch (RuntimeException e) {
+                    flight.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, flight);
+                }
+            }
+            Optional<StoredResponse> first = await(key, running, deadline);
+            if (first.isPresent()) {
+                return replay(key, fingerprint, first.get());
+            }
+            // The first request failed and gave the key up, this one runs instead
+        }
+    }
+
+    private ResponseEntity<ReservationResponse> claimAndRun(String key, String fingerprint,
+                                                            Supplier<ResponseEntity<ReservationResponse>> action,
+                                                            CompletableFuture<StoredResponse> flight, long deadline) {
+        while (true) {
+            Instant now = Instant.now();
+            if (store.claim(key, fingerprint, now, now.plus(properties.getTtl()))) {
+                ResponseEntity<ReservationResponse> response;
+                try {
+                    response = action.get();
+                } catch (RuntimeException e) {
+                    store.release(key);
+                    throw e;
+                }
+                StoredResponse stored = StoredResponse.of(fingerprint, response);
+                store.complete(key, stored, Instant.now().plus(properties.getTtl()));
+                completed.put(key, stored);
+                flight.complete(stored);
+                meterRegistry.counter(REQUESTS_METRIC, "outcome", "executed").increment();
+                return response;
+            }
+            Optional<IdempotencyKey> existing = store.find(key);
+            if (existing.isEmpty()) {
+                continue;
+            }
+            IdempotencyKey row = existing.get();
+            if (row.getExpiresAt().isBefore(now)) {
+                store.remove(row);
+                continue;
+            }
+            if (!row.getFingerprint().equals(fingerprint)) {
+                throw new IdempotencyKeyMismatchException(String.format(Constants.IDEMPOTENCY_KEY_MISMATCH, key));
+            }
+            if (row.getState() == IdempotencyKey.State.COMPLETED) {
+                StoredResponse stored = StoredResponse.of(row);
+                completed.put(key, stored);
+                flight.complete(stored);
+                return replay(key, fingerprint, stored);
+            }
+            if (row.getCreatedAt().isBefore(now.minus(properties.getInProgressTimeout()))) {
+                log.warn("Taking over idempotency key {} claimed at {}", key, row.getCreatedAt());
+                store.remove(row);
+                continue;
+            }
+            // Claimed by a request running on another instance
+            sleepUntilNextPoll(key, deadline);
+        }
+    }
+
+    private Optional<StoredResponse> await(String key, CompletableFuture<StoredResponse> running, long deadline) {
+        try {
+            return Optional.of(running.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (ExecutionException e) {
+            return Optional.empty();
+        } catch (TimeoutException e) {
+            throw inProgress(key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress(key);
+        }
+    }
+
+    private void sleepUntilNextPoll(String key, long deadline) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            throw inProgress(key);
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(Math.min(remaining, properties.getPollInterval().toNanos()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw inProgress(key);
+        }
+    }
+
+    private ResponseEntity<ReservationResponse> replay(String key, String fingerprint, StoredResponse stored) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            throw new IdempotencyKeyMismatchException(String.format(Constants.IDEMPOTENCY_KEY_MISMATCH, key));
+        }
+        meterRegistry.counter(REQUESTS_METRIC, "outcome", "replayed").increment();
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(stored.httpStatus())
+                .header(Constants.IDEMPOTENT_REPLAYED_HEADER, "true");
+        if (stored.location() != null) {
+            response.location(URI.create(stored.location()));
+        }
+        return response.body(ReservationResponse.builder()
+                .reservationId(stored.reservationId())
+                .reservationStatus(stored.reservationStatus())
+                .build());
+    }
+
+    private IdempotencyKeyInProgressException inProgress(String key) {
+        return new IdempotencyKeyInProgressException(String.format(Constants.IDEMPOTENCY_KEY_IN_PROGRESS, key));
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
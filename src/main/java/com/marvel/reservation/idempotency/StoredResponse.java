@@ -0,0 +1,29 @@
+package com.marvel.reservation.idempotency;
+
+import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.model.IdempotencyKey;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+
+/**
+ * The response of the first request of an idempotency key, replayed to its duplicates.
+ */
+public record StoredResponse(String fingerprint, int httpStatus, Long reservationId,
+                             ReservationStatus reservationStatus, String location) {
+
+    static StoredResponse of(String fingerprint, ResponseEntity<ReservationResponse> response) {
+        ReservationResponse body = response.getBody();
+        URI location = response.getHeaders().getLocation();
+        return new StoredResponse(fingerprint, response.getStatusCode().value(),
+                body == null ? null : body.getReservationId(),
+                body == null ? null : body.getReservationStatus(),
+                location == null ? null : location.toString());
+    }
+
+    static StoredResponse of(IdempotencyKey key) {
+        return new StoredResponse(key.getFingerprint(), key.getHttpStatus(), key.getReservationId(),
+                key.getReservationStatus(), key.getLocation());
+    }
+}
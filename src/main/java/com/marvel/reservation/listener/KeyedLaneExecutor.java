@@ -0,0 +1,96 @@
+package com.marvel.reservation.listener;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Ordered processing of payment updates when producers do not key their records by payment reference.
+ * <p>
+ * Every key is hashed to one of {@code reservation.payment-updates.lanes} single-threaded lanes, so updates with the
+ * same key run one after the other, in submission order, whichever consumer thread received them, while different
+ * keys run in parallel. With 0 lanes (the default) the work runs on the calling consumer thread and the ordering
+ * comes from Kafka itself: records with the same key land on the same partition, which one consumer reads in order.
+ */
+@Component
+public class KeyedLaneExecutor implements DisposableBean {
+
+    private final ExecutorService[] lanes;
+
+    public KeyedLaneExecutor(@Value("${reservation.payment-updates.lanes:0}") int laneCount) {
+        this.lanes = new ExecutorService[Math.max(laneCount, 0)];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "payment-update-lane-" + i;
+            lanes[i] = Executors.newSingleThreadExecutor(task -> new Thread(task, name));
+        }
+    }
+
+    public boolean isEnabled() {
+        return lanes.length > 0;
+    }
+
+    /**
+     * Runs the action on the lane of the key and waits for it. A null key goes to the first lane.
+     */
+    public void run(String key, Runnable action) {
+        if (!isEnabled()) {
+            action.run();
+            return;
+        }
+        join(List.of(CompletableFuture.runAsync(action, lanes[laneOf(key)])));
+    }
+
+    /**
+     * Splits the items by the lane of their key, keeping their order, runs the action once per non-empty lane and
+     * waits for all lanes. The first failure is rethrown once every lane has finished.
+     */
+    public <T> void runInLanes(List<T> items, Function<T, String> keyOf, Consumer<List<T>> action) {
+        if (!isEnabled()) {
+            action.accept(items);
+            return;
+        }
+        List<List<T>> itemsPerLane = new ArrayList<>(lanes.length);
+        for (int i = 0; i < lanes.length; i++) {
+            itemsPerLane.add(new ArrayList<>());
+        }
+        for (T item : items) {
+            itemsPerLane.get(laneOf(keyOf.apply(item))).add(item);
+        }
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int i = 0; i < lanes.length; i++) {
+            List<T> laneItems = itemsPerLane.get(i);
+            if (!laneItems.isEmpty()) {
+                runs.add(CompletableFuture.runAsync(() -> action.accept(laneItems), lanes[i]));
+            }
+        }
+        join(runs);
+    }
+
+    @Override
+    public void destroy() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    private int laneOf(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), lanes.length);
+    }
+
+    private static void join(List<CompletableFuture<Void>> runs) {
+        try {
+            CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.marvel.reservation.listener;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.dto.PaymentUpdate;
+import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.service.ReservationService;
+import com.marvel.reservation.service.TransactionDescriptionParser;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batch mode of {@link PaymentUpdateListener}: takes all records of a poll (up to
+ * {@code spring.kafka.consumer.max-poll-records}) and confirms their reservations with one lookup and one
+ * transaction. The offsets are committed once the whole batch is processed. A failing batch is retried in place with
+ * the backoff of {@code reservation.payment-updates.retry.*}, holding back its partitions meanwhile, and its records
+ * then go to the same dead-letter topic as in record mode, see {@code PaymentUpdateBatchConfig}. Records that cannot
+ * succeed, an undecodable message or an invalid transaction description, go there right away and the rest of the
+ * batch is processed.
+ * With lanes enabled the batch is split by payment reference and each lane confirms its part in its own transaction.
+ */
+@Component
+@ConditionalOnProperty(name = "reservation.payment-updates.batch.enabled", havingValue = "true")
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentUpdateBatchListener {
+
+    static final String BATCH_SIZE_METRIC = "reservation.payment-updates.batch.size";
+    static final String BATCH_TIMER_METRIC = "reservation.payment-updates.batch";
+    static final String RECORDS_METRIC = "reservation.payment-updates.records";
+
+    private final ReservationService reservationService;
+    private final PaymentUpdateReader paymentUpdateReader;
+    private final KeyedLaneExecutor keyedLaneExecutor;
+    private final PaymentUpdateDeduplicator paymentUpdateDeduplicator;
+    private final MeterRegistry meterRegistry;
+    @Qualifier("paymentUpdateDeadLetterRecoverer")
+    private final ConsumerRecordRecoverer deadLetterRecoverer;
+
+    @KafkaListener(
+            topics = Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE,
+            groupId = Constants.GROUP_ROOM_RESERVATION,
+            batch = "true",
+            concurrency = Constants.PAYMENT_UPDATE_CONCURRENCY,
+            properties = Constants.BYTE_ARRAY_VALUE_DESERIALIZER
+    )
+    public void handlePaymentUpdates(List<ConsumerRecord<String, byte[]>> records) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<String> transactionDescriptions = new ArrayList<>(records.size());
+        // A resent settlement batch can also repeat a paymentId within one poll
+        Set<String> paymentIds = new HashSet<>();
+        for (ConsumerRecord<String, byte[]> record : records) {
+            try {
+                PaymentUpdate paymentUpdate = paymentUpdateReader.read(record.value());
+                // Throws for an invalid description, which would fail the same way on every redelivery
+                TransactionDescriptionParser.paymentReference(paymentUpdate.getTransactionDescription());
+                String paymentId = paymentUpdate.getPaymentId();
+                if (paymentIds.contains(paymentId) || paymentUpdateDeduplicator.isDuplicate(paymentId)) {
+                    log.debug(String.format(Constants.PAYMENT_UPDATE_DUPLICATE, paymentId));
+                    continue;
+                }
+                if (paymentId != null) {
+                    paymentIds.add(paymentId);
+                }
+                transactionDescriptions.add(paymentUpdate.getTransactionDescription());
+            } catch (IOException | ValidationException e) {
+                // Wrapped as by the listener container, so the dead letter carries the same exception headers
+                deadLetterRecoverer.accept(record, new ListenerExecutionFailedException(e.getMessage(), e));
+            }
+        }
+        keyedLaneExecutor.runInLanes(transactionDescriptions, TransactionDescriptionParser::paymentReferenceOrNull,
+                reservationService::confirmBankTransferPayments);
+        paymentIds.forEach(paymentUpdateDeduplicator::markProcessed);
+
+        // records/s of the records counter is the consumption throughput
+        sample.stop(meterRegistry.timer(BATCH_TIMER_METRIC));
+        meterRegistry.summary(BATCH_SIZE_METRIC).record(records.size());
+        meterRegistry.counter(RECORDS_METRIC).increment(records.size());
+    }
+}
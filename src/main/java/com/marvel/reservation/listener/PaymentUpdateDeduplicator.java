@@ -0,0 +1,73 @@
+package com.marvel.reservation.listener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.marvel.reservation.config.PaymentUpdateDedupeProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Drops bank transfer payment updates whose {@code paymentId} has already been applied, before they reach the
+ * database. Kafka delivers at least once and the bank gateway resends settlement batches, so the same update can
+ * arrive many times.
+ * <p>
+ * The processed paymentIds of the last {@code window} are kept in a bounded in-memory cache. With
+ * {@code persistent=true} they are also recorded in the {@code processed_payment_update} table, which answers for
+ * the paymentIds the cache does not know, e.g. after a restart. A paymentId is only recorded once its update has
+ * been applied, so an update that failed is processed again when it is redelivered or retried.
+ */
+@Component
+public class PaymentUpdateDeduplicator {
+
+    static final String DUPLICATES_METRIC = "reservation.payment-updates.duplicates";
+    static final String CACHE_NAME = "payment-update-dedupe";
+
+    private final PaymentUpdateDedupeProperties properties;
+    private final ProcessedPaymentUpdateStore store;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Boolean> processed;
+
+    public PaymentUpdateDeduplicator(PaymentUpdateDedupeProperties properties, ProcessedPaymentUpdateStore store,
+                                     MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+        this.processed = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getWindow())
+                .recordStats()
+                .build();
+        // cache.gets{result=hit|miss} of this cache is the in-memory hit rate
+        CaffeineCacheMetrics.monitor(meterRegistry, processed, CACHE_NAME);
+    }
+
+    public boolean isDuplicate(String paymentId) {
+        if (!properties.isEnabled() || paymentId == null) {
+            return false;
+        }
+        if (processed.getIfPresent(paymentId) != null) {
+            meterRegistry.counter(DUPLICATES_METRIC, "source", "memory").increment();
+            return true;
+        }
+        if (properties.isPersistent() && store.isProcessed(paymentId, Instant.now())) {
+            processed.put(paymentId, Boolean.TRUE);
+            meterRegistry.counter(DUPLICATES_METRIC, "source", "database").increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void markProcessed(String paymentId) {
+        if (!properties.isEnabled() || paymentId == null) {
+            return;
+        }
+        processed.put(paymentId, Boolean.TRUE);
+        if (properties.isPersistent()) {
+            Instant now = Instant.now();
+            store.markProcessed(paymentId, now, now.plus(properties.getWindow()));
+        }
+    }
+}
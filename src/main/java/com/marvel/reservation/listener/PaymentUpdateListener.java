@@ -1,39 +1,97 @@
 package com.marvel.reservation.listener;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.marvel.reservation.constant.Constants;
 import com.marvel.reservation.dto.PaymentUpdate;
+import com.marvel.reservation.exception.ValidationException;
 import com.marvel.reservation.service.ReservationService;
+import com.marvel.reservation.service.TransactionDescriptionParser;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.BackOff;
+import org.springframework.kafka.annotation.DltHandler;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.RetryableTopic;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Confirms bank transfer reservations from payment updates, one record at a time.
+ * <p>
+ * A failing update never blocks its partition. Updates that cannot succeed, an undecodable message or an invalid
+ * transaction description, go straight to the dead-letter topic. Other failures, e.g. the database being down, are
+ * retried from the {@code -retry-<delay>} topics with exponential backoff and land in the {@code -dlt} topic
+ * once {@code reservation.payment-updates.retry.attempts} is used up.
+ */
 @Component
+@ConditionalOnProperty(name = "reservation.payment-updates.batch.enabled", havingValue = "false", matchIfMissing = true)
 @Slf4j
 @RequiredArgsConstructor
 public class PaymentUpdateListener {
 
+    static final String RETRIES_METRIC = "reservation.payment-updates.retries";
+    public static final String DEAD_LETTERS_METRIC = "reservation.payment-updates.dead-letters";
 
     private final ReservationService reservationService;
-    private final ObjectMapper objectMapper;
+    private final PaymentUpdateReader paymentUpdateReader;
+    private final KeyedLaneExecutor keyedLaneExecutor;
+    private final PaymentUpdateDeduplicator paymentUpdateDeduplicator;
+    private final MeterRegistry meterRegistry;
 
 
-    // Assuming the Kafka message is a JSON string of the PaymentUpdate DTO
+    // The Kafka message is the JSON of the PaymentUpdate DTO, taken as raw bytes and decoded by PaymentUpdateReader
+    @RetryableTopic(
+            attempts = Constants.PAYMENT_UPDATE_RETRY_ATTEMPTS,
+            backOff = @BackOff(delayString = Constants.PAYMENT_UPDATE_RETRY_DELAY,
+                    multiplierString = Constants.PAYMENT_UPDATE_RETRY_MULTIPLIER,
+                    maxDelayString = Constants.PAYMENT_UPDATE_RETRY_MAX_DELAY),
+            exclude = {JsonProcessingException.class, ValidationException.class},
+            traversingCauses = "true"
+    )
     @KafkaListener(
             topics = Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE,
-            groupId = Constants.GROUP_ROOM_RESERVATION
+            groupId = Constants.GROUP_ROOM_RESERVATION,
+            concurrency = Constants.PAYMENT_UPDATE_CONCURRENCY,
+            properties = Constants.BYTE_ARRAY_VALUE_DESERIALIZER
     )
-    public void handlePaymentUpdate(String message) {
-        try {
-            PaymentUpdate paymentUpdate = objectMapper.readValue(message, PaymentUpdate.class);
-            // The logic for confirming the booking is based on the transactionDescription
-            // which contains the reservationId.
-            reservationService.confirmBankTransferPayment(paymentUpdate.getTransactionDescription());
-        } catch (JsonProcessingException e) {
-            log.error(String.format(Constants.KAFKA_EXCEPTION,e.getMessage()));
-            // In a real application, we would handle this with a Dead Letter Queue (DLQ)
+    public void handlePaymentUpdate(byte[] message, @Header(KafkaHeaders.RECEIVED_TOPIC) String topic) throws IOException {
+        if (!Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE.equals(topic)) {
+            meterRegistry.counter(RETRIES_METRIC, "topic", topic).increment();
+        }
+        PaymentUpdate paymentUpdate = paymentUpdateReader.read(message);
+        if (paymentUpdateDeduplicator.isDuplicate(paymentUpdate.getPaymentId())) {
+            log.debug(String.format(Constants.PAYMENT_UPDATE_DUPLICATE, paymentUpdate.getPaymentId()));
+            return;
+        }
+        // The logic for confirming the booking is based on the transactionDescription
+        // which contains the reservationId.
+        String transactionDescription = paymentUpdate.getTransactionDescription();
+        keyedLaneExecutor.run(TransactionDescriptionParser.paymentReferenceOrNull(transactionDescription),
+                () -> reservationService.confirmBankTransferPayment(transactionDescription));
+        paymentUpdateDeduplicator.markProcessed(paymentUpdate.getPaymentId());
+    }
+
+    @DltHandler
+    public void handleDeadLetter(ConsumerRecord<String, byte[]> deadLetter) {
+        String exception = headerValue(deadLetter, KafkaHeaders.EXCEPTION_CAUSE_FQCN);
+        if (exception == null) {
+            exception = headerValue(deadLetter, KafkaHeaders.EXCEPTION_FQCN);
         }
+        exception = exception == null ? "unknown" : exception.substring(exception.lastIndexOf('.') + 1);
+        meterRegistry.counter(DEAD_LETTERS_METRIC, "exception", exception).increment();
+        log.error(String.format(Constants.PAYMENT_UPDATE_DEAD_LETTER, headerValue(deadLetter, KafkaHeaders.ORIGINAL_TOPIC),
+                exception, headerValue(deadLetter, KafkaHeaders.EXCEPTION_MESSAGE)));
+    }
+
+    private static String headerValue(ConsumerRecord<?, ?> record, String name) {
+        org.apache.kafka.common.header.Header header = record.headers().lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
     }
 }
@@ -0,0 +1,55 @@
+package com.marvel.reservation.listener;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.marvel.reservation.dto.PaymentUpdate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Decodes the raw bytes of a {@code bank-transfer-payment-update} record into a {@link PaymentUpdate}.
+ * <p>
+ * The parser comes from an {@link ObjectReader} built once, and the fields are read token by token straight from
+ * the UTF-8 bytes, without decoding the record into a String first and without data binding. Only
+ * {@code paymentId} and {@code transactionDescription} are read; the fields the service does not use, such as
+ * {@code debtorAccountNumber} and {@code amountReceived}, are skipped without being materialized.
+ */
+@Component
+public class PaymentUpdateReader {
+
+    private final ObjectReader reader;
+
+    public PaymentUpdateReader(ObjectMapper objectMapper) {
+        this.reader = objectMapper.readerFor(PaymentUpdate.class);
+    }
+
+    public PaymentUpdate read(byte[] message) throws IOException {
+        try (JsonParser parser = reader.createParser(message)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonParseException(parser, "Payment update is not a JSON object");
+            }
+            PaymentUpdate paymentUpdate = new PaymentUpdate();
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "paymentId" -> paymentUpdate.setPaymentId(textOrNull(parser, value));
+                    case "transactionDescription" -> paymentUpdate.setTransactionDescription(textOrNull(parser, value));
+                    default -> parser.skipChildren();
+                }
+            }
+            if (parser.currentToken() != JsonToken.END_OBJECT) {
+                throw new JsonParseException(parser, "Unexpected token " + parser.currentToken());
+            }
+            return paymentUpdate;
+        }
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_NULL ? null : parser.getValueAsString();
+    }
+}
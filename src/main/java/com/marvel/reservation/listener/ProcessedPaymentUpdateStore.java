@@ -0,0 +1,42 @@
+package com.marvel.reservation.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Reads and writes the {@code processed_payment_update} table.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProcessedPaymentUpdateStore {
+
+    private static final String INSERT_PROCESSED = "INSERT INTO processed_payment_update (payment_id, processed_at, expires_at) VALUES (?, ?, ?)";
+    private static final String UPDATE_PROCESSED = "UPDATE processed_payment_update SET processed_at = ?, expires_at = ? WHERE payment_id = ?";
+    private static final String COUNT_UNEXPIRED = "SELECT COUNT(*) FROM processed_payment_update WHERE payment_id = ? AND expires_at > ?";
+    private static final String DELETE_EXPIRED = "DELETE FROM processed_payment_update WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean isProcessed(String paymentId, Instant now) {
+        Integer count = jdbcTemplate.queryForObject(COUNT_UNEXPIRED, Integer.class, paymentId, Timestamp.from(now));
+        return count != null && count > 0;
+    }
+
+    public void markProcessed(String paymentId, Instant now, Instant expiresAt) {
+        try {
+            jdbcTemplate.update(INSERT_PROCESSED, paymentId, Timestamp.from(now), Timestamp.from(expiresAt));
+        } catch (DuplicateKeyException e) {
+            // Processed again after its row expired, or by another instance at the same time
+            jdbcTemplate.update(UPDATE_PROCESSED, Timestamp.from(now), Timestamp.from(expiresAt), paymentId);
+        }
+    }
+
+    public int purgeExpired(Instant now) {
+        return jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(now));
+    }
+}
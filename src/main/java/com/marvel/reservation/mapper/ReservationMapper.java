@@ -0,0 +1,35 @@
+package com.marvel.reservation.mapper;
+
+import com.marvel.reservation.dto.BatchReservationResult;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.model.Reservation;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Conversions between the reservation DTOs and the {@link Reservation} entity. The implementation is generated
+ * at compile time as plain getter/setter calls; a field of the entity that is neither mapped nor ignored fails the build.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface ReservationMapper {
+
+    // Set by the database, the payment mode rules and the entity's own default
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "status", ignore = true)
+    @Mapping(target = "reservationDate", ignore = true)
+    @Mapping(target = "createdAt", ignore = true)
+    Reservation toEntity(ReservationRequest request);
+
+    @Mapping(target = "reservationId", source = "id")
+    @Mapping(target = "reservationStatus", source = "status")
+    ReservationResponse toResponse(Reservation reservation);
+
+    @Mapping(target = "index", source = "index")
+    @Mapping(target = "reservationId", source = "reservation.id")
+    @Mapping(target = "reservationStatus", source = "reservation.status")
+    @Mapping(target = "error", ignore = true)
+    BatchReservationResult toResult(int index, Reservation reservation);
+}
@@ -0,0 +1,53 @@
+package com.marvel.reservation.model;
+
+import com.marvel.reservation.model.enums.ReservationStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * The outcome of a {@code POST /confirm} made with an {@code Idempotency-Key} header. The key is claimed with an
+ * {@code IN_PROGRESS} row before the reservation is made, so duplicates on every instance of the service see it,
+ * and completed with the response that is replayed to them until {@code expiresAt}.
+ */
+@Entity
+@Table(
+        name = "idempotency_key",
+        indexes = @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at")
+)
+@Data
+public class IdempotencyKey {
+
+    public enum State { IN_PROGRESS, COMPLETED }
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    // SHA-256 of the request body, a key reused for another request is rejected
+    @Column(nullable = false, length = 64)
+    private String fingerprint;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private State state;
+
+    @Column(name = "http_status")
+    private Integer httpStatus;
+
+    @Column(name = "reservation_id")
+    private Long reservationId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "reservation_status")
+    private ReservationStatus reservationStatus;
+
+    private String location;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
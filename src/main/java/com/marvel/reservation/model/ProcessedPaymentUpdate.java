@@ -0,0 +1,29 @@
+package com.marvel.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * A bank transfer payment update that has been applied, by {@code paymentId}. Lets redelivered and resent
+ * updates be dropped after a restart, until {@code expiresAt}.
+ */
+@Entity
+@Table(
+        name = "processed_payment_update",
+        indexes = @Index(name = "idx_processed_payment_update_expires_at", columnList = "expires_at")
+)
+@Data
+public class ProcessedPaymentUpdate {
+
+    @Id
+    @Column(name = "payment_id", length = 255)
+    private String paymentId;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -5,15 +5,33 @@ import com.marvel.reservation.model.enums.ReservationStatus;
 import com.marvel.reservation.model.enums.RoomSegment;
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
+/**
+ * A room reservation. The payment reference identifies at most one reservation, and the composite index serves the
+ * pending-payment lookups, which filter on status and payment mode first and then on a range of reservation dates.
+ */
 @Entity
+@Table(
+        name = "reservation",
+        indexes = {
+                @Index(name = Reservation.PAYMENT_REFERENCE_INDEX, columnList = "payment_reference", unique = true),
+                @Index(name = "idx_reservation_status_mode_date", columnList = "status, payment_mode, reservation_date"),
+                @Index(name = "idx_reservation_end_date", columnList = "end_date")
+        }
+)
 @Data
 public class Reservation {
 
+        public static final String PAYMENT_REFERENCE_INDEX = "uk_reservation_payment_reference";
+
+        // Pooled sequence ids keep Hibernate insert batching enabled, unlike IDENTITY
         @Id
-        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+        @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
         private Long id;
 
         private String customerName;
@@ -28,13 +46,21 @@ public class Reservation {
         private RoomSegment roomSegment;
 
         @Enumerated(EnumType.STRING)
+        @Column(name = "payment_mode")
         private PaymentMode paymentMode;
 
+        @Column(name = "payment_reference")
         private String paymentReference;
 
         @Enumerated(EnumType.STRING)
         private ReservationStatus status;
 
+        @Column(name = "reservation_date")
         private LocalDate reservationDate = LocalDate.now();
+
+        // Start of the payment period of a bank transfer; null for reservations made before the column existed
+        @CreationTimestamp
+        @Column(name = "created_at", updatable = false)
+        private Instant createdAt;
     }
 
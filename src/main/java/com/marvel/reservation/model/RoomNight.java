@@ -0,0 +1,33 @@
+package com.marvel.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * One night of a room taken by an active reservation. The unique (roomNumber, night) key lets the
+ * database reject a double booking even when several instances of the service accept bookings.
+ */
+@Entity
+@Table(
+        name = "room_night",
+        uniqueConstraints = @UniqueConstraint(name = "uk_room_night", columnNames = {"room_number", "night"}),
+        indexes = @Index(name = "idx_room_night_reservation", columnList = "reservation_id")
+)
+@Data
+public class RoomNight {
+
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        @Column(name = "room_number", nullable = false)
+        private String roomNumber;
+
+        @Column(nullable = false)
+        private LocalDate night;
+
+        @Column(name = "reservation_id", nullable = false)
+        private Long reservationId;
+    }
@@ -0,0 +1,28 @@
+package com.marvel.reservation.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * A named scheduled job, or one shard of it, owned by one instance of the service until {@code leaseUntil}.
+ */
+@Entity
+@Table(name = "scheduler_lease")
+@Data
+public class SchedulerLease {
+
+    @Id
+    @Column(length = 128)
+    private String name;
+
+    @Column(nullable = false)
+    private String owner;
+
+    @Column(name = "locked_at", nullable = false)
+    private Instant lockedAt;
+
+    @Column(name = "lease_until", nullable = false)
+    private Instant leaseUntil;
+}
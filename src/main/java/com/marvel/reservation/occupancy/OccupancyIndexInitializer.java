@@ -0,0 +1,68 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.config.RoomInventoryProperties;
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.repository.ReservationRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Loads the room inventory and the active reservations into the in-memory occupancy indexes
+ * before the application starts serving requests, and reloads them to pick up other instances' changes.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OccupancyIndexInitializer implements SmartInitializingSingleton {
+
+    private static final Set<ReservationStatus> ACTIVE_STATUSES =
+            EnumSet.of(ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+
+    private final ReservationRepository reservationRepository;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final SegmentAvailabilityIndex segmentAvailabilityIndex;
+    private final RoomInventoryProperties roomInventoryProperties;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        roomInventoryProperties.getRooms().forEach((segment, roomNumbers) ->
+                roomNumbers.forEach(roomNumber -> segmentAvailabilityIndex.registerRoom(roomNumber, segment)));
+
+        int loaded = resync();
+        log.info("Room occupancy index loaded with {} active reservations", loaded);
+    }
+
+    /**
+     * Replaces the content of both indexes with the active reservations in the database that end today or later;
+     * the ones that ended before never conflict with a new booking. A room held by a booking
+     * still in flight may look free until the next resync; its nights are still guarded by the {@link RoomNightLedger}.
+     *
+     * @return the number of active reservations loaded
+     */
+    public int resync() {
+        List<Reservation> activeReservations = reservationRepository.findByStatusInAndEndDateGreaterThanEqual(
+                ACTIVE_STATUSES, LocalDate.now());
+        roomOccupancyIndex.rebuild(activeReservations);
+        segmentAvailabilityIndex.rebuild(activeReservations);
+        return activeReservations.size();
+    }
+
+    /**
+     * Reloads the occupancy of one room, after the local index reported a period taken that the ledger has free.
+     */
+    public void resyncRoom(String roomNumber, RoomSegment segment) {
+        List<Reservation> activeReservations = reservationRepository.findByRoomNumberAndStatusInAndEndDateGreaterThanEqual(
+                roomNumber, ACTIVE_STATUSES, LocalDate.now());
+        roomOccupancyIndex.replaceRoom(roomNumber, activeReservations);
+        segmentAvailabilityIndex.replaceRoom(roomNumber, segment, activeReservations);
+    }
+}
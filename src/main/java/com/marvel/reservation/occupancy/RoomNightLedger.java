@@ -0,0 +1,66 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes the nights of reservations to the {@code room_night} table.
+ * <p>
+ * All nights go out in a single JDBC batch on the caller's transaction. A night that is already taken
+ * violates the unique (room_number, night) key and surfaces as a
+ * {@link org.springframework.dao.DuplicateKeyException}, so the conflict check needs neither table locks
+ * nor a SERIALIZABLE transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoomNightLedger {
+
+    private static final String INSERT_NIGHT = "INSERT INTO room_night (room_number, night, reservation_id) VALUES (?, ?, ?)";
+    private static final String DELETE_NIGHTS = "DELETE FROM room_night WHERE reservation_id = ?";
+    private static final String COUNT_NIGHTS = "SELECT COUNT(*) FROM room_night WHERE room_number = ? AND night BETWEEN ? AND ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void bookNights(Reservation reservation) {
+        bookNights(List.of(reservation));
+    }
+
+    public void bookNights(Collection<Reservation> reservations) {
+        List<Object[]> nights = new ArrayList<>();
+        for (Reservation reservation : reservations) {
+            for (LocalDate night = reservation.getStartDate(); !night.isAfter(reservation.getEndDate()); night = night.plusDays(1)) {
+                nights.add(new Object[]{reservation.getRoomNumber(), Date.valueOf(night), reservation.getId()});
+            }
+        }
+        if (!nights.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_NIGHT, nights);
+        }
+    }
+
+    /**
+     * Whether no night of the room from startDate to endDate, both inclusive, is booked by a committed reservation.
+     */
+    public boolean isFree(String roomNumber, LocalDate startDate, LocalDate endDate) {
+        Integer booked = jdbcTemplate.queryForObject(COUNT_NIGHTS, Integer.class,
+                roomNumber, Date.valueOf(startDate), Date.valueOf(endDate));
+        return booked == null || booked == 0;
+    }
+
+    public void releaseNights(Long reservationId) {
+        jdbcTemplate.update(DELETE_NIGHTS, reservationId);
+    }
+
+    public void releaseNights(Collection<Long> reservationIds) {
+        if (!reservationIds.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE_NIGHTS, reservationIds.stream().map(id -> new Object[]{id}).toList());
+        }
+    }
+}
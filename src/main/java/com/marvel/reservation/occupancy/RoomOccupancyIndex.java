@@ -0,0 +1,142 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of the nights every room is occupied for.
+ * <p>
+ * Each room keeps its active reservations as non-overlapping epoch-day intervals
+ * (start and end inclusive) sorted by start day, so an overlap check is a single
+ * floor lookup: O(log n) in the number of reservations held for that room.
+ * The index is rebuilt from the database at startup and kept up to date on confirm and cancel. Bookings and
+ * cancellations of other instances only show up with the next rebuild, so an occupied period is a hint to be checked
+ * against the {@link RoomNightLedger}, never a final answer.
+ */
+@Component
+@Slf4j
+public class RoomOccupancyIndex {
+
+    private volatile ConcurrentMap<String, RoomTimeline> rooms = new ConcurrentHashMap<>();
+
+    public boolean isAvailable(String roomNumber, LocalDate startDate, LocalDate endDate) {
+        RoomTimeline timeline = rooms.get(roomNumber);
+        return timeline == null || timeline.isFree(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    /**
+     * Atomically checks that the room is free for the period and marks it as occupied.
+     *
+     * @return false if the period overlaps an existing reservation of the room
+     */
+    public boolean tryReserve(String roomNumber, LocalDate startDate, LocalDate endDate) {
+        return rooms.computeIfAbsent(roomNumber, key -> new RoomTimeline())
+                .tryAdd(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    public void release(String roomNumber, LocalDate startDate, LocalDate endDate) {
+        if (roomNumber == null || startDate == null || endDate == null) {
+            return;
+        }
+        RoomTimeline timeline = rooms.get(roomNumber);
+        if (timeline != null) {
+            timeline.remove(startDate.toEpochDay(), endDate.toEpochDay());
+        }
+    }
+
+    /**
+     * Replaces the content of the index with the given active reservations.
+     */
+    public void rebuild(Collection<Reservation> reservations) {
+        ConcurrentMap<String, RoomTimeline> rebuilt = new ConcurrentHashMap<>();
+        for (Reservation reservation : reservations) {
+            if (reservation.getRoomNumber() == null || reservation.getStartDate() == null || reservation.getEndDate() == null) {
+                continue;
+            }
+            boolean added = rebuilt.computeIfAbsent(reservation.getRoomNumber(), key -> new RoomTimeline())
+                    .tryAdd(reservation.getStartDate().toEpochDay(), reservation.getEndDate().toEpochDay());
+            if (!added) {
+                log.warn("Reservation {} overlaps another reservation of room {}", reservation.getId(), reservation.getRoomNumber());
+            }
+        }
+        rooms = rebuilt;
+    }
+
+    /**
+     * Replaces the occupied periods of one room with the given active reservations of that room.
+     */
+    public void replaceRoom(String roomNumber, Collection<Reservation> reservations) {
+        RoomTimeline timeline = new RoomTimeline();
+        for (Reservation reservation : reservations) {
+            timeline.tryAdd(reservation.getStartDate().toEpochDay(), reservation.getEndDate().toEpochDay());
+        }
+        rooms.put(roomNumber, timeline);
+    }
+
+    public long size() {
+        return rooms.values().stream().mapToLong(RoomTimeline::size).sum();
+    }
+
+    /**
+     * Occupied intervals of a single room keyed by start epoch day, mapped to the inclusive end epoch day.
+     */
+    private static final class RoomTimeline {
+        private final TreeMap<Long, Long> intervals = new TreeMap<>();
+        private final ReentrantLock lock = new ReentrantLock();
+
+        boolean isFree(long startDay, long endDay) {
+            lock.lock();
+            try {
+                return isFreeLocked(startDay, endDay);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean tryAdd(long startDay, long endDay) {
+            lock.lock();
+            try {
+                if (!isFreeLocked(startDay, endDay)) {
+                    return false;
+                }
+                intervals.put(startDay, endDay);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(long startDay, long endDay) {
+            lock.lock();
+            try {
+                intervals.remove(startDay, endDay);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int size() {
+            lock.lock();
+            try {
+                return intervals.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Intervals never overlap, so only the last one starting on or before endDay can collide.
+        private boolean isFreeLocked(long startDay, long endDay) {
+            Map.Entry<Long, Long> candidate = intervals.floorEntry(endDay);
+            return candidate == null || candidate.getValue() < startDay;
+        }
+    }
+}
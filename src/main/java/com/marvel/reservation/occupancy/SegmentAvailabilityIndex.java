@@ -0,0 +1,205 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.RoomSegment;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Day-by-room occupancy bitmaps grouped by {@link RoomSegment}.
+ * <p>
+ * Every room of a segment owns one bit position; every day with at least one booking owns a
+ * {@code long[]} bitmap of the occupied rooms. Finding the free rooms for a period ORs the bitmaps
+ * of the days in the period word by word and returns the rooms whose bit stayed clear,
+ * so a 30-day query over thousands of rooms touches a few thousand words and never the database.
+ * Bookings and cancellations of other instances show up when the index is rebuilt.
+ */
+@Component
+public class SegmentAvailabilityIndex {
+
+    private final Map<RoomSegment, SegmentOccupancy> segments = new EnumMap<>(RoomSegment.class);
+    private final ConcurrentMap<String, RoomSegment> roomSegments = new ConcurrentHashMap<>();
+
+    public SegmentAvailabilityIndex() {
+        for (RoomSegment segment : RoomSegment.values()) {
+            segments.put(segment, new SegmentOccupancy());
+        }
+    }
+
+    /**
+     * Registers a room of the given segment. A room keeps the segment it was registered with first.
+     */
+    public void registerRoom(String roomNumber, RoomSegment segment) {
+        RoomSegment registered = roomSegments.computeIfAbsent(roomNumber, key -> segment);
+        segments.get(registered).addRoom(roomNumber);
+    }
+
+    public void markOccupied(Reservation reservation) {
+        update(reservation, true);
+    }
+
+    public void markFree(Reservation reservation) {
+        update(reservation, false);
+    }
+
+    /**
+     * Rooms of the segment that are free on every day from startDate to endDate, both inclusive, in registration order.
+     */
+    public List<String> findAvailableRooms(RoomSegment segment, LocalDate startDate, LocalDate endDate) {
+        return segments.get(segment).findFree(startDate.toEpochDay(), endDate.toEpochDay());
+    }
+
+    /**
+     * Replaces all occupancy with the given active reservations. Registered rooms are kept, and every segment is
+     * swapped under its write lock, so a concurrent search never sees it half rebuilt. Days before today are dropped.
+     */
+    public void rebuild(Collection<Reservation> reservations) {
+        long today = LocalDate.now().toEpochDay();
+        Map<RoomSegment, List<Reservation>> bySegment = new EnumMap<>(RoomSegment.class);
+        for (Reservation reservation : reservations) {
+            if (isComplete(reservation)) {
+                registerRoom(reservation.getRoomNumber(), reservation.getRoomSegment());
+                bySegment.computeIfAbsent(roomSegments.get(reservation.getRoomNumber()), key -> new ArrayList<>()).add(reservation);
+            }
+        }
+        segments.forEach((segment, occupancy) -> occupancy.replace(bySegment.getOrDefault(segment, List.of()), today));
+    }
+
+    /**
+     * Replaces the occupancy of one room with the given active reservations of that room.
+     */
+    public void replaceRoom(String roomNumber, RoomSegment segment, Collection<Reservation> reservations) {
+        registerRoom(roomNumber, segment);
+        segments.get(roomSegments.get(roomNumber)).replaceRoom(roomNumber,
+                reservations.stream().filter(SegmentAvailabilityIndex::isComplete).toList());
+    }
+
+    private void update(Reservation reservation, boolean occupied) {
+        if (!isComplete(reservation)) {
+            return;
+        }
+        registerRoom(reservation.getRoomNumber(), reservation.getRoomSegment());
+        RoomSegment segment = roomSegments.get(reservation.getRoomNumber());
+        segments.get(segment).set(reservation.getRoomNumber(),
+                reservation.getStartDate().toEpochDay(), reservation.getEndDate().toEpochDay(), occupied);
+    }
+
+    private static boolean isComplete(Reservation reservation) {
+        return reservation.getRoomNumber() != null && reservation.getRoomSegment() != null
+                && reservation.getStartDate() != null && reservation.getEndDate() != null;
+    }
+
+    private static final class SegmentOccupancy {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final List<String> rooms = new ArrayList<>();
+        private final Map<String, Integer> slots = new HashMap<>();
+        private final Map<Long, long[]> occupiedByDay = new HashMap<>();
+
+        void addRoom(String roomNumber) {
+            lock.writeLock().lock();
+            try {
+                slots.computeIfAbsent(roomNumber, key -> {
+                    rooms.add(key);
+                    return rooms.size() - 1;
+                });
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void set(String roomNumber, long startDay, long endDay, boolean occupied) {
+            lock.writeLock().lock();
+            try {
+                int slot = slots.get(roomNumber);
+                int word = slot >>> 6;
+                long bit = 1L << slot;
+                for (long day = startDay; day <= endDay; day++) {
+                    long[] bitmap = occupiedByDay.get(day);
+                    if (bitmap == null || bitmap.length <= word) {
+                        if (!occupied) {
+                            continue;
+                        }
+                        bitmap = bitmap == null ? new long[wordCount()] : Arrays.copyOf(bitmap, wordCount());
+                        occupiedByDay.put(day, bitmap);
+                    }
+                    if (occupied) {
+                        bitmap[word] |= bit;
+                    } else {
+                        bitmap[word] &= ~bit;
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<String> findFree(long startDay, long endDay) {
+            lock.readLock().lock();
+            try {
+                long[] occupied = new long[wordCount()];
+                for (long day = startDay; day <= endDay; day++) {
+                    long[] bitmap = occupiedByDay.get(day);
+                    if (bitmap != null) {
+                        for (int i = 0; i < bitmap.length; i++) {
+                            occupied[i] |= bitmap[i];
+                        }
+                    }
+                }
+                List<String> free = new ArrayList<>();
+                for (int i = 0; i < occupied.length; i++) {
+                    long freeBits = ~occupied[i];
+                    while (freeBits != 0) {
+                        int slot = (i << 6) + Long.numberOfTrailingZeros(freeBits);
+                        if (slot >= rooms.size()) {
+                            break;
+                        }
+                        free.add(rooms.get(slot));
+                        freeBits &= freeBits - 1;
+                    }
+                }
+                return free;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        // Rooms of the reservations are registered with this segment
+        void replace(Collection<Reservation> reservations, long fromDay) {
+            lock.writeLock().lock();
+            try {
+                occupiedByDay.clear();
+                reservations.forEach(reservation -> set(reservation.getRoomNumber(),
+                        Math.max(reservation.getStartDate().toEpochDay(), fromDay), reservation.getEndDate().toEpochDay(), true));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void replaceRoom(String roomNumber, Collection<Reservation> reservations) {
+            lock.writeLock().lock();
+            try {
+                int slot = slots.get(roomNumber);
+                int word = slot >>> 6;
+                long bit = 1L << slot;
+                for (long[] bitmap : occupiedByDay.values()) {
+                    if (bitmap.length > word) {
+                        bitmap[word] &= ~bit;
+                    }
+                }
+                reservations.forEach(reservation -> set(roomNumber,
+                        reservation.getStartDate().toEpochDay(), reservation.getEndDate().toEpochDay(), true));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private int wordCount() {
+            return (rooms.size() + 63) >>> 6;
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.marvel.reservation.repository;
+
+/**
+ * Lowest and highest id of a set of reservations, both null when the set is empty.
+ */
+public interface ReservationIdRange {
+
+    Long getLowest();
+
+    Long getHighest();
+}
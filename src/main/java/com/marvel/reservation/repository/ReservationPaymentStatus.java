@@ -0,0 +1,15 @@
+package com.marvel.reservation.repository;
+
+import com.marvel.reservation.model.enums.ReservationStatus;
+
+/**
+ * The columns a payment update needs, read instead of the whole reservation.
+ */
+public interface ReservationPaymentStatus {
+
+    Long getId();
+
+    String getPaymentReference();
+
+    ReservationStatus getStatus();
+}
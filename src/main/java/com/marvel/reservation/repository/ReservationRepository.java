@@ -1,26 +1,83 @@
 package com.marvel.reservation.repository;
 
 import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.PaymentMode;
 import com.marvel.reservation.model.enums.ReservationStatus;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface ReservationRepository extends JpaRepository<Reservation, Long> {
-    Optional<Reservation> findByPaymentReference(String paymentReference);
+    // Served by the unique payment reference index
+    Optional<ReservationPaymentStatus> findPaymentStatusByPaymentReference(String paymentReference);
 
-    // Find all reservations with the given status whose createdAt timestamp is before the given cutoff.
-    @Query("SELECT r FROM Reservation r WHERE r.status = :status AND r.reservationDate   < :cutoff")
-            List<Reservation> findByStatusAndCreatedAtBefore(
+    List<ReservationPaymentStatus> findPaymentStatusByPaymentReferenceIn(Collection<String> paymentReferences);
+
+    // References unknown to the payment reference filter, among the reservations made since it was built
+    boolean existsByPaymentReferenceAndCreatedAtGreaterThanEqual(String paymentReference, Instant createdAt);
+
+    @Query("SELECT r.paymentReference FROM Reservation r WHERE r.paymentReference IN :paymentReferences AND r.createdAt >= :createdAt")
+    List<String> findPaymentReferencesCreatedSince(@Param("paymentReferences") Collection<String> paymentReferences,
+                                                   @Param("createdAt") Instant createdAt);
+
+    // Reservations that still hold their room: the occupancy indexes need nothing that ended before endDate
+    List<Reservation> findByStatusInAndEndDateGreaterThanEqual(Collection<ReservationStatus> statuses, LocalDate endDate);
+
+    List<Reservation> findByRoomNumberAndStatusInAndEndDateGreaterThanEqual(String roomNumber,
+                                                                             Collection<ReservationStatus> statuses,
+                                                                             LocalDate endDate);
+
+    List<Reservation> findByStatusAndPaymentMode(ReservationStatus status, PaymentMode paymentMode);
+
+    // Locks and returns up to limit reservations with the given status and payment mode made before the cutoff, with
+    // ids from fromId (inclusive) to toId (exclusive), read from the (status, payment_mode, reservation_date) index;
+    // the locks hold them until the transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.status = :status AND r.paymentMode = :paymentMode AND r.reservationDate < :cutoff"
+            + " AND r.id >= :fromId AND r.id < :toId")
+    List<Reservation> lockByStatusAndPaymentModeAndReservationDateBefore(
+            @Param("status") ReservationStatus status,
+            @Param("paymentMode") PaymentMode paymentMode,
+            @Param("cutoff") LocalDate cutoff,
+            @Param("fromId") long fromId,
+            @Param("toId") long toId,
+            Limit limit
+    );
+
+    // Locks and returns the reservations among ids that still have the given status and payment mode
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Reservation r WHERE r.id IN :ids AND r.status = :status AND r.paymentMode = :paymentMode")
+    List<Reservation> lockByIdInAndStatusAndPaymentMode(
+            @Param("ids") Collection<Long> ids,
             @Param("status") ReservationStatus status,
+            @Param("paymentMode") PaymentMode paymentMode
+    );
+
+    // Lowest and highest id of the same reservations; both null when there is none
+    @Query("SELECT MIN(r.id) AS lowest, MAX(r.id) AS highest FROM Reservation r"
+            + " WHERE r.status = :status AND r.paymentMode = :paymentMode AND r.reservationDate < :cutoff")
+    ReservationIdRange findIdRangeByStatusAndPaymentModeAndReservationDateBefore(
+            @Param("status") ReservationStatus status,
+            @Param("paymentMode") PaymentMode paymentMode,
             @Param("cutoff") LocalDate cutoff
     );
-}
 
+    // Changes the status only of the reservations still in the expected one and returns how many were changed
+    @Modifying
+    @Query("UPDATE Reservation r SET r.status = :to WHERE r.id IN :ids AND r.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") ReservationStatus from,
+                     @Param("to") ReservationStatus to);
+}
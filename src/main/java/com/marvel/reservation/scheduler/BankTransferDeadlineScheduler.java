@@ -0,0 +1,47 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.service.BankTransferDeadlineWheel;
+import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Cancels each pending bank transfer reservation once its payment deadline has passed, within a tick of it, so that
+ * cancellations follow the reservations through the day instead of waiting for the midnight sweep.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BankTransferDeadlineScheduler {
+
+    static final String EXPIRED_METRIC = "reservation.cancellation.expired";
+
+    private final BankTransferDeadlineWheel bankTransferDeadlineWheel;
+    private final ReservationService reservationService;
+    private final MeterRegistry meterRegistry;
+
+    @Scheduled(fixedDelayString = "${reservation.cancellation.deadline-wheel.tick:PT1S}")
+    public void cancelExpiredBankTransferReservations() {
+        Instant now = Instant.now();
+        List<Long> expired = bankTransferDeadlineWheel.advance(now);
+        if (expired.isEmpty()) {
+            return;
+        }
+        try {
+            List<Long> cancelled = reservationService.cancelExpiredBankTransferReservations(expired);
+            meterRegistry.counter(EXPIRED_METRIC).increment(cancelled.size());
+            log.info(String.format(Constants.EXPIRED_RESERVATIONS_CANCELLED, cancelled.size(), expired.size()));
+        } catch (RuntimeException e) {
+            // Due again at the next tick; should this instance stop meanwhile, the midnight sweep cancels them
+            log.warn(String.format(Constants.EXPIRED_RESERVATIONS_RETRIED, expired.size(), e.getMessage()));
+            expired.forEach(reservationId -> bankTransferDeadlineWheel.schedule(reservationId, now));
+        }
+    }
+}
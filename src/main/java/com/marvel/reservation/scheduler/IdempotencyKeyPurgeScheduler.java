@@ -0,0 +1,26 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.idempotency.IdempotencyKeyStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class IdempotencyKeyPurgeScheduler {
+    private final IdempotencyKeyStore idempotencyKeyStore;
+
+    // Expired keys are ignored when read, this only keeps the table small
+    @Scheduled(fixedDelayString = "${reservation.idempotency.purge-interval:PT10M}")
+    public void purgeExpiredIdempotencyKeys() {
+        int purged = idempotencyKeyStore.purgeExpired(Instant.now());
+        if (purged > 0) {
+            log.info(String.format(Constants.IDEMPOTENCY_KEYS_PURGED, purged));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.occupancy.OccupancyIndexInitializer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class OccupancyIndexResyncScheduler {
+    private final OccupancyIndexInitializer occupancyIndexInitializer;
+
+    // Bookings and cancellations made by other instances reach the availability search within one interval
+    @Scheduled(fixedDelayString = "${reservation.occupancy.resync-interval:PT1M}",
+            initialDelayString = "${reservation.occupancy.resync-interval:PT1M}")
+    public void resyncOccupancyIndexes() {
+        occupancyIndexInitializer.resync();
+    }
+}
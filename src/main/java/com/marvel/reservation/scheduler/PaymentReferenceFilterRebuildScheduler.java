@@ -0,0 +1,19 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.service.PaymentReferenceFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class PaymentReferenceFilterRebuildScheduler {
+    private final PaymentReferenceFilter paymentReferenceFilter;
+
+    // A fresh filter forgets the references of purged reservations and is sized for the current table
+    @Scheduled(fixedDelayString = "${reservation.payment-reference-filter.rebuild-interval:PT6H}",
+            initialDelayString = "${reservation.payment-reference-filter.rebuild-interval:PT6H}")
+    public void rebuildPaymentReferenceFilter() {
+        paymentReferenceFilter.rebuild();
+    }
+}
@@ -0,0 +1,28 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.listener.ProcessedPaymentUpdateStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+@Component
+@ConditionalOnProperty(name = "reservation.payment-updates.dedupe.persistent", havingValue = "true")
+@Slf4j
+@RequiredArgsConstructor
+public class ProcessedPaymentUpdatePurgeScheduler {
+    private final ProcessedPaymentUpdateStore processedPaymentUpdateStore;
+
+    // Expired rows are ignored when read, this only keeps the table small
+    @Scheduled(fixedDelayString = "${reservation.payment-updates.dedupe.purge-interval:PT10M}")
+    public void purgeExpiredPaymentUpdates() {
+        int purged = processedPaymentUpdateStore.purgeExpired(Instant.now());
+        if (purged > 0) {
+            log.info(String.format(Constants.PROCESSED_PAYMENT_UPDATES_PURGED, purged));
+        }
+    }
+}
@@ -1,21 +1,47 @@
 package com.marvel.reservation.scheduler;
 
+import com.marvel.reservation.config.CancellationSweepProperties;
 import com.marvel.reservation.constant.Constants;
-import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.repository.ReservationIdRange;
 import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
 
+/**
+ * Cancels the overdue bank transfer reservations every midnight, on every instance of the service. Reservations are
+ * normally cancelled at their own deadline by {@link BankTransferDeadlineScheduler}; this sweep catches the ones it
+ * missed, e.g. those of an instance that stopped before their deadline.
+ * <p>
+ * A lease in the {@code scheduler_lease} table makes exactly one instance run the sweep. With
+ * {@code reservation.cancellation.shard-size} set, the ids of the overdue reservations are split into shards of that
+ * many ids, aligned on multiples of the size so that every instance computes the same ones. Each instance then walks
+ * the shards and cancels those whose lease it gets, so the instances share the sweep.
+ */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class ReservationCancellationScheduler {
+
+    static final String SWEEP_LEASE = "overdue-bank-transfer-cancellation";
+    static final String SHARD_LEASE_INFIX = "-shard-";
+    static final String CANCELLED_METRIC = "reservation.cancellation.cancelled";
+    static final String LEASES_METRIC = "reservation.cancellation.leases";
+
     private final ReservationService reservationService;
+    private final SchedulerLeaseStore schedulerLeaseStore;
+    private final CancellationSweepProperties properties;
+    private final MeterRegistry meterRegistry;
+
     // Run every day at midnight
     @Scheduled(cron = "0 0 0 * * *")
     public void cancelOverdueBankTransferReservations() {
@@ -23,14 +49,70 @@ public class ReservationCancellationScheduler {
         // Automatically cancel the reservation, If the payment is done using a bank transfer
         // and total amount is not received 2 days after the reservation date.
         LocalDate today = LocalDate.now();
-        List<Reservation> overdueReservations = reservationService.findPendingBankTransferReservations(today);
-        if(overdueReservations.isEmpty()){
+        List<Long> cancelledReservationIds = properties.getShardSize() > 0
+                ? cancelShards(today)
+                : underLease(SWEEP_LEASE, () -> reservationService.cancelOverdueBankTransferReservations(today)).orElse(List.of());
+        if(cancelledReservationIds.isEmpty()){
             log.info(Constants.NO_OVERDUE_RESERVATION);
+        } else {
+            log.debug(String.format(Constants.CANCELLED_RESERVATION_IDS, cancelledReservationIds));
         }
-        for (Reservation reservation : overdueReservations) {
-            reservationService.cancelReservation(reservation.getId());
+        meterRegistry.counter(CANCELLED_METRIC).increment(cancelledReservationIds.size());
+        log.info(String.format(Constants.FINISHED_SCHEDULER, cancelledReservationIds.size()));
+    }
+
+    private List<Long> cancelShards(LocalDate today) {
+        List<Long> cancelled = new ArrayList<>();
+        Optional<ReservationIdRange> range = reservationService.findOverdueBankTransferIdRange(today);
+        if (range.isPresent()) {
+            long shardSize = properties.getShardSize();
+            for (long shard = Math.floorDiv(range.get().getLowest(), shardSize);
+                 shard <= Math.floorDiv(range.get().getHighest(), shardSize); shard++) {
+                long fromId = shard * shardSize;
+                underLease(SWEEP_LEASE + SHARD_LEASE_INFIX + shard,
+                        () -> reservationService.cancelOverdueBankTransferReservations(today, fromId, fromId + shardSize))
+                        .ifPresent(cancelled::addAll);
+            }
         }
-        log.info(String.format(Constants.FINISHED_SCHEDULER, overdueReservations.size()));
+        purgeExpiredShardLeases();
+        return cancelled;
+    }
 
+    // The ids move up every day, so each shard lease row is only used for a few sweeps; the expired ones are dropped
+    // to keep the table from growing. A lease still held, or released for its minimum hold, is kept.
+    private void purgeExpiredShardLeases() {
+        if (!properties.getLease().isEnabled()) {
+            return;
+        }
+        int purged = schedulerLeaseStore.purgeExpired(SWEEP_LEASE + SHARD_LEASE_INFIX, Instant.now());
+        if (purged > 0) {
+            log.info(String.format(Constants.SCHEDULER_LEASES_PURGED, purged));
+        }
+    }
+
+    // Empty when another instance holds the lease
+    private Optional<List<Long>> underLease(String name, Supplier<List<Long>> sweep) {
+        CancellationSweepProperties.Lease lease = properties.getLease();
+        if (!lease.isEnabled()) {
+            return Optional.of(sweep.get());
+        }
+        Instant lockedAt = Instant.now();
+        if (!schedulerLeaseStore.tryAcquire(name, properties.getNodeId(), lockedAt, lockedAt.plus(lease.getDuration()))) {
+            meterRegistry.counter(LEASES_METRIC, "outcome", "held-elsewhere").increment();
+            log.info(String.format(Constants.SCHEDULER_LEASE_HELD, name));
+            return Optional.empty();
+        }
+        meterRegistry.counter(LEASES_METRIC, "outcome", "acquired").increment();
+        try {
+            List<Long> cancelled = sweep.get();
+            Instant heldUntil = lockedAt.plus(lease.getMinimumHold());
+            Instant now = Instant.now();
+            schedulerLeaseStore.release(name, properties.getNodeId(), heldUntil.isAfter(now) ? heldUntil : now);
+            return Optional.of(cancelled);
+        } catch (RuntimeException e) {
+            // Let the next run, on any instance, try again right away
+            schedulerLeaseStore.release(name, properties.getNodeId(), Instant.now());
+            throw e;
+        }
     }
 }
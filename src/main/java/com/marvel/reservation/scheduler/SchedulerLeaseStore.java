@@ -0,0 +1,51 @@
+package com.marvel.reservation.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+/**
+ * Reads and writes the {@code scheduler_lease} table.
+ * <p>
+ * A lease is taken by a conditional UPDATE of its expired row, or by inserting the row the first time; of several
+ * instances trying at once, the database lets exactly one UPDATE or INSERT succeed.
+ */
+@Component
+@RequiredArgsConstructor
+public class SchedulerLeaseStore {
+
+    private static final String TAKE_EXPIRED = "UPDATE scheduler_lease SET owner = ?, locked_at = ?, lease_until = ? WHERE name = ? AND lease_until <= ?";
+    private static final String INSERT_LEASE = "INSERT INTO scheduler_lease (name, owner, locked_at, lease_until) VALUES (?, ?, ?, ?)";
+    private static final String RELEASE = "UPDATE scheduler_lease SET lease_until = ? WHERE name = ? AND owner = ?";
+    private static final String PURGE_EXPIRED = "DELETE FROM scheduler_lease WHERE name LIKE ? AND lease_until < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public boolean tryAcquire(String name, String owner, Instant now, Instant leaseUntil) {
+        if (jdbcTemplate.update(TAKE_EXPIRED, owner, Timestamp.from(now), Timestamp.from(leaseUntil), name, Timestamp.from(now)) == 1) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(INSERT_LEASE, name, owner, Timestamp.from(now), Timestamp.from(leaseUntil)) == 1;
+        } catch (DuplicateKeyException e) {
+            // Held by another instance
+            return false;
+        }
+    }
+
+    public void release(String name, String owner, Instant leaseUntil) {
+        jdbcTemplate.update(RELEASE, Timestamp.from(leaseUntil), name, owner);
+    }
+
+    /**
+     * Deletes the leases whose name starts with the prefix and that expired before the given time. An instance taking
+     * one of them meanwhile inserts it again.
+     */
+    public int purgeExpired(String namePrefix, Instant now) {
+        return jdbcTemplate.update(PURGE_EXPIRED, namePrefix + "%", Timestamp.from(now));
+    }
+}
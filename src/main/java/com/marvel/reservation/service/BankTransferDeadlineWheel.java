@@ -0,0 +1,262 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.config.CancellationSweepProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Payment deadlines of the pending bank transfer reservations, in a hierarchical timer wheel.
+ * <p>
+ * Four levels of 64 slots each cover 64, 64², 64³ and 64⁴ ticks, i.e. about 194 days at the default tick of one
+ * second. A deadline goes into the lowest level whose range reaches it. When a slot of a higher level comes due its
+ * reservations move down a level, so scheduling, cancelling and expiring are constant time whatever the number of
+ * pending reservations. A reservation expires at the first tick at or after its deadline, never before.
+ * <p>
+ * The wheel is built from the reservation table at startup. Reservations are added when they are saved and removed
+ * when they are confirmed or cancelled. It only lives in memory, so each instance of the service expires the
+ * reservations it made or loaded; the midnight sweep catches the ones of an instance that stopped.
+ */
+@Component
+@Slf4j
+public class BankTransferDeadlineWheel implements SmartInitializingSingleton {
+
+    static final String SCHEDULED_METRIC = "reservation.cancellation.deadline-wheel.scheduled";
+    // A bank transfer must be received within two days of the reservation
+    public static final Duration PAYMENT_PERIOD = Duration.ofDays(2);
+
+    private static final String SELECT_PENDING = "SELECT id, created_at, reservation_date FROM reservation"
+            + " WHERE status = 'PENDING_PAYMENT' AND payment_mode = 'BANK_TRANSFER'";
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    // Bucket of the reservations whose deadline had already passed when they were scheduled
+    private static final int DUE = LEVELS * SLOTS;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long tickMillis;
+    // Guards the buckets, the entries and the current tick; a lock rather than synchronized, like the other shared
+    // structures, so that callers on virtual threads never pin their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    // Heads of the doubly linked lists of the slots, level by level, then the due bucket
+    private final Entry[] buckets = new Entry[DUE + 1];
+    private final Map<Long, Entry> entries = new HashMap<>();
+    // Last tick whose slot has expired
+    private long currentTick;
+
+    public BankTransferDeadlineWheel(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                     CancellationSweepProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = properties.getDeadlineWheel().isEnabled();
+        this.tickMillis = properties.getDeadlineWheel().getTick().toMillis();
+        this.currentTick = Math.floorDiv(System.currentTimeMillis(), tickMillis);
+        Gauge.builder(SCHEDULED_METRIC, this, BankTransferDeadlineWheel::size)
+                .description("Pending bank transfer reservations waiting for their payment deadline")
+                .register(meterRegistry);
+    }
+
+    /**
+     * End of the payment period of a reservation. Reservations without a creation time get the deadline the midnight
+     * sweep applies, the start of the third day after the reservation date.
+     */
+    public static Instant paymentDeadline(Instant createdAt, LocalDate reservationDate) {
+        if (createdAt != null) {
+            return createdAt.plus(PAYMENT_PERIOD);
+        }
+        return reservationDate.plusDays(PAYMENT_PERIOD.toDays() + 1).atStartOfDay(ZoneId.systemDefault()).toInstant();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * Schedules every pending bank transfer of the reservation table. Reservations saved meanwhile are scheduled by
+     * their writer; one confirmed meanwhile may be scheduled again, and its expiry then finds it no longer pending.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        int[] scheduled = {0};
+        jdbcTemplate.query(SELECT_PENDING, (RowCallbackHandler) resultSet -> {
+            Timestamp createdAt = resultSet.getTimestamp("created_at");
+            schedule(resultSet.getLong("id"), paymentDeadline(createdAt == null ? null : createdAt.toInstant(),
+                    resultSet.getDate("reservation_date").toLocalDate()));
+            scheduled[0]++;
+        });
+        log.info("Payment deadline wheel built with {} pending bank transfer reservations", scheduled[0]);
+    }
+
+    /**
+     * Schedules the expiry of a reservation, replacing the deadline it had.
+     */
+    public void schedule(long reservationId, Instant deadline) {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            remove(entries.get(reservationId));
+            Entry entry = new Entry(reservationId, Math.ceilDiv(deadline.toEpochMilli(), tickMillis));
+            entries.put(reservationId, entry);
+            place(entry, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(long reservationId) {
+        lock.lock();
+        try {
+            remove(entries.get(reservationId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(Collection<Long> reservationIds) {
+        lock.lock();
+        try {
+            reservationIds.forEach(reservationId -> remove(entries.get(reservationId)));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Moves the wheel to the given time and returns the reservations whose deadline has passed since the last call.
+     */
+    public List<Long> advance(Instant now) {
+        List<Long> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            drain(DUE, expired);
+            long targetTick = Math.floorDiv(now.toEpochMilli(), tickMillis);
+            while (currentTick < targetTick) {
+                if (entries.isEmpty()) {
+                    currentTick = targetTick;
+                    break;
+                }
+                currentTick++;
+                // Higher levels first, so that reservations moved down a level into a slot due this tick move on again
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                        cascade(level * SLOTS + slot(currentTick, level));
+                    }
+                }
+                drain(slot(currentTick, 0), expired);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return expired;
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+
+    // Into the lowest level whose range reaches the deadline; while cascading, a deadline of the current tick goes
+    // into the level 0 slot about to expire
+    private void place(Entry entry, boolean cascading) {
+        long delta = entry.deadlineTick - currentTick;
+        if (delta < 0 || (delta == 0 && !cascading)) {
+            link(entry, DUE);
+            return;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        // Beyond the range of the top level: parked in its last slot and placed again when that slot comes due
+        long tick = Math.min(entry.deadlineTick, currentTick + (1L << (SLOT_BITS * LEVELS)) - 1);
+        link(entry, level * SLOTS + slot(tick, level));
+    }
+
+    private void cascade(int bucket) {
+        Entry entry = buckets[bucket];
+        buckets[bucket] = null;
+        while (entry != null) {
+            Entry next = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            place(entry, true);
+            entry = next;
+        }
+    }
+
+    private void drain(int bucket, List<Long> expired) {
+        Entry entry = buckets[bucket];
+        buckets[bucket] = null;
+        while (entry != null) {
+            entries.remove(entry.reservationId);
+            expired.add(entry.reservationId);
+            entry = entry.next;
+        }
+    }
+
+    private void link(Entry entry, int bucket) {
+        entry.bucket = bucket;
+        entry.next = buckets[bucket];
+        if (entry.next != null) {
+            entry.next.prev = entry;
+        }
+        buckets[bucket] = entry;
+    }
+
+    private void remove(Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        entries.remove(entry.reservationId);
+        if (entry.prev != null) {
+            entry.prev.next = entry.next;
+        } else {
+            buckets[entry.bucket] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.prev = entry.prev;
+        }
+    }
+
+    private static final class Entry {
+        private final long reservationId;
+        private final long deadlineTick;
+        private int bucket;
+        private Entry prev;
+        private Entry next;
+
+        Entry(long reservationId, long deadlineTick) {
+            this.reservationId = reservationId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -1,45 +1,148 @@
 package com.marvel.reservation.service;
 
+import com.marvel.reservation.api.model.PaymentStatusResponse;
+import com.marvel.reservation.api.model.PaymentStatusRetrievalRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.marvel.reservation.config.CreditCardPaymentClientConfig;
 import com.marvel.reservation.constant.Constants;
-import com.marvel.reservation.dto.CreditCardPaymentRequest;
-import com.marvel.reservation.dto.CreditCardPaymentResponse;
+import com.marvel.reservation.exception.PaymentServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class CreditCardPaymentServiceImpl implements CreditCardPaymentService {
-    private final String CARD_STATUS = "CONFIRMED";
+    static final String REJECTED_METRIC = "credit.card.payment.rejected";
+    static final String LOOKUP_METRIC = "credit.card.payment.lookups";
 
     private final RestTemplate restTemplate;
+    private final CircuitBreaker creditCardCircuitBreaker;
+    private final Bulkhead creditCardBulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, String> creditCardPaymentStatusCache;
+    private final PaymentStatusBatcher paymentStatusBatcher;
+    // Remote lookups in flight per payment reference, shared by concurrent callers of the same reference
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlightLookups = new ConcurrentHashMap<>();
 
     @Value("${credit.card.payment.service.url:http://localhost:8081/api/v1/payment-status}")
     private String paymentStatusUrl;
 
     @Override
     public boolean isPaymentConfirmed(String paymentReference) {
-        // In a real application, I would use the OpenAPI spec to generate a client
-        // and make a proper request. For this assignment, I will simulate the request
-        // based on the provided spec.
-        // The spec suggests a POST request to /payment-status with a request body
+        // Retries with the same reference are answered from the cache: confirmed statuses for a long time,
+        // other statuses briefly. Failed calls return no status and are not cached. The remote call is not made
+        // inside a cache computation, which would block other references hashed to the same bin meanwhile
+        String status = creditCardPaymentStatusCache.getIfPresent(paymentReference);
+        if (status == null) {
+            status = lookUpOnce(paymentReference);
+        } else {
+            meterRegistry.counter(LOOKUP_METRIC, "result", "cached").increment();
+        }
+        return CreditCardPaymentClientConfig.CONFIRMED_STATUS.equalsIgnoreCase(status);
+    }
+
+    // Single flight: the first caller of a reference makes the remote call, concurrent callers wait for its result
+    private String lookUpOnce(String paymentReference) {
+        CompletableFuture<String> lookup = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = inFlightLookups.putIfAbsent(paymentReference, lookup);
+        if (inFlight != null) {
+            meterRegistry.counter(LOOKUP_METRIC, "result", "coalesced").increment();
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
 
-        CreditCardPaymentRequest request = new CreditCardPaymentRequest(paymentReference);
+        try {
+            // A flight that ended just before this one started has already cached the status; asMap() keeps
+            // this second look out of the hit/miss stats
+            String status = creditCardPaymentStatusCache.asMap().get(paymentReference);
+            if (status != null) {
+                meterRegistry.counter(LOOKUP_METRIC, "result", "cached").increment();
+                lookup.complete(status);
+                return status;
+            }
+            meterRegistry.counter(LOOKUP_METRIC, "result", "remote").increment();
+            status = fetchPaymentStatus(paymentReference);
+            if (status != null) {
+                // Cached before the flight ends, so later callers find it
+                creditCardPaymentStatusCache.put(paymentReference, status);
+            }
+            lookup.complete(status);
+            return status;
+        } catch (RuntimeException e) {
+            lookup.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLookups.remove(paymentReference, lookup);
+        }
+    }
+
+    private String fetchPaymentStatus(String paymentReference) {
+        // POST /payment-status with the request and response models generated from creditcardpayment_api.yaml,
+        // or one POST /payment-status/batch for several references in batching mode.
+        // The pooled client bounds the call with connect, read and total deadlines, see CreditCardPaymentClientConfig
+        Supplier<String> guardedCall;
+        if (paymentStatusBatcher.isEnabled()) {
+            // Batches already funnel the lookups into few remote calls, the bulkhead would only cap the batch size
+            guardedCall = CircuitBreaker.decorateSupplier(creditCardCircuitBreaker,
+                    () -> paymentStatusBatcher.lookUp(paymentReference));
+        } else {
+            PaymentStatusRetrievalRequest request = new PaymentStatusRetrievalRequest(paymentReference);
+            Supplier<String> call = () -> {
+                PaymentStatusResponse response = restTemplate.postForObject(
+                        paymentStatusUrl,
+                        request,
+                        PaymentStatusResponse.class
+                );
+                return response != null ? response.getStatus() : null;
+            };
+            // The bulkhead is outside the breaker, so its rejections are not counted as failures of the card service
+            guardedCall = Bulkhead.decorateSupplier(creditCardBulkhead, CircuitBreaker.decorateSupplier(creditCardCircuitBreaker, call));
+        }
 
         try {
-            CreditCardPaymentResponse response = restTemplate.postForObject(
-                    paymentStatusUrl,
-                    request,
-                    CreditCardPaymentResponse.class
-            );
-            return response != null && CARD_STATUS.equalsIgnoreCase(response.getStatus());
+            return guardedCall.get();
+        } catch (CallNotPermittedException e) {
+            meterRegistry.counter(REJECTED_METRIC, "reason", "circuit-open").increment();
+            throw new PaymentServiceUnavailableException(Constants.CARD_SERVICE_CIRCUIT_OPEN);
+        } catch (BulkheadFullException e) {
+            meterRegistry.counter(REJECTED_METRIC, "reason", "bulkhead-full").increment();
+            throw new PaymentServiceUnavailableException(Constants.CARD_SERVICE_BUSY);
+        } catch (HttpClientErrorException e) {
+            // The card service answered, e.g. that it does not know the reference: the payment is not confirmed
+            log.error(String.format(Constants.CARD_PAYMENT_EXCEPTION, e.getMessage()));
+            return null;
+        } catch (RestClientException | HttpMessageConversionException | CompletionException e) {
+            // No usable answer: a timeout, no connection, a server error, a request or response cut off, or a batch
+            // that did not complete within the caller timeout. The payment may well be confirmed, so this is an
+            // outage to retry, not a rejection
+            log.error(String.format(Constants.CARD_PAYMENT_EXCEPTION, e.getMessage()));
+            meterRegistry.counter(REJECTED_METRIC, "reason", "unreachable").increment();
+            throw new PaymentServiceUnavailableException(Constants.CARD_SERVICE_UNREACHABLE);
         } catch (Exception e) {
-            // Log the error and assume failure or throw a custom exception
-            log.error(String.format(Constants.CARD_PAYMENT_EXCEPTION,e.getMessage()));
-            return false;
+            // Log the error and assume failure
+            log.error(String.format(Constants.CARD_PAYMENT_EXCEPTION, e.getMessage()));
+            return null;
         }
     }
 }
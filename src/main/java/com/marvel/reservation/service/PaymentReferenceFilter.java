@@ -0,0 +1,242 @@
+package com.marvel.reservation.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloom filter of the payment references of all reservations, asked before a bank transfer update is looked up.
+ * <p>
+ * Much of the bank transfer feed belongs to other systems. When the filter answers {@code false} no reservation made
+ * before its last build, nor by this instance since, has the reference; {@code true} may be a false positive, which
+ * only costs the query it would have run anyway. The filter lives in the memory of each instance, so a reference it
+ * does not know may still belong to a reservation another instance made since the build, see
+ * {@link #notCreatedBefore(String)}.
+ * <p>
+ * Cancelled and purged reservations stay in the filter and the table keeps growing, so the filter is rebuilt on a
+ * schedule, sized for twice the current number of references, to keep the false-positive rate near
+ * {@code false-positive-probability}. Until the first build the filter answers {@code true} for everything.
+ */
+@Component
+@Slf4j
+public class PaymentReferenceFilter implements SmartInitializingSingleton {
+
+    static final String SKIPPED_METRIC = "reservation.payment-reference-filter.skipped";
+    static final String FALSE_POSITIVES_METRIC = "reservation.payment-reference-filter.false-positives";
+    static final String EXPECTED_FALSE_POSITIVE_RATE_METRIC = "reservation.payment-reference-filter.expected-false-positive-rate";
+    static final String REFERENCES_METRIC = "reservation.payment-reference-filter.references";
+    static final String RECENT_MATCHES_METRIC = "reservation.payment-reference-filter.recent-matches";
+    // Longest time between the creation time of a reservation and its commit, clock skew between instances included
+    static final Duration CREATION_LAG = Duration.ofMinutes(5);
+
+    private static final String COUNT_REFERENCES = "SELECT COUNT(*) FROM reservation WHERE payment_reference IS NOT NULL";
+    private static final String SELECT_REFERENCES = "SELECT payment_reference FROM reservation WHERE payment_reference IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final long expectedReferences;
+    private final double falsePositiveProbability;
+    private final Counter skipped;
+    private final Counter falsePositives;
+    private final Counter recentMatches;
+    // A rebuild reads the whole table; virtual threads waiting for it must not pin their carrier
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    // Null until the first build
+    private volatile Bits current;
+    // The filter being rebuilt; references saved meanwhile are added to both
+    private volatile Bits building;
+
+    public PaymentReferenceFilter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry,
+                                  @Value("${reservation.payment-reference-filter.enabled:true}") boolean enabled,
+                                  @Value("${reservation.payment-reference-filter.expected-references:1000000}") long expectedReferences,
+                                  @Value("${reservation.payment-reference-filter.false-positive-probability:0.01}") double falsePositiveProbability) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.expectedReferences = expectedReferences;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.skipped = Counter.builder(SKIPPED_METRIC)
+                .description("Bank transfer lookups limited to the reservations made since the filter was built")
+                .register(meterRegistry);
+        this.falsePositives = Counter.builder(FALSE_POSITIVES_METRIC)
+                .description("Payment references let through by the filter but not found in the database")
+                .register(meterRegistry);
+        this.recentMatches = Counter.builder(RECENT_MATCHES_METRIC)
+                .description("Payment references unknown to the filter but found among the reservations made since its build")
+                .register(meterRegistry);
+        Gauge.builder(EXPECTED_FALSE_POSITIVE_RATE_METRIC, this, filter -> filter.current == null ? 1.0 : filter.current.falsePositiveRate())
+                .description("False-positive rate of the filter at its current fill")
+                .register(meterRegistry);
+        Gauge.builder(REFERENCES_METRIC, this, filter -> filter.current == null ? 0 : filter.current.references.get())
+                .description("Payment references added to the filter since its last build")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        rebuild();
+    }
+
+    /**
+     * False when no reservation has the reference; true when one may have it.
+     */
+    public boolean mightContain(String paymentReference) {
+        return notCreatedBefore(paymentReference) == null;
+    }
+
+    /**
+     * Null when a reservation may have the reference. Otherwise no reservation with it was made before the returned
+     * instant, and only the ones made since, e.g. by another instance, still have to be looked up.
+     */
+    public Instant notCreatedBefore(String paymentReference) {
+        Bits bits = current;
+        if (!enabled || bits == null || paymentReference == null || bits.mightContain(paymentReference)) {
+            return null;
+        }
+        skipped.increment();
+        return bits.coveredUntil;
+    }
+
+    public void add(String paymentReference) {
+        if (!enabled || paymentReference == null) {
+            return;
+        }
+        // The filter being built first: once a rebuild has ended, current is the rebuilt one
+        Bits rebuilding = building;
+        if (rebuilding != null) {
+            rebuilding.add(paymentReference);
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(paymentReference);
+        }
+    }
+
+    /**
+     * Records references the filter did not know that a reservation made since its build has.
+     */
+    public void recordRecentMatches(int count) {
+        if (count > 0) {
+            recentMatches.increment(count);
+        }
+    }
+
+    /**
+     * Records references that passed the filter but have no reservation.
+     */
+    public void recordFalsePositives(int count) {
+        if (count > 0) {
+            falsePositives.increment(count);
+        }
+    }
+
+    /**
+     * Replaces the filter with one built from the reservation table. References saved while it is read are kept.
+     */
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        rebuildLock.lock();
+        try {
+            Long references = jdbcTemplate.queryForObject(COUNT_REFERENCES, Long.class);
+            // Reservations made before then were committed when the read starts, on every instance
+            Instant coveredUntil = Instant.now().minus(CREATION_LAG);
+            Bits rebuilt = new Bits(Math.max(expectedReferences, 2 * (references == null ? 0 : references)),
+                    falsePositiveProbability, coveredUntil);
+            // Set before the table is read, so a reservation committed after the read started is added by its writer
+            building = rebuilt;
+            try {
+                jdbcTemplate.query(SELECT_REFERENCES, (RowCallbackHandler) resultSet -> rebuilt.add(resultSet.getString(1)));
+                current = rebuilt;
+            } finally {
+                building = null;
+            }
+            log.info("Payment reference filter built with {} references, {} bits and {} hash functions",
+                    references, rebuilt.bitCount, rebuilt.hashFunctions);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private static final class Bits {
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashFunctions;
+        // Every reservation made before this instant was in the table when it was read
+        private final Instant coveredUntil;
+        private final AtomicLong bitsSet = new AtomicLong();
+        private final AtomicLong references = new AtomicLong();
+
+        Bits(long expectedReferences, double falsePositiveProbability, Instant coveredUntil) {
+            long n = Math.max(expectedReferences, 1);
+            // Optimal size and number of hash functions for n references at the given probability
+            long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8);
+            this.words = new AtomicLongArray(words);
+            this.bitCount = (long) words << 6;
+            this.hashFunctions = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+            this.coveredUntil = coveredUntil;
+        }
+
+        void add(String paymentReference) {
+            long hash1 = hash(paymentReference);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long previous = words.getAndUpdate(word, value -> value | mask);
+                if ((previous & mask) == 0) {
+                    bitsSet.incrementAndGet();
+                }
+            }
+            references.incrementAndGet();
+        }
+
+        boolean mightContain(String paymentReference) {
+            long hash1 = hash(paymentReference);
+            long hash2 = mix(hash1) | 1;
+            for (int i = 0; i < hashFunctions; i++) {
+                long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Probability that all k bits of an unknown reference are set
+        double falsePositiveRate() {
+            return Math.pow((double) bitsSet.get() / bitCount, hashFunctions);
+        }
+
+        // 64-bit FNV-1a over the characters, then mixed, so that similar references spread over the whole filter
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return mix(hash);
+        }
+
+        // Finalizer of SplitMix64
+        private static long mix(long value) {
+            value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+            value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+            return value ^ (value >>> 31);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.api.model.PaymentStatusBatchItem;
+import com.marvel.reservation.api.model.PaymentStatusBatchRequest;
+import com.marvel.reservation.api.model.PaymentStatusBatchResponse;
+import com.marvel.reservation.config.CreditCardPaymentClientProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro-batching of payment status lookups. A collector thread takes the queued lookups for up to
+ * {@code batch.max-wait} or {@code batch.max-size} references, sends them as one {@code POST /payment-status/batch}
+ * and completes the future of every caller with the status of its reference. Batches are sent concurrently,
+ * so a slow batch does not hold back the collection of the next one.
+ */
+@Component
+@Slf4j
+public class PaymentStatusBatcher implements SmartLifecycle {
+
+    static final String BATCH_SIZE_METRIC = "credit.card.payment.batch.size";
+
+    private final RestTemplate restTemplate;
+    private final CreditCardPaymentClientProperties.BatchSettings settings;
+    private final Duration callerTimeout;
+    private final String batchUrl;
+    private final DistributionSummary batchSizes;
+    private final BlockingQueue<PendingLookup> pendingLookups = new LinkedBlockingQueue<>();
+    private ExecutorService batchSenders;
+    private volatile Thread collector;
+
+    public PaymentStatusBatcher(RestTemplate restTemplate, CreditCardPaymentClientProperties properties, MeterRegistry meterRegistry,
+                                @Value("${credit.card.payment.service.batch-url:http://localhost:8081/api/v1/payment-status/batch}") String batchUrl) {
+        this.restTemplate = restTemplate;
+        this.settings = properties.getBatch();
+        // The batch call itself is bounded by the client's total deadline; the caller also waits for the collection
+        this.callerTimeout = properties.getTotalDeadline().plus(settings.getMaxWait()).plusMillis(100);
+        this.batchUrl = batchUrl;
+        this.batchSizes = DistributionSummary.builder(BATCH_SIZE_METRIC)
+                .description("References per payment status batch request")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return settings.isEnabled();
+    }
+
+    /**
+     * Status of the payment, or null when the card service does not know the reference.
+     * Throws the failure of the batch request the lookup was sent with.
+     */
+    public String lookUp(String paymentReference) {
+        PendingLookup lookup = new PendingLookup(paymentReference, new CompletableFuture<>());
+        pendingLookups.add(lookup);
+        try {
+            return lookup.status().orTimeout(callerTimeout.toMillis(), TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void collect() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<PendingLookup> batch = new ArrayList<>(settings.getMaxSize());
+            try {
+                batch.add(pendingLookups.take());
+                long deadline = System.nanoTime() + settings.getMaxWait().toNanos();
+                while (batch.size() < settings.getMaxSize()) {
+                    PendingLookup next = pendingLookups.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batchSenders.execute(() -> send(batch));
+            } catch (InterruptedException e) {
+                // Stopped while collecting: the lookups taken so far are not sent
+                abandon(batch);
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void send(List<PendingLookup> batch) {
+        Map<String, List<CompletableFuture<String>>> callersByReference = new HashMap<>();
+        batch.forEach(lookup -> callersByReference
+                .computeIfAbsent(lookup.paymentReference(), reference -> new ArrayList<>()).add(lookup.status()));
+        batchSizes.record(callersByReference.size());
+        try {
+            PaymentStatusBatchResponse response = restTemplate.postForObject(batchUrl,
+                    new PaymentStatusBatchRequest(new ArrayList<>(callersByReference.keySet())), PaymentStatusBatchResponse.class);
+            Map<String, String> statuses = new HashMap<>();
+            if (response != null && response.getPayments() != null) {
+                for (PaymentStatusBatchItem item : response.getPayments()) {
+                    statuses.put(item.getPaymentReference(), item.getStatus());
+                }
+            }
+            // References missing from the answer are unknown to the card service
+            callersByReference.forEach((reference, callers) -> callers.forEach(caller -> caller.complete(statuses.get(reference))));
+        } catch (RuntimeException e) {
+            callersByReference.values().forEach(callers -> callers.forEach(caller -> caller.completeExceptionally(e)));
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        batchSenders = Executors.newVirtualThreadPerTaskExecutor();
+        collector = Thread.ofPlatform().name("payment-status-batcher").daemon().start(this::collect);
+        log.info("Payment status lookups are batched by up to {} references or {}", settings.getMaxSize(), settings.getMaxWait());
+    }
+
+    @Override
+    public void stop() {
+        Thread stopping = collector;
+        if (stopping == null) {
+            return;
+        }
+        collector = null;
+        stopping.interrupt();
+        try {
+            // The collector hands no batch to the senders once they are closed
+            stopping.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        batchSenders.close();
+        List<PendingLookup> abandoned = new ArrayList<>();
+        pendingLookups.drainTo(abandoned);
+        abandon(abandoned);
+    }
+
+    private static void abandon(List<PendingLookup> lookups) {
+        lookups.forEach(lookup -> lookup.status().completeExceptionally(new IllegalStateException("Payment status batcher stopped")));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return collector != null;
+    }
+
+    private record PendingLookup(String paymentReference, CompletableFuture<String> status) {
+    }
+}
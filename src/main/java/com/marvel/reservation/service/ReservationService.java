@@ -1,15 +1,28 @@
 package com.marvel.reservation.service;
 
+import com.marvel.reservation.dto.BatchReservationResponse;
 import com.marvel.reservation.dto.ReservationRequest;
 import com.marvel.reservation.dto.ReservationResponse;
-import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.dto.RoomAvailabilityResponse;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.repository.ReservationIdRange;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ReservationService {
     ReservationResponse confirmReservation(ReservationRequest request);
+    ReservationResponse acceptReservation(ReservationRequest request);
+    ReservationResponse getReservation(Long reservationId);
+    BatchReservationResponse confirmReservations(List<ReservationRequest> requests);
     void confirmBankTransferPayment(String transactionDescription);
-    List<Reservation> findPendingBankTransferReservations(LocalDate date);
+    int confirmBankTransferPayments(List<String> transactionDescriptions);
+    List<Long> cancelOverdueBankTransferReservations(LocalDate date);
+    List<Long> cancelOverdueBankTransferReservations(LocalDate date, long fromId, long toId);
+    Optional<ReservationIdRange> findOverdueBankTransferIdRange(LocalDate date);
+    List<Long> cancelExpiredBankTransferReservations(Collection<Long> reservationIds);
     void cancelReservation(Long reservationId);
+    RoomAvailabilityResponse findAvailableRooms(RoomSegment roomSegment, LocalDate startDate, LocalDate endDate);
 }
@@ -1,47 +1,330 @@
 package com.marvel.reservation.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.config.CreditCardVerificationRetryProperties;
 import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.dto.BatchReservationResponse;
+import com.marvel.reservation.dto.BatchReservationResult;
 import com.marvel.reservation.dto.ReservationRequest;
 import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.dto.RoomAvailabilityResponse;
 import com.marvel.reservation.exception.PaymentException;
+import com.marvel.reservation.exception.PaymentServiceUnavailableException;
+import com.marvel.reservation.exception.ReservationConflictException;
+import com.marvel.reservation.exception.ReservationNotFoundException;
 import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.mapper.ReservationMapper;
 import com.marvel.reservation.model.Reservation;
 import com.marvel.reservation.model.enums.PaymentMode;
 import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.OccupancyIndexInitializer;
+import com.marvel.reservation.occupancy.RoomNightLedger;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.occupancy.SegmentAvailabilityIndex;
+import com.marvel.reservation.repository.ReservationIdRange;
+import com.marvel.reservation.repository.ReservationPaymentStatus;
 import com.marvel.reservation.repository.ReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ReservationServiceImpl implements ReservationService {
 
+    private static final String WRITE_TRANSACTION_METRIC = "reservation.write.transaction";
+    private static final String OPERATION_CONFIRM = "confirm";
+    private static final String OPERATION_CONFIRM_BATCH = "confirm-batch";
+    private static final String OPERATION_ACCEPT = "accept";
+    private static final String OPERATION_VERIFY = "verify";
+    private static final String OPERATION_CONFIRM_BANK = "confirm-bank-transfer";
+    private static final String OPERATION_CONFIRM_BANK_BATCH = "confirm-bank-transfer-batch";
+    private static final String OPERATION_CANCEL_OVERDUE = "cancel-overdue";
+    private static final String OPERATION_CANCEL_EXPIRED = "cancel-expired";
+    private static final String BANK_TRANSFER_UPDATE_METRIC = "reservation.bank-transfer.updates";
+    private static final String STALE_OCCUPANCY_METRIC = "reservation.occupancy.stale";
+    // Payment references per IN query, well below the bind parameter limits of the usual databases
+    private static final int PAYMENT_REFERENCE_CHUNK_SIZE = 1000;
+    // Overdue reservations cancelled per transaction, which bounds the rows it locks and the ids it binds
+    private static final int CANCELLATION_CHUNK_SIZE = 1000;
+
     private final ReservationRepository reservationRepository;
     private final CreditCardPaymentService creditCardPaymentService;
-    private final ObjectMapper objectMapper;
+    private final ReservationMapper reservationMapper;
+    private final RoomOccupancyIndex roomOccupancyIndex;
+    private final SegmentAvailabilityIndex segmentAvailabilityIndex;
+    private final RoomNightLedger roomNightLedger;
+    private final OccupancyIndexInitializer occupancyIndexInitializer;
+    private final PaymentReferenceFilter paymentReferenceFilter;
+    private final BankTransferDeadlineWheel bankTransferDeadlineWheel;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final CreditCardVerificationRetryProperties creditCardVerificationRetryProperties;
+    @Qualifier("creditCardVerificationExecutor")
+    private final TaskExecutor creditCardVerificationExecutor;
 
     @Override
-    @Transactional
     public ReservationResponse confirmReservation(ReservationRequest request) {
-        Reservation reservation;
+        // Validation and the remote payment check run without a transaction, so no connection is held meanwhile
+        Reservation reservation = reservationMapper.toEntity(request);
+        reservation.setStatus(resolveStatus(request));
+        reserveRoom(reservation);
+
+        return reservationMapper.toResponse(persist(reservation, OPERATION_CONFIRM));
+    }
+
+    @Override
+    public ReservationResponse acceptReservation(ReservationRequest request) {
+        if (request.getPaymentMode() != PaymentMode.CREDIT_CARD) {
+            return confirmReservation(request);
+        }
+        if (request.getPaymentReference() == null || request.getPaymentReference().isBlank()) {
+            throw new ValidationException(Constants.PAYMENT_REFERENCE_REQUIRED_CC);
+        }
+
+        // Hold the room right away; the card processor is asked in the background
+        Reservation reservation = reservationMapper.toEntity(request);
+        reservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        reserveRoom(reservation);
+        Reservation savedReservation = persist(reservation, OPERATION_ACCEPT);
+
+        submitCreditCardVerification(savedReservation.getId(), savedReservation.getPaymentReference(), 1);
+        return reservationMapper.toResponse(savedReservation);
+    }
+
+    @Override
+    public ReservationResponse getReservation(Long reservationId) {
+        return reservationRepository.findById(reservationId)
+                .map(reservationMapper::toResponse)
+                .orElseThrow(() -> new ReservationNotFoundException(String.format(Constants.RESERVATION_ID_NOT_FOUND, reservationId)));
+    }
+
+    /**
+     * Resumes the card checks of reservations accepted asynchronously before the last shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeCreditCardVerifications() {
+        reservationRepository.findByStatusAndPaymentMode(ReservationStatus.PENDING_PAYMENT, PaymentMode.CREDIT_CARD)
+                .forEach(reservation -> submitCreditCardVerification(reservation.getId(), reservation.getPaymentReference(), 1));
+    }
+
+    private void submitCreditCardVerification(Long reservationId, String paymentReference, int attempt) {
+        try {
+            creditCardVerificationExecutor.execute(() -> verifyCreditCardPayment(reservationId, paymentReference, attempt));
+        } catch (TaskRejectedException e) {
+            // Saturated: the reservation stays pending and the check is submitted again after a backoff
+            deferCreditCardVerification(reservationId, paymentReference, attempt, e.getMessage());
+        }
+    }
+
+    // Runs on the verification executor: the remote call first, then a short transaction for the outcome
+    private void verifyCreditCardPayment(Long reservationId, String paymentReference, int attempt) {
+        boolean confirmed;
+        try {
+            confirmed = creditCardPaymentService.isPaymentConfirmed(paymentReference);
+        } catch (PaymentServiceUnavailableException e) {
+            // The card service was not asked: keep the room held and ask again later
+            deferCreditCardVerification(reservationId, paymentReference, attempt, e.getMessage());
+            return;
+        } catch (RuntimeException e) {
+            log.error(String.format(Constants.CARD_PAYMENT_EXCEPTION, e.getMessage()));
+            confirmed = false;
+        }
+        completeCreditCardVerification(reservationId, confirmed);
+    }
+
+    // Resubmits the check after an exponential backoff; after the last attempt the room is given up, so an outage of
+    // the card service holds rooms for a bounded time only
+    private void deferCreditCardVerification(Long reservationId, String paymentReference, int attempt, String reason) {
+        if (attempt >= creditCardVerificationRetryProperties.getMaxAttempts()) {
+            log.warn(String.format(Constants.RESERVATION_VERIFICATION_ABANDONED, reservationId, attempt, reason));
+            completeCreditCardVerification(reservationId, false);
+            return;
+        }
+        Duration backoff = creditCardVerificationRetryProperties.backoff(attempt);
+        log.warn(String.format(Constants.RESERVATION_VERIFICATION_DEFERRED, reservationId, backoff.toMillis(), reason));
+        CompletableFuture.delayedExecutor(backoff.toMillis(), TimeUnit.MILLISECONDS)
+                .execute(() -> submitCreditCardVerification(reservationId, paymentReference, attempt + 1));
+    }
+
+    // Every instance resumes the pending checks at startup, so two instances may complete the same reservation: only
+    // the one whose conditional update wins confirms it or releases its room
+    private void completeCreditCardVerification(Long reservationId, boolean paymentConfirmed) {
+        inWriteTransaction(OPERATION_VERIFY, () -> reservationRepository.findById(reservationId)
+                .filter(reservation -> reservation.getStatus() == ReservationStatus.PENDING_PAYMENT)
+                .map(reservation -> {
+                    if (paymentConfirmed) {
+                        if (reservationRepository.updateStatus(List.of(reservationId),
+                                ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED) == 1) {
+                            reservation.setStatus(ReservationStatus.CONFIRMED);
+                            log.info(String.format(Constants.RESERVATION_CONFIRMED_CARD, reservationId));
+                        }
+                    } else if (cancelPending(reservation)) {
+                        log.info(String.format(Constants.RESERVATION_CANCELLED_CARD, reservationId));
+                    }
+                    return reservation;
+                }));
+    }
+
+    // Writes a reservation and its room nights; the in-memory room hold is released if anything fails
+    private Reservation persist(Reservation reservation, String operation) {
+        try {
+            // Added before the commit, so a bank transfer update can never miss it; a rollback only leaves a false positive
+            paymentReferenceFilter.add(reservation.getPaymentReference());
+            Reservation persisted = inWriteTransaction(operation, () -> {
+                Reservation saved = reservationRepository.save(reservation);
+                // The unique room/night key catches bookings made by other instances of the service
+                roomNightLedger.bookNights(saved);
+                return saved;
+            });
+            // Again after the commit, for a filter rebuild that started reading in between
+            paymentReferenceFilter.add(persisted.getPaymentReference());
+            scheduleDeadline(persisted);
+            return persisted;
+        } catch (DataIntegrityViolationException e) {
+            releaseOccupancy(reservation);
+            if (isPaymentReferenceConflict(e)) {
+                throw new ReservationConflictException(String.format(Constants.PAYMENT_REFERENCE_ALREADY_USED,
+                        reservation.getPaymentReference()));
+            }
+            if (!(e instanceof DuplicateKeyException)) {
+                throw e;
+            }
+            throw new ReservationConflictException(String.format(Constants.ROOM_ALREADY_RESERVED,
+                    reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate()));
+        } catch (RuntimeException e) {
+            releaseOccupancy(reservation);
+            throw e;
+        }
+    }
+
+    @Override
+    public BatchReservationResponse confirmReservations(List<ReservationRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > Constants.MAX_BATCH_SIZE) {
+            throw new ValidationException(Constants.INVALID_BATCH_SIZE);
+        }
+
+        // Validate every item and resolve its status; failures are reported per item
+        BatchReservationResult[] results = new BatchReservationResult[requests.size()];
+        List<Reservation> accepted = new ArrayList<>();
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ReservationRequest request = requests.get(i);
+            try {
+                validate(request);
+                Reservation reservation = reservationMapper.toEntity(request);
+                reservation.setStatus(resolveStatus(request));
+                reserveRoom(reservation);
+                accepted.add(reservation);
+                acceptedIndexes.add(i);
+            } catch (jakarta.validation.ValidationException e) {
+                results[i] = BatchReservationResult.builder().index(i).error(e.getMessage()).build();
+            } catch (RuntimeException e) {
+                // Not an item error: the rooms held for the items before it are released with the whole batch
+                accepted.forEach(this::releaseOccupancy);
+                throw e;
+            }
+        }
+
+        // Persist the accepted reservations together in one short transaction: pooled sequence ids and batched inserts
+        List<Reservation> savedReservations;
         try {
-            // Convert DTO to entity
-            reservation = objectMapper.convertValue(request, Reservation.class);
-        } catch (IllegalArgumentException e) {
-            log.error(Constants.FAILED_MAPPING, e);
-            throw new RuntimeException(String.format(Constants.RUNTIME_EXCEPTION, e.getMessage()));
+            accepted.forEach(reservation -> paymentReferenceFilter.add(reservation.getPaymentReference()));
+            savedReservations = inWriteTransaction(OPERATION_CONFIRM_BATCH, () -> {
+                List<Reservation> saved = reservationRepository.saveAll(accepted);
+                roomNightLedger.bookNights(saved);
+                return saved;
+            });
+            savedReservations.forEach(reservation -> {
+                paymentReferenceFilter.add(reservation.getPaymentReference());
+                scheduleDeadline(reservation);
+            });
+        } catch (DataIntegrityViolationException e) {
+            accepted.forEach(this::releaseOccupancy);
+            if (isPaymentReferenceConflict(e)) {
+                throw new ReservationConflictException(Constants.BATCH_PAYMENT_REFERENCE_ALREADY_USED);
+            }
+            if (!(e instanceof DuplicateKeyException)) {
+                throw e;
+            }
+            throw new ReservationConflictException(Constants.BATCH_ROOM_ALREADY_RESERVED);
+        } catch (RuntimeException e) {
+            accepted.forEach(this::releaseOccupancy);
+            throw e;
         }
 
-        // Determine reservation status based on payment mode
-        ReservationStatus status = switch (request.getPaymentMode()) {
+        for (int i = 0; i < savedReservations.size(); i++) {
+            int index = acceptedIndexes.get(i);
+            results[index] = reservationMapper.toResult(index, savedReservations.get(i));
+        }
+        return BatchReservationResponse.builder()
+                .accepted(savedReservations.size())
+                .rejected(requests.size() - savedReservations.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    // A bank transfer left pending is cancelled at the end of its payment period
+    private void scheduleDeadline(Reservation reservation) {
+        if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT && reservation.getPaymentMode() == PaymentMode.BANK_TRANSFER) {
+            bankTransferDeadlineWheel.schedule(reservation.getId(),
+                    BankTransferDeadlineWheel.paymentDeadline(reservation.getCreatedAt(), reservation.getReservationDate()));
+        }
+    }
+
+    // The room/night key fails in the ledger insert as a duplicate key; the reservation insert only fails at commit,
+    // which reports any constraint violation, so the payment reference index is told apart by its name
+    private static boolean isPaymentReferenceConflict(DataIntegrityViolationException e) {
+        String message = e.getMostSpecificCause().getMessage();
+        return message != null && message.toLowerCase().contains(Reservation.PAYMENT_REFERENCE_INDEX);
+    }
+
+    // Runs the writes in their own transaction and records how long it held the database connection
+    private <T> T inWriteTransaction(String operation, Supplier<T> writes) {
+        Timer timer = Timer.builder(WRITE_TRANSACTION_METRIC)
+                .description("Time the reservation write transaction holds a database connection")
+                .tag("operation", operation)
+                .register(meterRegistry);
+        return timer.record(() -> transactionTemplate.execute(status -> writes.get()));
+    }
+
+    // Determine reservation status based on payment mode
+    private ReservationStatus resolveStatus(ReservationRequest request) {
+        return switch (request.getPaymentMode()) {
             case CASH -> ReservationStatus.CONFIRMED;
 
             case CREDIT_CARD -> {
@@ -63,70 +346,292 @@ public class ReservationServiceImpl implements ReservationService {
                 yield ReservationStatus.PENDING_PAYMENT;
             }
         };
+    }
 
-        reservation.setStatus(status);
-        Reservation savedReservation = reservationRepository.save(reservation);
+    // Bean validation of a single batch item, the same constraints @Valid applies to POST /confirm
+    private void validate(ReservationRequest request) {
+        Set<ConstraintViolation<ReservationRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            throw new ValidationException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
 
-        return ReservationResponse.builder()
-                .reservationId(savedReservation.getId())
-                .reservationStatus(savedReservation.getStatus())
-                .build();
+    // Free rooms are held from the in-memory index without querying the database. A taken period may be stale, as
+    // other instances cancel too: the conflict is only reported once the room night ledger confirms it
+    private void reserveRoom(Reservation reservation) {
+        if (!roomOccupancyIndex.tryReserve(reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate())
+                && !reserveStaleRoom(reservation)) {
+            throw new ReservationConflictException(String.format(Constants.ROOM_ALREADY_RESERVED,
+                    reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate()));
+        }
+        segmentAvailabilityIndex.markOccupied(reservation);
+    }
+
+    // The period is free in the ledger: the room is reloaded from the database and held again
+    private boolean reserveStaleRoom(Reservation reservation) {
+        if (!roomNightLedger.isFree(reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate())) {
+            return false;
+        }
+        meterRegistry.counter(STALE_OCCUPANCY_METRIC).increment();
+        occupancyIndexInitializer.resyncRoom(reservation.getRoomNumber(), reservation.getRoomSegment());
+        return roomOccupancyIndex.tryReserve(reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate());
     }
 
     @Override
-    @Transactional
     public void confirmBankTransferPayment(String transactionDescription) {
-        String[] parts = transactionDescription.trim().split("\\s+");
-        if (parts.length < 2) {
-            log.error(String.format(Constants.INVALID_TRANSACTION_FORMAT, transactionDescription));
-            throw new ValidationException(String.format(Constants.INVALID_TRANSACTION_FORMAT, transactionDescription));
-        }
+        String reservationIdString = TransactionDescriptionParser.paymentReference(transactionDescription);
 
-        String reservationIdString = parts[1];
-        if (reservationIdString.length() != 8) {
-            log.error(String.format(Constants.INVALID_RESERVATION_ID_LENGTH, reservationIdString));
-            throw new ValidationException(String.format(Constants.INVALID_RESERVATION_ID_LENGTH, reservationIdString));
+        // A reference the filter does not know belongs to another system, or to a reservation another instance made
+        // since the filter was built: only the latter are looked up, without a transaction
+        Instant notCreatedBefore = paymentReferenceFilter.notCreatedBefore(reservationIdString);
+        if (notCreatedBefore != null) {
+            if (!reservationRepository.existsByPaymentReferenceAndCreatedAtGreaterThanEqual(reservationIdString, notCreatedBefore)) {
+                log.warn(String.format(Constants.RESERVATION_NOT_FOUND, reservationIdString));
+                return;
+            }
+            paymentReferenceFilter.add(reservationIdString);
+            paymentReferenceFilter.recordRecentMatches(1);
         }
 
-        Optional<Reservation> optionalReservation = reservationRepository.findByPaymentReference(reservationIdString);
+        Long reservationId = inWriteTransaction(OPERATION_CONFIRM_BANK, () -> {
+            Optional<ReservationPaymentStatus> optionalReservation =
+                    reservationRepository.findPaymentStatusByPaymentReference(reservationIdString);
 
-        if (optionalReservation.isPresent()) {
-            Reservation reservation = optionalReservation.get();
-            if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT) {
-                reservation.setStatus(ReservationStatus.CONFIRMED);
-                reservationRepository.save(reservation);
-                log.info(String.format(Constants.RESERVATION_CONFIRMED_BANK, reservation.getId()));
+            if (optionalReservation.isPresent()) {
+                ReservationPaymentStatus reservation = optionalReservation.get();
+                // Conditional update: a concurrent confirmation or cancellation in between leaves the row unchanged
+                if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT
+                        && reservationRepository.updateStatus(List.of(reservation.getId()),
+                        ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED) == 1) {
+                    log.info(String.format(Constants.RESERVATION_CONFIRMED_BANK, reservation.getId()));
+                } else {
+                    log.info(String.format(Constants.RESERVATION_ALREADY_CONFIRMED, reservation.getId(), reservation.getStatus()));
+                }
+                return reservation.getId();
             } else {
-                log.info(String.format(Constants.RESERVATION_ALREADY_CONFIRMED, reservation.getId(), reservation.getStatus()));
+                paymentReferenceFilter.recordFalsePositives(1);
+                log.warn(String.format(Constants.RESERVATION_NOT_FOUND, reservationIdString));
+                return null;
             }
-        } else {
-            log.warn(String.format(Constants.RESERVATION_NOT_FOUND, reservationIdString));
+        });
+        // Confirmed, or no longer pending anyway
+        if (reservationId != null) {
+            bankTransferDeadlineWheel.cancel(reservationId);
         }
     }
 
     @Override
-    public List<Reservation> findPendingBankTransferReservations(LocalDate date) {
+    public int confirmBankTransferPayments(List<String> transactionDescriptions) {
+        // Invalid descriptions are counted and skipped, they would fail the same way on redelivery; the batch listener
+        // has already sent their records to the dead-letter topic
+        Set<String> paymentReferences = new LinkedHashSet<>();
+        Set<String> unknownReferences = new LinkedHashSet<>();
+        Instant notCreatedBefore = null;
+        for (String transactionDescription : transactionDescriptions) {
+            try {
+                String paymentReference = TransactionDescriptionParser.paymentReference(transactionDescription);
+                Instant referenceNotCreatedBefore = paymentReferenceFilter.notCreatedBefore(paymentReference);
+                if (referenceNotCreatedBefore == null) {
+                    paymentReferences.add(paymentReference);
+                } else if (unknownReferences.add(paymentReference)
+                        && (notCreatedBefore == null || referenceNotCreatedBefore.isBefore(notCreatedBefore))) {
+                    notCreatedBefore = referenceNotCreatedBefore;
+                }
+            } catch (ValidationException e) {
+                countBankTransferUpdate("invalid", 1);
+            }
+        }
+        // References unknown to the filter are only looked up among the reservations made since it was built, e.g. by
+        // another instance; the ones of other systems are not found there
+        List<String> recentReferences = findPaymentReferencesCreatedSince(unknownReferences, notCreatedBefore);
+        recentReferences.forEach(paymentReferenceFilter::add);
+        paymentReferenceFilter.recordRecentMatches(recentReferences.size());
+        paymentReferences.addAll(recentReferences);
+        countBankTransferUpdate("not-found", unknownReferences.size() - recentReferences.size());
+        if (paymentReferences.isEmpty()) {
+            return 0;
+        }
+
+        // Per chunk, one IN query for the statuses and one UPDATE for the pending ones, all in one transaction
+        BankTransferOutcome outcome = inWriteTransaction(OPERATION_CONFIRM_BANK_BATCH, () -> {
+            int confirmed = 0;
+            int found = 0;
+            List<Long> pendingIds = new ArrayList<>();
+            List<String> references = new ArrayList<>(paymentReferences);
+            for (int from = 0; from < references.size(); from += PAYMENT_REFERENCE_CHUNK_SIZE) {
+                List<String> chunk = references.subList(from, Math.min(from + PAYMENT_REFERENCE_CHUNK_SIZE, references.size()));
+                List<Long> pending = new ArrayList<>();
+                for (ReservationPaymentStatus reservation : reservationRepository.findPaymentStatusByPaymentReferenceIn(chunk)) {
+                    found++;
+                    if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT) {
+                        pending.add(reservation.getId());
+                    } else {
+                        log.debug(String.format(Constants.RESERVATION_ALREADY_CONFIRMED, reservation.getId(), reservation.getStatus()));
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    confirmed += reservationRepository.updateStatus(pending, ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+                    pendingIds.addAll(pending);
+                }
+            }
+            return new BankTransferOutcome(found, confirmed, pendingIds);
+        });
+        bankTransferDeadlineWheel.cancel(outcome.pendingIds());
+
+        countBankTransferUpdate("confirmed", outcome.confirmed());
+        countBankTransferUpdate("already-processed", outcome.found() - outcome.confirmed());
+        countBankTransferUpdate("not-found", paymentReferences.size() - outcome.found());
+        paymentReferenceFilter.recordFalsePositives(paymentReferences.size() - outcome.found());
+        log.info(String.format(Constants.BANK_TRANSFER_BATCH_CONFIRMED, outcome.confirmed(), transactionDescriptions.size()));
+        return outcome.confirmed();
+    }
+
+    private record BankTransferOutcome(int found, int confirmed, List<Long> pendingIds) {
+    }
+
+    private List<String> findPaymentReferencesCreatedSince(Set<String> paymentReferences, Instant createdAt) {
+        List<String> found = new ArrayList<>();
+        List<String> references = new ArrayList<>(paymentReferences);
+        for (int from = 0; from < references.size(); from += PAYMENT_REFERENCE_CHUNK_SIZE) {
+            found.addAll(reservationRepository.findPaymentReferencesCreatedSince(
+                    references.subList(from, Math.min(from + PAYMENT_REFERENCE_CHUNK_SIZE, references.size())), createdAt));
+        }
+        return found;
+    }
+
+    private void countBankTransferUpdate(String outcome, int count) {
+        if (count > 0) {
+            meterRegistry.counter(BANK_TRANSFER_UPDATE_METRIC, "outcome", outcome).increment(count);
+        }
+    }
+
+    @Override
+    public List<Long> cancelOverdueBankTransferReservations(LocalDate date) {
+        return cancelOverdueBankTransferReservations(date, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public List<Long> cancelOverdueBankTransferReservations(LocalDate date, long fromId, long toId) {
         // Cutoff date is 2 days before the given date
         LocalDate cutoffDate = date.minusDays(2);
 
-        return reservationRepository.findByStatusAndCreatedAtBefore(
-                        ReservationStatus.PENDING_PAYMENT,
-                        cutoffDate
-                )
-                .stream()
-                .filter(r -> r.getPaymentMode() == PaymentMode.BANK_TRANSFER)
-                .toList();
+        // One short transaction per chunk, until a chunk is not full
+        List<Long> cancelledIds = new ArrayList<>();
+        List<Long> cancelled;
+        do {
+            cancelled = cancelPendingBankTransfers(OPERATION_CANCEL_OVERDUE, () ->
+                    reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                            ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoffDate, fromId, toId,
+                            Limit.of(CANCELLATION_CHUNK_SIZE)));
+            cancelledIds.addAll(cancelled);
+            log.debug(String.format(Constants.OVERDUE_RESERVATIONS_CANCELLED, cancelled.size(), cutoffDate));
+        } while (cancelled.size() == CANCELLATION_CHUNK_SIZE);
+        return cancelledIds;
+    }
+
+    @Override
+    public List<Long> cancelExpiredBankTransferReservations(Collection<Long> reservationIds) {
+        // Those confirmed or cancelled since they were scheduled are no longer pending and left alone
+        List<Long> ids = new ArrayList<>(reservationIds);
+        List<Long> cancelledIds = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += CANCELLATION_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + CANCELLATION_CHUNK_SIZE, ids.size()));
+            cancelledIds.addAll(cancelPendingBankTransfers(OPERATION_CANCEL_EXPIRED, () ->
+                    reservationRepository.lockByIdInAndStatusAndPaymentMode(chunk, ReservationStatus.PENDING_PAYMENT,
+                            PaymentMode.BANK_TRANSFER)));
+        }
+        return cancelledIds;
+    }
+
+    // One transaction: lock the reservations, cancel them with one UPDATE and free their nights in one batch.
+    // A bank transfer confirmation of a locked reservation waits and then finds it cancelled.
+    private List<Long> cancelPendingBankTransfers(String operation, Supplier<List<Reservation>> lock) {
+        List<Reservation> cancelled = inWriteTransaction(operation, () -> {
+            List<Reservation> locked = lock.get();
+            if (!locked.isEmpty()) {
+                List<Long> ids = locked.stream().map(Reservation::getId).toList();
+                reservationRepository.updateStatus(ids, ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED);
+                roomNightLedger.releaseNights(ids);
+            }
+            return locked;
+        });
+        cancelled.forEach(this::releaseOccupancy);
+        List<Long> cancelledIds = cancelled.stream().map(Reservation::getId).toList();
+        bankTransferDeadlineWheel.cancel(cancelledIds);
+        return cancelledIds;
+    }
+
+    @Override
+    public Optional<ReservationIdRange> findOverdueBankTransferIdRange(LocalDate date) {
+        ReservationIdRange range = reservationRepository.findIdRangeByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, date.minusDays(2));
+        return range == null || range.getLowest() == null ? Optional.empty() : Optional.of(range);
     }
 
     @Override
     @Transactional
     public void cancelReservation(Long reservationId) {
         reservationRepository.findById(reservationId).ifPresent(reservation -> {
-            if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT) {
-                reservation.setStatus(ReservationStatus.CANCELLED);
-                reservationRepository.save(reservation);
+            if (reservation.getStatus() == ReservationStatus.PENDING_PAYMENT && cancelPending(reservation)) {
                 log.info(String.format(Constants.RESERVATION_CANCELLED, reservationId));
             }
         });
     }
+
+    // Must run inside a transaction; false when another instance confirmed or cancelled the reservation in between.
+    // Only the winning cancellation releases the nights, and the room in memory once it is committed
+    private boolean cancelPending(Reservation reservation) {
+        if (reservationRepository.updateStatus(List.of(reservation.getId()),
+                ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED) != 1) {
+            return false;
+        }
+        reservation.setStatus(ReservationStatus.CANCELLED);
+        roomNightLedger.releaseNights(reservation.getId());
+        runAfterCommit(() -> {
+            releaseOccupancy(reservation);
+            bankTransferDeadlineWheel.cancel(reservation.getId());
+        });
+        return true;
+    }
+
+    @Override
+    public RoomAvailabilityResponse findAvailableRooms(RoomSegment roomSegment, LocalDate startDate, LocalDate endDate) {
+        if (roomSegment == null || startDate == null || endDate == null) {
+            throw new ValidationException(Constants.AVAILABILITY_PARAMETERS_REQUIRED);
+        }
+        if (startDate.isAfter(endDate)) {
+            throw new ValidationException(Constants.AVAILABILITY_START_AFTER_END);
+        }
+        if (ChronoUnit.DAYS.between(startDate, endDate) + 1 > Constants.MAX_RESERVATION_DAYS) {
+            throw new ValidationException(Constants.AVAILABILITY_PERIOD_TOO_LONG);
+        }
+
+        return RoomAvailabilityResponse.builder()
+                .roomSegment(roomSegment)
+                .startDate(startDate)
+                .endDate(endDate)
+                .availableRooms(segmentAvailabilityIndex.findAvailableRooms(roomSegment, startDate, endDate))
+                .build();
+    }
+
+    private void releaseOccupancy(Reservation reservation) {
+        roomOccupancyIndex.release(reservation.getRoomNumber(), reservation.getStartDate(), reservation.getEndDate());
+        segmentAvailabilityIndex.markFree(reservation);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.exception.ValidationException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads the payment reference of a reservation out of the description of a bank transfer,
+ * e.g. {@code "1401541457 P4145478"}: the second word, which must be 8 characters long.
+ * <p>
+ * Same result as {@code trim().split("\\s+")[1]}, found by scanning the characters in place: no regex,
+ * no array of words, only the returned reference is allocated.
+ */
+@Slf4j
+public final class TransactionDescriptionParser {
+
+    public static final int PAYMENT_REFERENCE_LENGTH = 8;
+
+    private TransactionDescriptionParser() {
+    }
+
+    public static String paymentReference(String transactionDescription) {
+        long bounds = transactionDescription == null ? -1 : secondWord(transactionDescription);
+        if (bounds < 0) {
+            log.error(String.format(Constants.INVALID_TRANSACTION_FORMAT, transactionDescription));
+            throw new ValidationException(String.format(Constants.INVALID_TRANSACTION_FORMAT, transactionDescription));
+        }
+        int referenceStart = (int) (bounds >>> 32);
+        int referenceEnd = (int) bounds;
+        if (referenceEnd - referenceStart != PAYMENT_REFERENCE_LENGTH) {
+            String reservationIdString = transactionDescription.substring(referenceStart, referenceEnd);
+            log.error(String.format(Constants.INVALID_RESERVATION_ID_LENGTH, reservationIdString));
+            throw new ValidationException(String.format(Constants.INVALID_RESERVATION_ID_LENGTH, reservationIdString));
+        }
+        return transactionDescription.substring(referenceStart, referenceEnd);
+    }
+
+    /**
+     * The payment reference, or null when the description has none. Does not log.
+     */
+    public static String paymentReferenceOrNull(String transactionDescription) {
+        long bounds = transactionDescription == null ? -1 : secondWord(transactionDescription);
+        if (bounds < 0 || (int) bounds - (int) (bounds >>> 32) != PAYMENT_REFERENCE_LENGTH) {
+            return null;
+        }
+        return transactionDescription.substring((int) (bounds >>> 32), (int) bounds);
+    }
+
+    // Start and end of the second word packed into one long, -1 when there is none
+    private static long secondWord(String transactionDescription) {
+        // Bounds of the trimmed description
+        int end = transactionDescription.length();
+        while (end > 0 && transactionDescription.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        int position = 0;
+        while (position < end && transactionDescription.charAt(position) <= ' ') {
+            position++;
+        }
+
+        // Skip the first word and the whitespace after it
+        while (position < end && !isWhitespace(transactionDescription.charAt(position))) {
+            position++;
+        }
+        while (position < end && isWhitespace(transactionDescription.charAt(position))) {
+            position++;
+        }
+        if (position == end) {
+            return -1;
+        }
+
+        int referenceStart = position;
+        while (position < end && !isWhitespace(transactionDescription.charAt(position))) {
+            position++;
+        }
+        return (long) referenceStart << 32 | position;
+    }
+
+    // The characters of the regex class \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -1,5 +1,6 @@
 package com.marvel.reservation.validation;
 
+import com.marvel.reservation.constant.Constants;
 import com.marvel.reservation.dto.ReservationRequest;
 import jakarta.validation.ConstraintValidator;
 import jakarta.validation.ConstraintValidatorContext;
@@ -27,7 +28,7 @@ public class ReservationPeriodValidator
 
         long days = ChronoUnit.DAYS.between(request.getStartDate(), request.getEndDate()) + 1;
 
-        if (days < 1 || days > 30) {
+        if (days < 1 || days > Constants.MAX_RESERVATION_DAYS) {
             context.disableDefaultConstraintViolation();
             context.buildConstraintViolationWithTemplate(
                     "Reservation period must be between 1 and 30 days"
@@ -0,0 +1,86 @@
+package com.marvel.reservation.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Prints a JMH JSON result next to a stored baseline: score and allocation per operation of every benchmark,
+ * mode and parameter set found in both, with the change in percent. A throughput that dropped, or a latency or
+ * allocation that grew, by more than the threshold is marked {@code REGRESSION}.
+ * <p>
+ * Arguments: current result, baseline (default {@code benchmarks/baseline.json}), threshold in percent (default 10).
+ */
+public class BenchmarkBaselineComparator {
+
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws IOException {
+        File current = new File(args.length > 0 ? args[0] : "target/jmh-result.json");
+        File baseline = new File(args.length > 1 ? args[1] : "benchmarks/baseline.json");
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+        if (!baseline.exists()) {
+            System.out.println("No baseline at " + baseline + ", copy " + current + " there to create one");
+            return;
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        Map<String, JsonNode> baselineResults = index(objectMapper.readTree(baseline));
+        Map<String, JsonNode> currentResults = index(objectMapper.readTree(current));
+
+        System.out.printf("%n%-90s %14s %14s %9s %12s %12s %9s%n", "benchmark", "baseline", "current", "change",
+                "B/op base", "B/op now", "change");
+        int regressions = 0;
+        for (Map.Entry<String, JsonNode> entry : currentResults.entrySet()) {
+            JsonNode before = baselineResults.get(entry.getKey());
+            if (before == null) {
+                continue;
+            }
+            JsonNode after = entry.getValue();
+            double scoreBefore = before.at("/primaryMetric/score").asDouble();
+            double scoreAfter = after.at("/primaryMetric/score").asDouble();
+            double scoreChange = change(scoreBefore, scoreAfter);
+            double allocationBefore = allocation(before);
+            double allocationAfter = allocation(after);
+            double allocationChange = change(allocationBefore, allocationAfter);
+
+            // Higher is better for throughput, lower for every time-per-operation mode
+            boolean higherIsBetter = "thrpt".equals(after.path("mode").asText());
+            boolean regression = (higherIsBetter ? -scoreChange : scoreChange) > threshold
+                    || allocationChange > threshold && allocationAfter - allocationBefore > 16;
+            regressions += regression ? 1 : 0;
+            System.out.printf("%-90s %14.4f %14.4f %8.1f%% %12.0f %12.0f %8.1f%%%s%n", entry.getKey(),
+                    scoreBefore, scoreAfter, scoreChange, allocationBefore, allocationAfter, allocationChange,
+                    regression ? "  REGRESSION" : "");
+        }
+        System.out.printf("%d regression(s) above %.0f%%%n", regressions, threshold);
+    }
+
+    // Benchmark, mode and parameters identify a result; sample mode reports its mean as the primary score
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                    .replace("com.marvel.reservation.benchmark.", ""))
+                    .append(' ').append(result.path("mode").asText());
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").properties().forEach(param -> params.put(param.getKey(), param.getValue().asText()));
+            params.forEach((name, value) -> key.append(' ').append(name).append('=').append(value));
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static double allocation(JsonNode result) {
+        return result.path("secondaryMetrics").path(ALLOCATION_METRIC).path("score").asDouble(Double.NaN);
+    }
+
+    private static double change(double before, double after) {
+        return before == 0 ? 0 : (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,85 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.RoomReservationServiceApplication;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.service.ReservationService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ReservationService#confirmReservation} per payment mode against the in-memory H2 database, with the
+ * {@code test} profile's stubbed credit card service. Every invocation books a room of its own for two nights,
+ * so the measurement covers validation, the occupancy check, the insert and the room-night ledger.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConfirmReservationBenchmark {
+
+    @Param({"CASH", "CREDIT_CARD", "BANK_TRANSFER"})
+    private PaymentMode paymentMode;
+
+    private ConfigurableApplicationContext context;
+    private ReservationService reservationService;
+    private LocalDate startDate;
+    private long rooms;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Passed as arguments, so they win over the test application.properties on the classpath
+        context = new SpringApplicationBuilder(RoomReservationServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.datasource.url=jdbc:h2:mem:benchmark-" + paymentMode,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.kafka.listener.auto-startup=false",
+                        "--spring.task.scheduling.enabled=false",
+                        "--logging.level.root=WARN");
+        reservationService = context.getBean(ReservationService.class);
+        startDate = LocalDate.now().plusDays(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReservationResponse confirmReservation() {
+        long room = rooms++;
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Benchmark Customer");
+        request.setRoomNumber("B" + room);
+        request.setStartDate(startDate);
+        request.setEndDate(startDate.plusDays(1));
+        request.setRoomSegment(RoomSegment.MEDIUM);
+        request.setPaymentMode(paymentMode);
+        request.setPaymentReference(switch (paymentMode) {
+            case CASH -> null;
+            case CREDIT_CARD -> "CC-SUCCESS-" + room;
+            case BANK_TRANSFER -> "P" + room;
+        });
+        return reservationService.confirmReservation(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConfirmReservationBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,132 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.api.model.PaymentStatusResponse;
+import com.marvel.reservation.api.model.PaymentStatusRetrievalRequest;
+import com.marvel.reservation.config.CreditCardPaymentClientConfig;
+import com.marvel.reservation.config.CreditCardPaymentClientProperties;
+import com.marvel.reservation.service.PaymentStatusBatcher;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Payment status lookups of many concurrent bookings, one {@code POST /payment-status} per lookup against
+ * micro-batched {@code POST /payment-status/batch} requests. The stub card service handles 4 requests at a time
+ * and spends {@code requestCostMicros} per request plus 20 µs per reference, the per-call overhead batching saves.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(64)
+@State(Scope.Benchmark)
+public class PaymentStatusBatchingBenchmark {
+
+    private static final long REFERENCE_COST_NANOS = 20_000;
+
+    @Param({"2000", "10000"})
+    private long requestCostMicros;
+
+    private final AtomicLong references = new AtomicLong();
+    private ExecutorService cardServiceThreads;
+    private HttpServer cardService;
+    private CreditCardPaymentClientConfig.DeadlineExecChainHandler deadlineHandler;
+    private CloseableHttpClient httpClient;
+    private RestTemplate restTemplate;
+    private PaymentStatusBatcher batcher;
+    private String paymentStatusUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cardServiceThreads = Executors.newFixedThreadPool(4);
+        cardService = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        cardService.setExecutor(cardServiceThreads);
+        cardService.createContext("/api/v1/payment-status", exchange -> respond(exchange,
+                "{\"status\":\"CONFIRMED\"}", 1));
+        cardService.createContext("/api/v1/payment-status/batch", this::respondToBatch);
+        cardService.start();
+        paymentStatusUrl = "http://localhost:" + cardService.getAddress().getPort() + "/api/v1/payment-status";
+
+        CreditCardPaymentClientProperties properties = new CreditCardPaymentClientProperties();
+        properties.setMaxConnectionsPerRoute(100);
+        properties.setTotalDeadline(Duration.ofSeconds(30));
+        properties.setReadTimeout(Duration.ofSeconds(30));
+        properties.setConnectionRequestTimeout(Duration.ofSeconds(30));
+        properties.getBatch().setEnabled(true);
+        properties.getBatch().setMaxSize(64);
+        properties.getBatch().setMaxWait(Duration.ofMillis(2));
+        CreditCardPaymentClientConfig clientConfig = new CreditCardPaymentClientConfig();
+        deadlineHandler = clientConfig.creditCardDeadlineHandler(properties);
+        httpClient = clientConfig.creditCardHttpClient(clientConfig.creditCardConnectionManager(properties), deadlineHandler, properties);
+        restTemplate = clientConfig.restTemplate(httpClient);
+        batcher = new PaymentStatusBatcher(restTemplate, properties, new SimpleMeterRegistry(), paymentStatusUrl + "/batch");
+        batcher.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        batcher.stop();
+        httpClient.close();
+        deadlineHandler.close();
+        cardService.stop(0);
+        cardServiceThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public String oneCallPerLookup() {
+        PaymentStatusResponse response = restTemplate.postForObject(paymentStatusUrl,
+                new PaymentStatusRetrievalRequest("CC-" + references.incrementAndGet()), PaymentStatusResponse.class);
+        return response.getStatus();
+    }
+
+    @Benchmark
+    public String batchedLookup() {
+        return batcher.lookUp("CC-" + references.incrementAndGet());
+    }
+
+    private void respondToBatch(HttpExchange exchange) throws IOException {
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        String[] paymentReferences = body.substring(body.indexOf('[') + 1, body.indexOf(']')).replace("\"", "").split(",");
+        StringBuilder payments = new StringBuilder("{\"payments\":[");
+        for (int i = 0; i < paymentReferences.length; i++) {
+            payments.append(i == 0 ? "" : ",")
+                    .append("{\"paymentReference\":\"").append(paymentReferences[i]).append("\",\"status\":\"CONFIRMED\"}");
+        }
+        respond(exchange, payments.append("]}").toString(), paymentReferences.length);
+    }
+
+    private void respond(HttpExchange exchange, String json, int referenceCount) throws IOException {
+        exchange.getRequestBody().readAllBytes();
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(requestCostMicros) + referenceCount * REFERENCE_COST_NANOS);
+        byte[] response = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentStatusBatchingBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
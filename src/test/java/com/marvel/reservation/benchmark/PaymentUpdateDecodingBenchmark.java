@@ -0,0 +1,75 @@
+package com.marvel.reservation.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.config.AppConfig;
+import com.marvel.reservation.dto.PaymentUpdate;
+import com.marvel.reservation.listener.PaymentUpdateReader;
+import com.marvel.reservation.service.TransactionDescriptionParser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * From the raw bytes of a {@code bank-transfer-payment-update} record to the payment reference of the reservation:
+ * the former path (StringDeserializer, {@code ObjectMapper.readValue}, {@code trim().split("\\s+")}) against the
+ * current one ({@link PaymentUpdateReader} on the bytes, {@link TransactionDescriptionParser}).
+ * Run with {@code -prof gc} to see the bytes allocated per record.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentUpdateDecodingBenchmark {
+
+    private static final byte[] RECORD = """
+            {"paymentId":"PAY-20300310-000042","debtorAccountNumber":"NL91ABNA0417164300",\
+            "amountReceived":1250.00,"transactionDescription":"1401541457 P4145478"}"""
+            .getBytes(StandardCharsets.UTF_8);
+
+    private String transactionDescription = "1401541457 P4145478";
+    private ObjectMapper objectMapper;
+    private PaymentUpdateReader paymentUpdateReader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new AppConfig().objectMapper();
+        paymentUpdateReader = new PaymentUpdateReader(objectMapper);
+    }
+
+    @Benchmark
+    public String stringReadValueAndSplit() throws Exception {
+        String message = new String(RECORD, StandardCharsets.UTF_8);
+        PaymentUpdate paymentUpdate = objectMapper.readValue(message, PaymentUpdate.class);
+        String[] parts = paymentUpdate.getTransactionDescription().trim().split("\\s+");
+        return parts[1];
+    }
+
+    @Benchmark
+    public String bytesStreamingAndScanner() throws Exception {
+        PaymentUpdate paymentUpdate = paymentUpdateReader.read(RECORD);
+        return TransactionDescriptionParser.paymentReference(paymentUpdate.getTransactionDescription());
+    }
+
+    @Benchmark
+    public String splitOnly() {
+        return transactionDescription.trim().split("\\s+")[1];
+    }
+
+    @Benchmark
+    public String scannerOnly() {
+        return TransactionDescriptionParser.paymentReference(transactionDescription);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PaymentUpdateDecodingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.config.AppConfig;
+import com.marvel.reservation.dto.PaymentUpdate;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.listener.PaymentUpdateReader;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.service.TransactionDescriptionParser;
+import com.marvel.reservation.validation.ReservationPeriodValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU-only steps run for every reservation request and every bank transfer update: the period validation,
+ * the whole bean validation of a request, the parsing of a transfer description and the JSON decoding of a
+ * {@link PaymentUpdate} from the record bytes by {@link PaymentUpdateReader}, as the Kafka listeners do it. The former
+ * {@code ObjectMapper.readValue} decoding is compared in {@link PaymentUpdateDecodingBenchmark}, the request-to-entity
+ * mapping in {@link ReservationMappingBenchmark}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationHotPathBenchmark {
+
+    private static final String PAYMENT_UPDATE_JSON = """
+            {"paymentId":"PAY-20300310-000042","debtorAccountNumber":"NL91ABNA0417164300",\
+            "amountReceived":1250.00,"transactionDescription":"1401541457 P4145478"}""";
+
+    private final ReservationPeriodValidator periodValidator = new ReservationPeriodValidator();
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private PaymentUpdateReader paymentUpdateReader;
+    private byte[] paymentUpdateMessage;
+    private ReservationRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        // The application's own ObjectMapper configuration
+        paymentUpdateReader = new PaymentUpdateReader(new AppConfig().objectMapper());
+        paymentUpdateMessage = PAYMENT_UPDATE_JSON.getBytes(StandardCharsets.UTF_8);
+
+        request = new ReservationRequest();
+        request.setCustomerName("Tony Stark");
+        request.setRoomNumber("A101");
+        request.setStartDate(LocalDate.now().plusDays(10));
+        request.setEndDate(LocalDate.now().plusDays(13));
+        request.setRoomSegment(RoomSegment.LARGE);
+        request.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        request.setPaymentReference("P4145478");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    // A valid period never touches the context
+    @Benchmark
+    public boolean periodValidatorIsValid() {
+        return periodValidator.isValid(request, null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ReservationRequest>> validateRequest() {
+        return validator.validate(request);
+    }
+
+    @Benchmark
+    public String parseTransactionDescription() {
+        return TransactionDescriptionParser.paymentReference("1401541457 P4145478");
+    }
+
+    @Benchmark
+    public PaymentUpdate deserializePaymentUpdate() throws Exception {
+        return paymentUpdateReader.read(paymentUpdateMessage);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReservationHotPathBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
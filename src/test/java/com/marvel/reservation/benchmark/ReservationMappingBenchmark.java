@@ -0,0 +1,70 @@
+package com.marvel.reservation.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.mapper.ReservationMapper;
+import com.marvel.reservation.mapper.ReservationMapperImpl;
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.RoomSegment;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a {@link ReservationRequest} into a {@link Reservation} per booking: the Jackson round trip through
+ * a token buffer that the service used to do, against the generated {@link ReservationMapper}.
+ * Run with {@code -prof gc} to see the bytes allocated per conversion.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReservationMappingBenchmark {
+
+    private ObjectMapper objectMapper;
+    private ReservationMapper reservationMapper;
+    private ReservationRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        reservationMapper = new ReservationMapperImpl();
+
+        request = new ReservationRequest();
+        request.setCustomerName("Tony Stark");
+        request.setRoomNumber("A101");
+        request.setStartDate(LocalDate.of(2030, 3, 10));
+        request.setEndDate(LocalDate.of(2030, 3, 13));
+        request.setRoomSegment(RoomSegment.LARGE);
+        request.setPaymentMode(PaymentMode.CREDIT_CARD);
+        request.setPaymentReference("CC-SUCCESS-123");
+    }
+
+    @Benchmark
+    public Reservation objectMapperConvertValue() {
+        return objectMapper.convertValue(request, Reservation.class);
+    }
+
+    @Benchmark
+    public Reservation generatedMapper() {
+        return reservationMapper.toEntity(request);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ReservationMappingBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.occupancy.RoomNightLedger;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Many threads booking the same hot room through the {@code room_night} ledger on H2.
+ * Every successful booking is cancelled again right away, so the room keeps churning.
+ * Throughput is reported per outcome: {@code booked} and {@code conflicts} give the conflict rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+public class RoomNightLedgerContentionBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final String HOT_ROOM = "HOT-1";
+
+    @State(Scope.Benchmark)
+    public static class Ledger {
+
+        @Param({"14"})
+        private int horizonDays;
+
+        private HikariDataSource dataSource;
+        private RoomNightLedger ledger;
+        private TransactionTemplate transactionTemplate;
+        private final AtomicLong reservationIds = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl("jdbc:h2:mem:ledger-benchmark;DB_CLOSE_DELAY=-1");
+            dataSource.setMaximumPoolSize(32);
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS room_night (id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "room_number VARCHAR(255) NOT NULL, night DATE NOT NULL, reservation_id BIGINT NOT NULL, "
+                    + "CONSTRAINT uk_room_night UNIQUE (room_number, night))");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_room_night_reservation ON room_night (reservation_id)");
+            ledger = new RoomNightLedger(jdbcTemplate);
+            transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            new JdbcTemplate(dataSource).execute("DROP TABLE room_night");
+            dataSource.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long booked;
+        public long conflicts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            conflicts = 0;
+        }
+    }
+
+    @Benchmark
+    public void bookHotRoom(Ledger state, Outcomes outcomes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Reservation reservation = new Reservation();
+        reservation.setId(state.reservationIds.incrementAndGet());
+        reservation.setRoomNumber(HOT_ROOM);
+        reservation.setStartDate(FIRST_DAY.plusDays(random.nextInt(state.horizonDays)));
+        reservation.setEndDate(reservation.getStartDate().plusDays(random.nextInt(3)));
+        try {
+            state.transactionTemplate.executeWithoutResult(status -> state.ledger.bookNights(reservation));
+            outcomes.booked++;
+            state.transactionTemplate.executeWithoutResult(status -> state.ledger.releaseNights(reservation.getId()));
+        } catch (DuplicateKeyException e) {
+            outcomes.conflicts++;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoomNightLedgerContentionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the double-booking check done by {@link RoomOccupancyIndex} with a large number of active reservations.
+ * Every room is filled with back-to-back stays of 1 to 7 nights.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoomOccupancyIndexBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+
+    @Param({"100000", "1000000"})
+    private int activeReservations;
+
+    @Param({"1000"})
+    private int rooms;
+
+    private RoomOccupancyIndex index;
+    private String[] roomNumbers;
+    private int bookedDays;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new RoomOccupancyIndex();
+        roomNumbers = new String[rooms];
+        for (int i = 0; i < rooms; i++) {
+            roomNumbers[i] = "R" + i;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long[] nextFreeDay = new long[rooms];
+        for (int i = 0; i < activeReservations; i++) {
+            int room = i % rooms;
+            LocalDate start = FIRST_DAY.plusDays(nextFreeDay[room]);
+            LocalDate end = start.plusDays(random.nextInt(7));
+            index.tryReserve(roomNumbers[room], start, end);
+            nextFreeDay[room] += end.toEpochDay() - start.toEpochDay() + 1;
+        }
+        bookedDays = (int) nextFreeDay[0];
+    }
+
+    @Benchmark
+    public boolean isAvailable() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        LocalDate start = FIRST_DAY.plusDays(random.nextInt(bookedDays));
+        return index.isAvailable(roomNumbers[random.nextInt(rooms)], start, start.plusDays(random.nextInt(30)));
+    }
+
+    @Benchmark
+    public boolean reserveAndRelease() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String roomNumber = roomNumbers[random.nextInt(rooms)];
+        // Beyond the booked horizon, so the reservation always succeeds and is released again
+        LocalDate start = FIRST_DAY.plusDays(bookedDays + 1L + random.nextInt(365));
+        LocalDate end = start.plusDays(random.nextInt(30));
+        boolean reserved = index.tryReserve(roomNumber, start, end);
+        index.release(roomNumber, start, end);
+        return reserved;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RoomOccupancyIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
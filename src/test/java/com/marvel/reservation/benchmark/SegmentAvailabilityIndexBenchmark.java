@@ -0,0 +1,71 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.SegmentAvailabilityIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a 30-day availability search over a segment of several thousand rooms, about half of them booked.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentAvailabilityIndexBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    private static final int HORIZON_DAYS = 365;
+
+    @Param({"1000", "5000"})
+    private int rooms;
+
+    private SegmentAvailabilityIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SegmentAvailabilityIndex();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int room = 0; room < rooms; room++) {
+            String roomNumber = "L-" + room;
+            index.registerRoom(roomNumber, RoomSegment.LARGE);
+            // Alternate 1-7 night stays with equally long gaps
+            for (long day = random.nextInt(7); day < HORIZON_DAYS; day += 2L * (1 + random.nextInt(7))) {
+                Reservation reservation = new Reservation();
+                reservation.setRoomNumber(roomNumber);
+                reservation.setRoomSegment(RoomSegment.LARGE);
+                reservation.setStartDate(FIRST_DAY.plusDays(day));
+                reservation.setEndDate(FIRST_DAY.plusDays(day + random.nextInt(7)));
+                index.markOccupied(reservation);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> findAvailableRoomsForOneNight() {
+        LocalDate start = FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(HORIZON_DAYS));
+        return index.findAvailableRooms(RoomSegment.LARGE, start, start);
+    }
+
+    @Benchmark
+    public List<String> findAvailableRoomsForThirtyNights() {
+        LocalDate start = FIRST_DAY.plusDays(ThreadLocalRandom.current().nextInt(HORIZON_DAYS - 30));
+        return index.findAvailableRooms(RoomSegment.LARGE, start, start.plusDays(29));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(SegmentAvailabilityIndexBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
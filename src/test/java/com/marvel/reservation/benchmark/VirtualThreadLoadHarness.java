@@ -0,0 +1,157 @@
+package com.marvel.reservation.benchmark;
+
+import com.marvel.reservation.RoomReservationServiceApplication;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load test of {@code POST /api/v1/reservations/confirm} with credit card payments against a slow stub
+ * credit card service, once on platform threads and once with {@code spring.threads.virtual.enabled=true}.
+ * Every request books its own room, so the card call dominates the response time.
+ * <p>
+ * Arguments: concurrent clients (default 1000), requests per client (default 5), card service delay in ms (default 200).
+ */
+public class VirtualThreadLoadHarness {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requestsPerClient = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int cardDelayMillis = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        HttpServer cardService = startSlowCardService(cardDelayMillis);
+        try {
+            String cardUrl = "http://localhost:" + cardService.getAddress().getPort() + "/api/v1/payment-status";
+            List<String> results = new ArrayList<>();
+            for (boolean virtualThreads : new boolean[]{false, true}) {
+                results.add(run(virtualThreads, cardUrl, clients, requestsPerClient));
+            }
+            System.out.printf("%nclients=%d requests/client=%d card delay=%dms%n", clients, requestsPerClient, cardDelayMillis);
+            System.out.printf("%-10s %10s %10s %10s %10s %8s%n", "mode", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            results.forEach(System.out::println);
+        } finally {
+            cardService.stop(0);
+        }
+    }
+
+    private static String run(boolean virtualThreads, String cardUrl, int clients, int requestsPerClient) throws Exception {
+        String mode = virtualThreads ? "virtual" : "platform";
+        // Passed as arguments, so they win over the test application.properties on the classpath
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(RoomReservationServiceApplication.class)
+                .run("--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode,
+                        "--spring.jpa.show-sql=false",
+                        "--spring.jpa.open-in-view=false",
+                        "--spring.kafka.listener.auto-startup=false",
+                        "--spring.task.scheduling.enabled=false",
+                        "--logging.level.root=WARN",
+                        "--credit.card.payment.service.url=" + cardUrl)) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            URI confirmUri = URI.create("http://localhost:" + port + "/api/v1/reservations/confirm");
+
+            // Warm up the request path before measuring
+            drive(confirmUri, mode + "-warmup", 50, 4);
+            long started = System.nanoTime();
+            long[] latencies = drive(confirmUri, mode, clients, requestsPerClient);
+            double seconds = (System.nanoTime() - started) / 1e9;
+
+            long errors = Arrays.stream(latencies).filter(latency -> latency < 0).count();
+            long[] succeeded = Arrays.stream(latencies).filter(latency -> latency >= 0).sorted().toArray();
+            return String.format("%-10s %10.0f %10.1f %10.1f %10.1f %8d", mode, latencies.length / seconds,
+                    percentile(succeeded, 0.50), percentile(succeeded, 0.99), percentile(succeeded, 1.0), errors);
+        }
+    }
+
+    /**
+     * Sends the requests from {@code clients} concurrent clients and returns the latency of every request
+     * in nanoseconds, or -1 when it did not return 201.
+     */
+    private static long[] drive(URI confirmUri, String roomPrefix, int clients, int requestsPerClient) throws Exception {
+        LocalDate startDate = LocalDate.now().plusDays(1);
+        try (ExecutorService clientThreads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder().executor(clientThreads).build()) {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int client = 0; client < clients; client++) {
+                String roomNumber = roomPrefix + "-" + client;
+                futures.add(clientThreads.submit(() -> {
+                    long[] latencies = new long[requestsPerClient];
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        LocalDate day = startDate.plusDays(i);
+                        HttpRequest request = HttpRequest.newBuilder(confirmUri)
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(reservationJson(roomNumber, day)))
+                                .build();
+                        long sent = System.nanoTime();
+                        int status;
+                        try {
+                            status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (IOException e) {
+                            status = -1;
+                        }
+                        latencies[i] = status == 201 ? System.nanoTime() - sent : -1;
+                    }
+                    return latencies;
+                }));
+            }
+            List<Long> all = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                Arrays.stream(future.get()).forEach(all::add);
+            }
+            return all.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    private static String reservationJson(String roomNumber, LocalDate day) {
+        return """
+                {"customerName":"Load Test","roomNumber":"%s","startDate":"%s","endDate":"%s",
+                 "roomSegment":"SMALL","paymentMode":"CREDIT_CARD","paymentReference":"CC-%s-%s"}
+                """.formatted(roomNumber, day, day, roomNumber, day);
+    }
+
+    private static HttpServer startSlowCardService(int delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        byte[] confirmed = "{\"status\":\"CONFIRMED\"}".getBytes(StandardCharsets.UTF_8);
+        server.createContext("/api/v1/payment-status", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, confirmed.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(confirmed);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static double percentile(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+}
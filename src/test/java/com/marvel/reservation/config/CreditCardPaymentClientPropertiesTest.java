@@ -0,0 +1,41 @@
+package com.marvel.reservation.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.validation.autoconfigure.ValidationAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CreditCardPaymentClientPropertiesTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(ValidationAutoConfiguration.class))
+            .withUserConfiguration(PropertiesConfig.class);
+
+    @Test
+    void batchMaxSize_shouldBeAccepted_upToTheLimitOfTheBatchEndpoint() {
+        contextRunner.withPropertyValues("credit.card.payment.client.batch.max-size=100")
+                .run(context -> assertThat(context.getBean(CreditCardPaymentClientProperties.class).getBatch().getMaxSize())
+                        .isEqualTo(100));
+    }
+
+    @Test
+    void batchMaxSize_shouldFailTheStartup_aboveTheLimitOfTheBatchEndpoint() {
+        contextRunner.withPropertyValues("credit.card.payment.client.batch.max-size=101")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Test
+    void batchMaxSize_shouldFailTheStartup_whenNotPositive() {
+        contextRunner.withPropertyValues("credit.card.payment.client.batch.max-size=0")
+                .run(context -> assertThat(context).hasFailed());
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(CreditCardPaymentClientProperties.class)
+    static class PropertiesConfig {
+    }
+}
@@ -0,0 +1,63 @@
+package com.marvel.reservation.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CreditCardVerificationExecutorTest {
+
+    private final AppConfig appConfig = new AppConfig();
+
+    @Test
+    void saturatedPool_shouldRejectTheCheck_insteadOfRunningItOnTheCaller() throws Exception {
+        ThreadPoolTaskExecutor executor = (ThreadPoolTaskExecutor) appConfig.creditCardVerificationExecutor(false, 1, 1, 0);
+        executor.initialize();
+        try {
+            assertSaturatedExecutorRejects(executor, 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void saturatedVirtualThreads_shouldRejectTheCheck_insteadOfBlockingTheCaller() throws Exception {
+        SimpleAsyncTaskExecutor executor = (SimpleAsyncTaskExecutor) appConfig.creditCardVerificationExecutor(true, 0, 0, 1);
+        try {
+            assertSaturatedExecutorRejects(executor, 1);
+        } finally {
+            executor.close();
+        }
+    }
+
+    // Fills the executor with checks blocked on a latch, then submits one more from this thread
+    private static void assertSaturatedExecutorRejects(TaskExecutor executor, int capacity) throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(capacity);
+        for (int i = 0; i < capacity; i++) {
+            executor.execute(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.countDown();
+            });
+        }
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        assertThatThrownBy(() -> executor.execute(() -> ranOn.set(Thread.currentThread())))
+                .isInstanceOf(TaskRejectedException.class);
+
+        release.countDown();
+        done.await();
+        assertThat(ranOn.get()).isNull();
+    }
+}
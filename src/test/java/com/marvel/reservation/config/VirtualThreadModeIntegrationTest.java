@@ -0,0 +1,41 @@
+package com.marvel.reservation.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "spring.threads.virtual.enabled=true")
+@ActiveProfiles("test")
+class VirtualThreadModeIntegrationTest {
+
+    @Autowired
+    @Qualifier("creditCardVerificationExecutor")
+    private TaskExecutor creditCardVerificationExecutor;
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @Test
+    void creditCardVerifications_shouldRunOnVirtualThreads() throws Exception {
+        CompletableFuture<Thread> worker = new CompletableFuture<>();
+
+        creditCardVerificationExecutor.execute(() -> worker.complete(Thread.currentThread()));
+
+        Thread thread = worker.get(5, TimeUnit.SECONDS);
+        assertThat(thread.isVirtual()).isTrue();
+        assertThat(thread.getName()).startsWith("card-verification-");
+    }
+
+    @Test
+    void pinningMonitor_shouldBeRunning() {
+        assertThat(pinningMonitor.isRunning()).isTrue();
+    }
+}
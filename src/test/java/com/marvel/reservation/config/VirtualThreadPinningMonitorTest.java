@@ -0,0 +1,57 @@
+package com.marvel.reservation.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class VirtualThreadPinningMonitorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor(meterRegistry, Duration.ofMillis(10));
+
+    @AfterEach
+    void tearDown() {
+        monitor.stop();
+    }
+
+    @Test
+    void shouldCountVirtualThreadsBlockingInsideSynchronized() throws Exception {
+        monitor.start();
+        Object lock = new Object();
+
+        Thread.ofVirtual().start(() -> {
+            synchronized (lock) {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }).join();
+
+        // JFR streams the recorded events about once per second
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (pinnedCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        assertThat(pinnedCount()).isGreaterThanOrEqualTo(1);
+        assertThat(monitor.isRunning()).isTrue();
+    }
+
+    @Test
+    void stop_shouldCloseTheRecording() {
+        monitor.start();
+
+        monitor.stop();
+
+        assertThat(monitor.isRunning()).isFalse();
+    }
+
+    private double pinnedCount() {
+        return meterRegistry.counter("jvm.threads.virtual.pinned").count();
+    }
+}
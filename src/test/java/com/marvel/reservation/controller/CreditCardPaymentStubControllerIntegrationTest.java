@@ -0,0 +1,65 @@
+package com.marvel.reservation.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "card-stub.latency=0ms")
+@ActiveProfiles({"test", "card-stub"})
+class CreditCardPaymentStubControllerIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/card-stub/api/v1" + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void paymentStatus_shouldAnswerSingleLookups() throws Exception {
+        HttpResponse<String> confirmed = post("/payment-status", "{\"paymentReference\":\"CC-123\"}");
+        HttpResponse<String> unknown = post("/payment-status", "{\"paymentReference\":\"CC-UNKNOWN\"}");
+
+        assertThat(confirmed.statusCode()).isEqualTo(200);
+        assertThat(objectMapper.readTree(confirmed.body()).get("status").asText()).isEqualTo("CONFIRMED");
+        assertThat(unknown.statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void paymentStatusBatch_shouldAnswerEveryKnownReference() throws Exception {
+        HttpResponse<String> response = post("/payment-status/batch",
+                "{\"paymentReferences\":[\"CC-1\",\"CC-REJECT-2\",\"CC-UNKNOWN-3\"]}");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        JsonNode payments = objectMapper.readTree(response.body()).get("payments");
+        assertThat(payments).hasSize(2);
+        assertThat(payments.get(0).get("paymentReference").asText()).isEqualTo("CC-1");
+        assertThat(payments.get(0).get("status").asText()).isEqualTo("CONFIRMED");
+        assertThat(payments.get(1).get("status").asText()).isEqualTo("REJECTED");
+    }
+
+    @Test
+    void paymentStatusBatch_shouldRejectAnEmptyBatch() throws Exception {
+        assertThat(post("/payment-status/batch", "{\"paymentReferences\":[]}").statusCode()).isEqualTo(400);
+    }
+}
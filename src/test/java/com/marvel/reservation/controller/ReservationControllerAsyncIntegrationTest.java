@@ -0,0 +1,107 @@
+package com.marvel.reservation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.repository.ReservationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "reservation.credit-card.async.enabled=true")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReservationControllerAsyncIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    private ReservationRequest createRequest(String roomNumber, PaymentMode mode, String ref) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Async Test User");
+        request.setRoomNumber(roomNumber);
+        request.setStartDate(LocalDate.now().plusDays(1));
+        request.setEndDate(LocalDate.now().plusDays(2));
+        request.setRoomSegment(RoomSegment.SMALL);
+        request.setPaymentMode(mode);
+        request.setPaymentReference(ref);
+        return request;
+    }
+
+    private Long accept(ReservationRequest request) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", startsWith("http://localhost/api/v1/reservations/")))
+                .andExpect(jsonPath("$.reservationStatus", is(ReservationStatus.PENDING_PAYMENT.name())))
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("reservationId").asLong();
+    }
+
+    private ReservationStatus awaitFinalStatus(Long reservationId) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            ReservationStatus status = reservationRepository.findById(reservationId).orElseThrow().getStatus();
+            if (status != ReservationStatus.PENDING_PAYMENT) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+        return ReservationStatus.PENDING_PAYMENT;
+    }
+
+    @Test
+    void confirmReservation_CREDIT_CARD_shouldBeAcceptedAndConfirmedInBackground() throws Exception {
+        Long reservationId = accept(createRequest("ASYNC-1", PaymentMode.CREDIT_CARD, "CC-SUCCESS-ASYNC"));
+
+        assertThat(awaitFinalStatus(reservationId)).isEqualTo(ReservationStatus.CONFIRMED);
+        mockMvc.perform(get("/api/v1/reservations/{id}", reservationId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.reservationStatus", is(ReservationStatus.CONFIRMED.name())));
+    }
+
+    @Test
+    void confirmReservation_CREDIT_CARD_shouldBeCancelledInBackground_whenPaymentFails() throws Exception {
+        Long reservationId = accept(createRequest("ASYNC-2", PaymentMode.CREDIT_CARD, "CC-FAIL-ASYNC"));
+
+        assertThat(awaitFinalStatus(reservationId)).isEqualTo(ReservationStatus.CANCELLED);
+    }
+
+    @Test
+    void confirmReservation_CASH_shouldStillBeCreated() throws Exception {
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest("ASYNC-3", PaymentMode.CASH, null))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void getReservation_shouldReturnNotFound_forUnknownId() throws Exception {
+        mockMvc.perform(get("/api/v1/reservations/{id}", 987654321L))
+                .andExpect(status().isNotFound());
+    }
+}
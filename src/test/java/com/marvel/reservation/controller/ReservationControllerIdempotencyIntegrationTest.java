@@ -0,0 +1,209 @@
+package com.marvel.reservation.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.occupancy.SegmentAvailabilityIndex;
+import com.marvel.reservation.repository.ReservationRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "reservation.idempotency.wait-timeout=300ms")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReservationControllerIdempotencyIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RoomOccupancyIndex roomOccupancyIndex;
+
+    @Autowired
+    private SegmentAvailabilityIndex segmentAvailabilityIndex;
+
+    @BeforeEach
+    void setUp() {
+        reservationRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM room_night");
+        jdbcTemplate.update("DELETE FROM idempotency_key");
+        roomOccupancyIndex.rebuild(List.of());
+        segmentAvailabilityIndex.rebuild(List.of());
+    }
+
+    private ReservationRequest createRequest(PaymentMode mode, String ref) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Idempotent User");
+        request.setRoomNumber("ID-101");
+        request.setStartDate(LocalDate.now().plusDays(1));
+        request.setEndDate(LocalDate.now().plusDays(2));
+        request.setRoomSegment(RoomSegment.LARGE);
+        request.setPaymentMode(mode);
+        request.setPaymentReference(ref);
+        return request;
+    }
+
+    private ResultActions confirm(String key, ReservationRequest request) throws Exception {
+        return mockMvc.perform(post("/api/v1/reservations/confirm")
+                .header("Idempotency-Key", key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)));
+    }
+
+    private long reservationId(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("reservationId").asLong();
+    }
+
+    private int countKeys() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key", Integer.class);
+    }
+
+    @Test
+    void confirmReservation_shouldReplayTheFirstResponse_whenKeyIsRepeated() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ReservationRequest request = createRequest(PaymentMode.CREDIT_CARD, "CC-SUCCESS-1");
+
+        MvcResult first = confirm(key, request)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"))
+                .andReturn();
+        MvcResult repeated = confirm(key, request)
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Idempotent-Replayed", "true"))
+                .andExpect(jsonPath("$.reservationStatus", is("CONFIRMED")))
+                .andReturn();
+
+        assertThat(reservationId(repeated)).isEqualTo(reservationId(first));
+        assertThat(reservationRepository.count()).isEqualTo(1);
+        assertThat(countKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmReservation_shouldReturn422_whenKeyIsReusedForAnotherRequest() throws Exception {
+        String key = UUID.randomUUID().toString();
+        confirm(key, createRequest(PaymentMode.CASH, "CASH-1")).andExpect(status().isCreated());
+
+        ReservationRequest other = createRequest(PaymentMode.CASH, "CASH-1");
+        other.setRoomNumber("ID-102");
+
+        confirm(key, other).andExpect(status().isUnprocessableContent());
+        assertThat(reservationRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmReservation_shouldRunOnce_whenDuplicatesAreConcurrent() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ReservationRequest request = createRequest(PaymentMode.BANK_TRANSFER, "P4145478");
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<MvcResult>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 10; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return confirm(key, request).andReturn();
+                }));
+            }
+            start.countDown();
+            List<Long> ids = new ArrayList<>();
+            for (Future<MvcResult> result : results) {
+                MvcResult response = result.get(10, TimeUnit.SECONDS);
+                assertThat(response.getResponse().getStatus()).isEqualTo(201);
+                ids.add(reservationId(response));
+            }
+            assertThat(ids).containsOnly(ids.getFirst());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(reservationRepository.count()).isEqualTo(1);
+        assertThat(countKeys()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmReservation_shouldNotStoreTheKey_whenTheRequestFails() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ReservationRequest request = createRequest(PaymentMode.BANK_TRANSFER, null);
+
+        confirm(key, request).andExpect(status().isBadRequest());
+        assertThat(countKeys()).isZero();
+
+        request.setPaymentReference("P4145478");
+        confirm(key, request)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+    }
+
+    @Test
+    void confirmReservation_shouldReturn409_whenTheKeyIsInProgressElsewhere() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ReservationRequest request = createRequest(PaymentMode.CASH, "CASH-1");
+        claimElsewhere(key, request, Instant.now());
+
+        confirm(key, request).andExpect(status().isConflict());
+        assertThat(reservationRepository.count()).isZero();
+    }
+
+    @Test
+    void confirmReservation_shouldTakeOverAnAbandonedKey() throws Exception {
+        String key = UUID.randomUUID().toString();
+        ReservationRequest request = createRequest(PaymentMode.CASH, "CASH-1");
+        claimElsewhere(key, request, Instant.now().minus(Duration.ofMinutes(5)));
+
+        confirm(key, request)
+                .andExpect(status().isCreated())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+        assertThat(reservationRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmReservation_shouldReturn400_whenKeyIsTooLong() throws Exception {
+        confirm("k".repeat(256), createRequest(PaymentMode.CASH, "CASH-1")).andExpect(status().isBadRequest());
+    }
+
+    // A claim written by the same request running on another instance
+    private void claimElsewhere(String key, ReservationRequest request, Instant createdAt) throws Exception {
+        String fingerprint = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(objectMapper.writeValueAsBytes(request)));
+        jdbcTemplate.update("INSERT INTO idempotency_key (idempotency_key, fingerprint, state, created_at, expires_at) "
+                        + "VALUES (?, ?, 'IN_PROGRESS', ?, ?)", key, fingerprint,
+                Timestamp.from(createdAt), Timestamp.from(createdAt.plus(Duration.ofDays(1))));
+    }
+}
@@ -3,12 +3,16 @@ package com.marvel.reservation.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.marvel.reservation.constant.Constants;
 import com.marvel.reservation.dto.ReservationRequest;
 import com.marvel.reservation.model.enums.PaymentMode;
 import com.marvel.reservation.model.enums.ReservationStatus;
 import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.occupancy.SegmentAvailabilityIndex;
 import com.marvel.reservation.repository.ReservationRepository;
 import com.marvel.reservation.service.CreditCardPaymentService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.TestConfiguration;
@@ -17,12 +21,18 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
+import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -44,11 +54,26 @@ class ReservationControllerIntegrationTest {
     @Autowired
     private CreditCardPaymentService creditCardPaymentService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RoomOccupancyIndex roomOccupancyIndex;
+
+    @Autowired
+    private SegmentAvailabilityIndex segmentAvailabilityIndex;
+
     @BeforeEach
     void setUp() {
         objectMapper.registerModule(new JavaTimeModule());
         objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
         reservationRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM room_night");
+        roomOccupancyIndex.rebuild(List.of());
+        segmentAvailabilityIndex.rebuild(List.of());
     }
 
     private ReservationRequest createBaseRequest(PaymentMode mode, String ref) {
@@ -118,6 +143,19 @@ class ReservationControllerIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void confirmReservation_CREDIT_CARD_shouldReturnServiceUnavailable_whenTheCardServiceCircuitIsOpen() throws Exception {
+        ReservationRequest request = createBaseRequest(PaymentMode.CREDIT_CARD, "CC-UNAVAILABLE-123");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.error", is("Credit card payment service is unavailable. Please retry later.")));
+
+        assertThat(reservationRepository.count()).isZero();
+    }
+
     @Test
     void confirmReservation_shouldFail_whenReservationIsTooLong() throws Exception {
         ReservationRequest request = createBaseRequest(PaymentMode.CASH, null);
@@ -129,6 +167,125 @@ class ReservationControllerIntegrationTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void confirmReservation_shouldRecordConnectionHoldTime() throws Exception {
+        ReservationRequest request = createBaseRequest(PaymentMode.CREDIT_CARD, "CC-SUCCESS-123");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        assertThat(meterRegistry.get("reservation.write.transaction").tag("operation", "confirm").timer().count()).isPositive();
+        assertThat(meterRegistry.get("hikaricp.connections.usage").timer().count()).isPositive();
+    }
+
+    @Test
+    void confirmReservation_shouldReturnConflict_whenRoomIsAlreadyReserved() throws Exception {
+        ReservationRequest request = createBaseRequest(PaymentMode.CASH, "CASH-REF-1");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void confirmReservation_shouldReturnConflict_whenNightIsTakenByAnotherInstance() throws Exception {
+        ReservationRequest request = createBaseRequest(PaymentMode.CASH, "CASH-REF-1");
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+        // Simulate a booking accepted by another node: only the ledger knows about it
+        roomOccupancyIndex.rebuild(List.of());
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isConflict());
+
+        assertThat(reservationRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmReservation_shouldReturnConflict_whenPaymentReferenceIsAlreadyUsed() throws Exception {
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createBaseRequest(PaymentMode.BANK_TRANSFER, "P4145478"))))
+                .andExpect(status().isCreated());
+        ReservationRequest otherRoom = createBaseRequest(PaymentMode.BANK_TRANSFER, "P4145478");
+        otherRoom.setRoomNumber("IT-102");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherRoom)))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error", is(String.format(Constants.PAYMENT_REFERENCE_ALREADY_USED, "P4145478"))));
+
+        assertThat(reservationRepository.count()).isEqualTo(1);
+        // The room of the rejected reservation is free again
+        otherRoom.setPaymentReference("P4145479");
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(otherRoom)))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void confirmReservations_shouldPersistValidItemsAndReportFailures() throws Exception {
+        ReservationRequest cash = createBaseRequest(PaymentMode.CASH, "CASH-REF-1");
+        ReservationRequest bankTransfer = createBaseRequest(PaymentMode.BANK_TRANSFER, "P4145478");
+        bankTransfer.setRoomNumber("IT-102");
+        ReservationRequest creditCardFailure = createBaseRequest(PaymentMode.CREDIT_CARD, "CC-FAIL-123");
+        creditCardFailure.setRoomNumber("IT-103");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(cash, bankTransfer, creditCardFailure))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted", is(2)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.results[0].reservationStatus", is(ReservationStatus.CONFIRMED.name())))
+                .andExpect(jsonPath("$.results[1].reservationStatus", is(ReservationStatus.PENDING_PAYMENT.name())))
+                .andExpect(jsonPath("$.results[2].error", is("Credit card payment not confirmed. Reservation failed.")));
+
+        assertThat(reservationRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    void findAvailableRooms_shouldExcludeReservedRooms() throws Exception {
+        segmentAvailabilityIndex.registerRoom("IT-102", RoomSegment.LARGE);
+        ReservationRequest request = createBaseRequest(PaymentMode.CASH, "CASH-REF-1");
+
+        mockMvc.perform(post("/api/v1/reservations/confirm")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/v1/reservations/availability")
+                        .param("segment", RoomSegment.LARGE.name())
+                        .param("start", request.getStartDate().toString())
+                        .param("end", request.getEndDate().toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.availableRooms", hasItem("IT-102")))
+                .andExpect(jsonPath("$.availableRooms", not(hasItem("IT-101"))));
+    }
+
+    @Test
+    void findAvailableRooms_shouldFail_whenPeriodIsTooLong() throws Exception {
+        mockMvc.perform(get("/api/v1/reservations/availability")
+                        .param("segment", RoomSegment.LARGE.name())
+                        .param("start", LocalDate.now().toString())
+                        .param("end", LocalDate.now().plusDays(40).toString()))
+                .andExpect(status().isBadRequest());
+    }
+
     // Test Configuration to stub CreditCardPaymentService
     @TestConfiguration
     static class ReservationTestConfig {
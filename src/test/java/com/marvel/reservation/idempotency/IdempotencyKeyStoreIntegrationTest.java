@@ -0,0 +1,93 @@
+package com.marvel.reservation.idempotency;
+
+import com.marvel.reservation.model.IdempotencyKey;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(IdempotencyKeyStore.class)
+class IdempotencyKeyStoreIntegrationTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant EXPIRES_AT = NOW.plus(Duration.ofHours(24));
+
+    @Autowired
+    private IdempotencyKeyStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM idempotency_key");
+    }
+
+    @Test
+    void claim_shouldSucceedOnlyOncePerKey() {
+        assertThat(store.claim("key-1", "fp", NOW, EXPIRES_AT)).isTrue();
+        assertThat(store.claim("key-1", "fp", NOW, EXPIRES_AT)).isFalse();
+
+        IdempotencyKey row = store.find("key-1").orElseThrow();
+        assertThat(row.getState()).isEqualTo(IdempotencyKey.State.IN_PROGRESS);
+        assertThat(row.getFingerprint()).isEqualTo("fp");
+        assertThat(row.getCreatedAt()).isEqualTo(NOW);
+    }
+
+    @Test
+    void complete_shouldStoreTheResponse() {
+        store.claim("key-1", "fp", NOW, EXPIRES_AT);
+
+        store.complete("key-1", new StoredResponse("fp", 201, 42L, ReservationStatus.CONFIRMED, null), EXPIRES_AT);
+
+        IdempotencyKey row = store.find("key-1").orElseThrow();
+        assertThat(row.getState()).isEqualTo(IdempotencyKey.State.COMPLETED);
+        assertThat(StoredResponse.of(row)).isEqualTo(new StoredResponse("fp", 201, 42L, ReservationStatus.CONFIRMED, null));
+    }
+
+    @Test
+    void release_shouldOnlyDeleteClaimsInProgress() {
+        store.claim("key-1", "fp", NOW, EXPIRES_AT);
+        store.claim("key-2", "fp", NOW, EXPIRES_AT);
+        store.complete("key-2", new StoredResponse("fp", 201, 42L, ReservationStatus.CONFIRMED, null), EXPIRES_AT);
+
+        store.release("key-1");
+        store.release("key-2");
+
+        assertThat(store.find("key-1")).isEmpty();
+        assertThat(store.find("key-2")).isPresent();
+    }
+
+    @Test
+    void remove_shouldKeepARowClaimedAgainInTheMeantime() {
+        store.claim("key-1", "fp", NOW, EXPIRES_AT);
+        IdempotencyKey stale = store.find("key-1").orElseThrow();
+        store.remove(stale);
+        store.claim("key-1", "fp", NOW.plusSeconds(1), EXPIRES_AT);
+
+        assertThat(store.remove(stale)).isFalse();
+        assertThat(store.find("key-1")).isPresent();
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteOnlyExpiredKeys() {
+        store.claim("expired", "fp", NOW.minus(Duration.ofDays(2)), NOW.minus(Duration.ofDays(1)));
+        store.claim("live", "fp", NOW, EXPIRES_AT);
+
+        assertThat(store.purgeExpired(NOW)).isEqualTo(1);
+        assertThat(store.find("expired")).isEmpty();
+        assertThat(store.find("live")).isPresent();
+    }
+}
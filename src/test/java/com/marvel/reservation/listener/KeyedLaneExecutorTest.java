@@ -0,0 +1,112 @@
+package com.marvel.reservation.listener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyedLaneExecutorTest {
+
+    private final KeyedLaneExecutor executor = new KeyedLaneExecutor(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.destroy();
+    }
+
+    @Test
+    void run_shouldKeepTheOrderOfOneKey_acrossCallingThreads() throws Exception {
+        Map<String, List<Integer>> appliedPerKey = new ConcurrentHashMap<>();
+        ExecutorService consumers = Executors.newFixedThreadPool(4);
+        List<Future<?>> submissions = new ArrayList<>();
+        // Every consumer thread submits its updates in order; sequence numbers of a key only grow within one thread
+        for (int consumer = 0; consumer < 4; consumer++) {
+            String key = "P000000" + consumer;
+            submissions.add(consumers.submit(() -> {
+                for (int sequence = 0; sequence < 200; sequence++) {
+                    int applied = sequence;
+                    executor.run(key, () -> appliedPerKey
+                            .computeIfAbsent(key, k -> Collections.synchronizedList(new ArrayList<>())).add(applied));
+                }
+            }));
+        }
+        for (Future<?> submission : submissions) {
+            submission.get(10, TimeUnit.SECONDS);
+        }
+        consumers.shutdown();
+
+        assertThat(appliedPerKey).hasSize(4);
+        appliedPerKey.values().forEach(applied -> assertThat(applied).hasSize(200).isSorted());
+    }
+
+    @Test
+    void runInLanes_shouldGroupItemsOfOneKeyOnOneLane_inOrder() {
+        List<String> items = List.of("A-1", "B-1", "A-2", "C-1", "B-2", "A-3");
+        Map<String, List<String>> batchesPerKey = new ConcurrentHashMap<>();
+
+        executor.runInLanes(items, item -> item.substring(0, 1), laneItems ->
+                laneItems.forEach(item -> batchesPerKey
+                        .computeIfAbsent(item.substring(0, 1), k -> Collections.synchronizedList(new ArrayList<>())).add(item)));
+
+        assertThat(batchesPerKey.get("A")).containsExactly("A-1", "A-2", "A-3");
+        assertThat(batchesPerKey.get("B")).containsExactly("B-1", "B-2");
+        assertThat(batchesPerKey.get("C")).containsExactly("C-1");
+    }
+
+    @Test
+    void runInLanes_shouldRunDifferentLanesInParallel() {
+        // Keys 0..3 hash to the four different lanes; every lane waits until all of them have started
+        CountDownLatch allLanesStarted = new CountDownLatch(4);
+        Function<Integer, String> keyOf = lane -> String.valueOf((char) ('0' + lane));
+
+        executor.runInLanes(List.of(0, 1, 2, 3), keyOf, laneItems -> {
+            allLanesStarted.countDown();
+            try {
+                assertThat(allLanesStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThat(allLanesStarted.getCount()).isZero();
+    }
+
+    @Test
+    void runInLanes_shouldRethrowTheFailureOfALane_afterAllLanesFinished() {
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+        assertThrows(IllegalStateException.class, () -> executor.runInLanes(List.of("0", "1", "2"), key -> key, laneItems -> {
+            if (laneItems.contains("1")) {
+                throw new IllegalStateException("database down");
+            }
+            completed.addAll(laneItems);
+        }));
+        assertThat(completed).containsExactlyInAnyOrder("0", "2");
+    }
+
+    @Test
+    void withoutLanes_shouldRunOnTheCallingThread() {
+        KeyedLaneExecutor direct = new KeyedLaneExecutor(0);
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+
+        direct.run("P0000001", () -> threads.add(Thread.currentThread()));
+        direct.runInLanes(List.of("P0000001", "P0000002"), key -> key, items -> threads.add(Thread.currentThread()));
+
+        assertThat(direct.isEnabled()).isFalse();
+        assertThat(threads).containsExactly(caller, caller);
+    }
+}
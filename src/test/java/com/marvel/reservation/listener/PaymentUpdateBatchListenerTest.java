@@ -0,0 +1,113 @@
+package com.marvel.reservation.listener;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.listener.ConsumerRecordRecoverer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentUpdateBatchListenerTest {
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Spy
+    private PaymentUpdateReader paymentUpdateReader = new PaymentUpdateReader(new ObjectMapper());
+
+    @Spy
+    private KeyedLaneExecutor keyedLaneExecutor = new KeyedLaneExecutor(0);
+
+    @Mock
+    private PaymentUpdateDeduplicator paymentUpdateDeduplicator;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private ConsumerRecordRecoverer deadLetterRecoverer;
+
+    @InjectMocks
+    private PaymentUpdateBatchListener listener;
+
+    private ConsumerRecord<String, byte[]> message(String paymentId, String transactionDescription) {
+        return record("{\"paymentId\":\"" + paymentId + "\",\"debtorAccountNumber\":\"ACC-001\","
+                + "\"amountReceived\":100.00,\"transactionDescription\":\"" + transactionDescription + "\"}");
+    }
+
+    private ConsumerRecord<String, byte[]> record(String value) {
+        return new ConsumerRecord<>(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, 0, 0L, null, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void handlePaymentUpdates_shouldConfirmTheWholeBatchAtOnce() {
+        listener.handlePaymentUpdates(List.of(
+                message("1", "1401541457 P0000001"),
+                message("2", "1401541458 P0000002"),
+                message("3", "1401541459 P0000003")));
+
+        verify(reservationService, times(1))
+                .confirmBankTransferPayments(List.of("1401541457 P0000001", "1401541458 P0000002", "1401541459 P0000003"));
+        verify(reservationService, never()).confirmBankTransferPayment(anyString());
+        verifyNoInteractions(deadLetterRecoverer);
+        assertThat(meterRegistry.summary(PaymentUpdateBatchListener.BATCH_SIZE_METRIC).totalAmount()).isEqualTo(3);
+        assertThat(meterRegistry.counter(PaymentUpdateBatchListener.RECORDS_METRIC).count()).isEqualTo(3);
+        assertThat(meterRegistry.timer(PaymentUpdateBatchListener.BATCH_TIMER_METRIC).count()).isEqualTo(1);
+    }
+
+    @Test
+    void handlePaymentUpdates_shouldDropDuplicates_fromEarlierBatchesAndWithinTheBatch() {
+        when(paymentUpdateDeduplicator.isDuplicate("1")).thenReturn(true);
+
+        listener.handlePaymentUpdates(List.of(
+                message("1", "1401541457 P0000001"),
+                message("2", "1401541458 P0000002"),
+                message("2", "1401541458 P0000002"),
+                message("3", "1401541459 P0000003")));
+
+        verify(reservationService).confirmBankTransferPayments(List.of("1401541458 P0000002", "1401541459 P0000003"));
+        verify(paymentUpdateDeduplicator).markProcessed("2");
+        verify(paymentUpdateDeduplicator).markProcessed("3");
+        verify(paymentUpdateDeduplicator, never()).markProcessed("1");
+    }
+
+    @Test
+    void handlePaymentUpdates_shouldPropagateFailures_soThatTheBatchIsRedelivered() {
+        doThrow(new IllegalStateException("database down")).when(reservationService).confirmBankTransferPayments(anyList());
+
+        assertThrows(IllegalStateException.class,
+                () -> listener.handlePaymentUpdates(List.of(message("1", "1401541457 P0000001"))));
+        assertThat(meterRegistry.counter(PaymentUpdateBatchListener.RECORDS_METRIC).count()).isZero();
+        verify(paymentUpdateDeduplicator, never()).markProcessed(anyString());
+    }
+
+    @Test
+    void handlePaymentUpdates_shouldSendRecordsThatCannotSucceedToTheDeadLetterTopic() {
+        ConsumerRecord<String, byte[]> undecodable = record("invalid json");
+        ConsumerRecord<String, byte[]> invalidDescription = message("2", "1401541458");
+
+        listener.handlePaymentUpdates(List.of(message("1", "1401541457 P0000001"), undecodable, invalidDescription));
+
+        verify(deadLetterRecoverer).accept(eq(undecodable), argThat(e -> e.getCause() instanceof JsonProcessingException));
+        verify(deadLetterRecoverer).accept(eq(invalidDescription), argThat(e -> e.getCause() instanceof ValidationException));
+        verify(reservationService).confirmBankTransferPayments(List.of("1401541457 P0000001"));
+        verify(paymentUpdateDeduplicator, never()).markProcessed("2");
+    }
+}
@@ -0,0 +1,123 @@
+package com.marvel.reservation.listener;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Retries and dead letters of {@link PaymentUpdateBatchListener} against an embedded broker: a batch that keeps failing
+ * is retried in place, then its records move to the dead-letter topic of record mode. Records that cannot succeed move
+ * there at once, without holding back the rest of their batch.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.listener.auto-startup=true",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "reservation.payment-updates.batch.enabled=true",
+        "reservation.payment-updates.concurrency=1",
+        "reservation.payment-updates.retry.attempts=3",
+        "reservation.payment-updates.retry.delay=200",
+        "reservation.payment-updates.retry.multiplier=1.0"
+})
+@EmbeddedKafka(partitions = 1, topics = {Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE_DLT})
+@ActiveProfiles("test")
+@DirtiesContext
+class PaymentUpdateBatchRetryKafkaIntegrationTest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private ReservationService reservationService;
+
+    @Test
+    void failingBatch_shouldBeRetried_thenMovedToTheDeadLetterTopic() {
+        AtomicInteger attempts = new AtomicInteger();
+        doAnswer(invocation -> {
+            attempts.incrementAndGet();
+            throw new DataAccessResourceFailureException("database down");
+        }).when(reservationService).confirmBankTransferPayments(anyList());
+
+        String update = "{\"paymentId\":\"1\",\"transactionDescription\":\"1000000001 DOWN0001\"}";
+        kafkaTemplate.send(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, update);
+
+        assertThat(deadLetterCauses("dlt-reader", Set.of(update)))
+                .containsEntry(update, DataAccessResourceFailureException.class.getName());
+        assertThat(attempts.get()).isEqualTo(3);
+        Counter deadLetters = meterRegistry.find(PaymentUpdateListener.DEAD_LETTERS_METRIC)
+                .tag("exception", "DataAccessResourceFailureException").counter();
+        assertThat(deadLetters).isNotNull();
+        assertThat(deadLetters.count()).isEqualTo(1);
+    }
+
+    @Test
+    void recordsThatCannotSucceed_shouldMoveToTheDeadLetterTopic_whileTheRestOfTheBatchIsConfirmed() {
+        String undecodable = "not a payment update";
+        String invalidDescription = "{\"paymentId\":\"3\",\"transactionDescription\":\"1000000003\"}";
+        kafkaTemplate.send(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, undecodable);
+        kafkaTemplate.send(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, "{\"paymentId\":\"2\",\"transactionDescription\":\"1000000002 GOOD0002\"}");
+        kafkaTemplate.send(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, invalidDescription);
+
+        assertThat(deadLetterCauses("dlt-reader-invalid", Set.of(undecodable, invalidDescription))).containsEntry(undecodable, JsonParseException.class.getName())
+                .containsEntry(invalidDescription, ValidationException.class.getName());
+        verify(reservationService, timeout(10_000)).confirmBankTransferPayments(List.of("1000000002 GOOD0002"));
+    }
+
+    // Exception cause of the dead letters with the given values; the dead letters of the other test may come first
+    private Map<String, String> deadLetterCauses(String groupId, Set<String> values) {
+        Map<String, String> causes = new HashMap<>();
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps(embeddedKafka, groupId, false),
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            embeddedKafka.consumeFromAnEmbeddedTopic(consumer, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE_DLT);
+            long deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+            while (causes.size() < values.size() && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, String> deadLetter : KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(1))) {
+                    if (values.contains(deadLetter.value())) {
+                        causes.put(deadLetter.value(), new String(
+                                deadLetter.headers().lastHeader("kafka_dlt-exception-cause-fqcn").value(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+        }
+        return causes;
+    }
+}
@@ -0,0 +1,85 @@
+package com.marvel.reservation.listener;
+
+import com.marvel.reservation.config.PaymentUpdateDedupeProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PaymentUpdateDeduplicatorTest {
+
+    @Mock
+    private ProcessedPaymentUpdateStore store;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PaymentUpdateDedupeProperties properties = new PaymentUpdateDedupeProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.setWindow(Duration.ofHours(1));
+    }
+
+    @Test
+    void isDuplicate_shouldAnswerFromMemory_onceThePaymentIdIsProcessed() {
+        PaymentUpdateDeduplicator deduplicator = new PaymentUpdateDeduplicator(properties, store, meterRegistry);
+
+        assertThat(deduplicator.isDuplicate("PAY-1")).isFalse();
+        deduplicator.markProcessed("PAY-1");
+
+        assertThat(deduplicator.isDuplicate("PAY-1")).isTrue();
+        assertThat(deduplicator.isDuplicate("PAY-2")).isFalse();
+        assertThat(meterRegistry.counter(PaymentUpdateDeduplicator.DUPLICATES_METRIC, "source", "memory").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", PaymentUpdateDeduplicator.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    void isDuplicate_shouldFallBackToTheTable_whenPersistent() {
+        properties.setPersistent(true);
+        PaymentUpdateDeduplicator deduplicator = new PaymentUpdateDeduplicator(properties, store, meterRegistry);
+        when(store.isProcessed(eq("PAY-1"), any(Instant.class))).thenReturn(true);
+
+        assertThat(deduplicator.isDuplicate("PAY-1")).isTrue();
+        // Loaded into memory, the table is asked only once
+        assertThat(deduplicator.isDuplicate("PAY-1")).isTrue();
+
+        verify(store, times(1)).isProcessed(eq("PAY-1"), any(Instant.class));
+        assertThat(meterRegistry.counter(PaymentUpdateDeduplicator.DUPLICATES_METRIC, "source", "database").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter(PaymentUpdateDeduplicator.DUPLICATES_METRIC, "source", "memory").count()).isEqualTo(1);
+    }
+
+    @Test
+    void markProcessed_shouldRecordThePaymentIdForTheWindow_whenPersistent() {
+        properties.setPersistent(true);
+        PaymentUpdateDeduplicator deduplicator = new PaymentUpdateDeduplicator(properties, store, meterRegistry);
+
+        deduplicator.markProcessed("PAY-1");
+
+        verify(store).markProcessed(eq("PAY-1"), any(Instant.class),
+                argThat(expiresAt -> expiresAt.isAfter(Instant.now().plus(Duration.ofMinutes(59)))));
+    }
+
+    @Test
+    void shouldNeverDropUpdates_whenDisabledOrWithoutPaymentId() {
+        PaymentUpdateDeduplicator deduplicator = new PaymentUpdateDeduplicator(properties, store, meterRegistry);
+        deduplicator.markProcessed(null);
+        assertThat(deduplicator.isDuplicate(null)).isFalse();
+
+        properties.setEnabled(false);
+        deduplicator.markProcessed("PAY-1");
+        assertThat(deduplicator.isDuplicate("PAY-1")).isFalse();
+    }
+}
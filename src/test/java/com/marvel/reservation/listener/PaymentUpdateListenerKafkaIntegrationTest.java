@@ -0,0 +1,119 @@
+package com.marvel.reservation.listener;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.service.ReservationService;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.ContainerTestUtils;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Consumption throughput of {@link PaymentUpdateListener} against an embedded broker with a 4-partition topic,
+ * first with one consumer thread and then with four. Confirming a payment is simulated by a 20 ms wait, as the
+ * real confirmation mostly waits for the database.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.listener.auto-startup=true",
+        "spring.kafka.admin.auto-create=true",
+        "reservation.payment-updates.concurrency=1"
+})
+@EmbeddedKafka(partitions = PaymentUpdateListenerKafkaIntegrationTest.PARTITIONS,
+        topics = Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE)
+@ActiveProfiles("test")
+@DirtiesContext
+class PaymentUpdateListenerKafkaIntegrationTest {
+
+    static final int PARTITIONS = 4;
+    private static final int REFERENCES = 20;
+    private static final int UPDATES_PER_REFERENCE = 10;
+    private static final long CONFIRMATION_MILLIS = 20;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @MockitoBean
+    private ReservationService reservationService;
+
+    private final Map<String, List<Integer>> appliedPerReference = new ConcurrentHashMap<>();
+    private volatile CountDownLatch remaining;
+
+    @Test
+    void throughputShouldScaleWithConsumerThreads_keepingTheOrderOfEveryReference() throws Exception {
+        doAnswer(invocation -> {
+            // "<sequence> <reference>": the first word carries the position of the update within its reference
+            String[] words = invocation.<String>getArgument(0).split(" ");
+            Thread.sleep(CONFIRMATION_MILLIS);
+            appliedPerReference.computeIfAbsent(words[1], key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.parseInt(words[0]));
+            remaining.countDown();
+            return null;
+        }).when(reservationService).confirmBankTransferPayment(anyString());
+        // The retry and dead-letter topics have containers of their own
+        ConcurrentMessageListenerContainer<?, ?> container = registry.getListenerContainers().stream()
+                .filter(candidate -> Arrays.equals(candidate.getContainerProperties().getTopics(),
+                        new String[]{Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE}))
+                .map(ConcurrentMessageListenerContainer.class::cast)
+                .findFirst().orElseThrow();
+
+        long oneThreadNanos = consume(container, 1, "A");
+        long fourThreadsNanos = consume(container, 4, "B");
+
+        double speedup = (double) oneThreadNanos / fourThreadsNanos;
+        assertThat(speedup).as("speedup of 4 consumer threads over 1").isGreaterThan(2.5);
+        assertThat(appliedPerReference).hasSize(2 * REFERENCES);
+        appliedPerReference.values().forEach(applied -> assertThat(applied).hasSize(UPDATES_PER_REFERENCE).isSorted());
+    }
+
+    private long consume(ConcurrentMessageListenerContainer<?, ?> container, int concurrency, String referencePrefix) throws Exception {
+        container.stop();
+        container.setConcurrency(concurrency);
+        container.start();
+        ContainerTestUtils.waitForAssignment(container, PARTITIONS);
+        // Until the group has settled, one consumer may still hold the partitions of the others
+        await().atMost(Duration.ofSeconds(30)).until(() -> container.getContainers().stream()
+                .allMatch(child -> child.getAssignedPartitions() != null
+                        && child.getAssignedPartitions().size() == PARTITIONS / concurrency));
+
+        remaining = new CountDownLatch(REFERENCES * UPDATES_PER_REFERENCE);
+        long start = System.nanoTime();
+        for (int sequence = 0; sequence < UPDATES_PER_REFERENCE; sequence++) {
+            for (int reference = 0; reference < REFERENCES; reference++) {
+                String paymentReference = String.format("%s%07d", referencePrefix, reference);
+                // Keyed by payment reference, and every partition gets the same number of references
+                kafkaTemplate.send(new ProducerRecord<>(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, reference % PARTITIONS,
+                        paymentReference, "{\"paymentId\":\"" + referencePrefix + sequence + "-" + reference
+                        + "\",\"transactionDescription\":\"" + sequence + " " + paymentReference + "\"}"));
+            }
+        }
+        kafkaTemplate.flush();
+        assertThat(remaining.await(30, TimeUnit.SECONDS)).isTrue();
+        return System.nanoTime() - start;
+    }
+}
@@ -2,17 +2,28 @@ package com.marvel.reservation.listener;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.constant.Constants;
 import com.marvel.reservation.dto.PaymentUpdate;
+import com.marvel.reservation.exception.ValidationException;
 import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.KafkaHeaders;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,14 +32,23 @@ class PaymentUpdateListenerTest {
     @Mock
     private ReservationService reservationService;
 
+    @Spy
+    private PaymentUpdateReader paymentUpdateReader = new PaymentUpdateReader(new ObjectMapper());
+
+    @Spy
+    private KeyedLaneExecutor keyedLaneExecutor = new KeyedLaneExecutor(0);
+
     @Mock
-    private ObjectMapper objectMapper;
+    private PaymentUpdateDeduplicator paymentUpdateDeduplicator;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @InjectMocks
     private PaymentUpdateListener listener;
 
     private PaymentUpdate paymentUpdate;
-    private String jsonMessage;
+    private byte[] jsonMessage;
     private String transactionDescription;
 
     @BeforeEach
@@ -41,34 +61,79 @@ class PaymentUpdateListenerTest {
         paymentUpdate.setTransactionDescription(transactionDescription);
 
         try {
-            jsonMessage = new ObjectMapper().writeValueAsString(paymentUpdate);
+            jsonMessage = new ObjectMapper().writeValueAsBytes(paymentUpdate);
         } catch (JsonProcessingException e) {
             throw new RuntimeException(e);
         }
     }
 
     @Test
-    void handlePaymentUpdate_shouldCallConfirmBankTransferPayment_onSuccess() throws JsonProcessingException {
-        // Arrange
-        when(objectMapper.readValue(jsonMessage, PaymentUpdate.class)).thenReturn(paymentUpdate);
-
+    void handlePaymentUpdate_shouldCallConfirmBankTransferPayment_onSuccess() throws IOException {
         // Act
-        listener.handlePaymentUpdate(jsonMessage);
+        listener.handlePaymentUpdate(jsonMessage, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE);
 
         // Assert
         verify(reservationService, times(1)).confirmBankTransferPayment(transactionDescription);
+        assertThat(meterRegistry.find(PaymentUpdateListener.RETRIES_METRIC).counter()).isNull();
     }
 
     @Test
-    void handlePaymentUpdate_shouldHandleJsonProcessingException_onFailure() throws JsonProcessingException {
-        // Arrange
-        String invalidJson = "invalid json";
-        when(objectMapper.readValue(invalidJson, PaymentUpdate.class)).thenThrow(JsonProcessingException.class);
+    void handlePaymentUpdate_shouldRecordThePaymentId_onceApplied() throws IOException {
+        listener.handlePaymentUpdate(jsonMessage, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE);
 
-        // Act
-        listener.handlePaymentUpdate(invalidJson);
+        verify(paymentUpdateDeduplicator).markProcessed("12345");
+    }
 
-        // Assert
+    @Test
+    void handlePaymentUpdate_shouldDropDuplicates_beforeTheyReachTheService() throws IOException {
+        when(paymentUpdateDeduplicator.isDuplicate("12345")).thenReturn(true);
+
+        listener.handlePaymentUpdate(jsonMessage, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE);
+
+        verifyNoInteractions(reservationService);
+        verify(paymentUpdateDeduplicator, never()).markProcessed(anyString());
+    }
+
+    @Test
+    void handlePaymentUpdate_shouldNotRecordThePaymentId_whenTheUpdateFails() {
+        doThrow(new IllegalStateException("database down")).when(reservationService).confirmBankTransferPayment(anyString());
+
+        assertThrows(IllegalStateException.class,
+                () -> listener.handlePaymentUpdate(jsonMessage, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE));
+        verify(paymentUpdateDeduplicator, never()).markProcessed(anyString());
+    }
+
+    @Test
+    void handlePaymentUpdate_shouldPropagateJsonProcessingException_soThatTheMessageIsDeadLettered() {
+        // Arrange
+        byte[] invalidJson = "invalid json".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        assertThrows(JsonProcessingException.class,
+                () -> listener.handlePaymentUpdate(invalidJson, Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE));
         verify(reservationService, never()).confirmBankTransferPayment(anyString());
     }
+
+    @Test
+    void handlePaymentUpdate_shouldCountRetries_perRetryTopic() throws IOException {
+        String retryTopic = Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE + "-retry-0";
+
+        listener.handlePaymentUpdate(jsonMessage, retryTopic);
+
+        verify(reservationService, times(1)).confirmBankTransferPayment(transactionDescription);
+        assertThat(meterRegistry.counter(PaymentUpdateListener.RETRIES_METRIC, "topic", retryTopic).count()).isEqualTo(1);
+    }
+
+    @Test
+    void handleDeadLetter_shouldCountDeadLetters_perException() {
+        ConsumerRecord<String, byte[]> deadLetter = new ConsumerRecord<>(
+                Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE + "-dlt", 0, 0, "P4145478", jsonMessage);
+        deadLetter.headers().add(KafkaHeaders.EXCEPTION_CAUSE_FQCN,
+                ValidationException.class.getName().getBytes(StandardCharsets.UTF_8));
+
+        listener.handleDeadLetter(deadLetter);
+
+        assertThat(meterRegistry.counter(PaymentUpdateListener.DEAD_LETTERS_METRIC, "exception", "ValidationException").count())
+                .isEqualTo(1);
+    }
 }
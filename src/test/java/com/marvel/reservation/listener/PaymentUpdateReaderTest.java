@@ -0,0 +1,47 @@
+package com.marvel.reservation.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.dto.PaymentUpdate;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PaymentUpdateReaderTest {
+
+    private final PaymentUpdateReader reader = new PaymentUpdateReader(new ObjectMapper());
+
+    private PaymentUpdate read(String json) throws IOException {
+        return reader.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void read_shouldDecodeTheUsedFieldsAndSkipTheOthers() throws IOException {
+        PaymentUpdate paymentUpdate = read("""
+                {"paymentId":"PAY-1","debtorAccountNumber":"NL91ABNA0417164300","amountReceived":1250.50,
+                 "extra":{"nested":[1,2,{"deep":true}]},"transactionDescription":"1401541457 P4145478"}""");
+
+        assertThat(paymentUpdate.getPaymentId()).isEqualTo("PAY-1");
+        assertThat(paymentUpdate.getTransactionDescription()).isEqualTo("1401541457 P4145478");
+        assertThat(paymentUpdate.getDebtorAccountNumber()).isNull();
+        assertThat(paymentUpdate.getAmountReceived()).isNull();
+    }
+
+    @Test
+    void read_shouldAcceptNulls() throws IOException {
+        PaymentUpdate paymentUpdate = read("{\"paymentId\":null,\"amountReceived\":\"99.90\",\"transactionDescription\":\"A B\"}");
+
+        assertThat(paymentUpdate.getPaymentId()).isNull();
+        assertThat(paymentUpdate.getTransactionDescription()).isEqualTo("A B");
+    }
+
+    @Test
+    void read_shouldRejectMalformedMessages() {
+        assertThrows(IOException.class, () -> read("invalid json"));
+        assertThrows(IOException.class, () -> read("[1,2]"));
+        assertThrows(IOException.class, () -> read("{\"paymentId\":\"PAY-1\""));
+    }
+}
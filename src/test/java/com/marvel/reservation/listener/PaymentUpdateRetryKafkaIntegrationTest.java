@@ -0,0 +1,106 @@
+package com.marvel.reservation.listener;
+
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.service.ReservationService;
+import com.marvel.reservation.service.TransactionDescriptionParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Retry and dead-letter routing of {@link PaymentUpdateListener} against an embedded broker. The main topic has a
+ * single partition, so a failing update that blocked it would also hold back every update sent after it.
+ */
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "spring.kafka.listener.auto-startup=true",
+        "spring.kafka.admin.auto-create=true",
+        "spring.kafka.consumer.auto-offset-reset=earliest",
+        "reservation.payment-updates.concurrency=1",
+        "reservation.payment-updates.retry.attempts=3",
+        "reservation.payment-updates.retry.delay=2000",
+        "reservation.payment-updates.retry.multiplier=1.5"
+})
+@EmbeddedKafka(partitions = 1, topics = Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE)
+@ActiveProfiles("test")
+@DirtiesContext
+class PaymentUpdateRetryKafkaIntegrationTest {
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockitoBean
+    private ReservationService reservationService;
+
+    private final List<String> confirmations = new CopyOnWriteArrayList<>();
+
+    @Test
+    void failingUpdatesShouldLeaveThePartition_retryingOnlyTheTransientFailures() {
+        doAnswer(invocation -> {
+            String paymentReference = TransactionDescriptionParser.paymentReference(invocation.getArgument(0));
+            confirmations.add(paymentReference);
+            if (paymentReference.startsWith("DOWN")) {
+                throw new DataAccessResourceFailureException("database down");
+            }
+            return null;
+        }).when(reservationService).confirmBankTransferPayment(anyString());
+
+        send("not json");
+        send(paymentUpdate("1000000001 P123"));
+        send(paymentUpdate("1000000002 DOWN0001"));
+        for (int i = 1; i <= 5; i++) {
+            send(paymentUpdate("100000001" + i + " P000000" + i));
+        }
+
+        await().atMost(Duration.ofSeconds(30)).untilAsserted(() -> {
+            assertThat(deadLetters("JsonParseException")).isEqualTo(1);
+            assertThat(deadLetters("ValidationException")).isEqualTo(1);
+            assertThat(deadLetters("DataAccessResourceFailureException")).isEqualTo(1);
+        });
+
+        // The database failure is tried on the main topic and on both retry topics; the others are never retried
+        assertThat(confirmations).filteredOn(reference -> reference.startsWith("DOWN")).hasSize(3);
+        assertThat(meterRegistry.find(PaymentUpdateListener.RETRIES_METRIC).counters())
+                .hasSize(2)
+                .allSatisfy(retries -> {
+                    assertThat(retries.getId().getTag("topic")).startsWith(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE + "-retry");
+                    assertThat(retries.count()).isEqualTo(1);
+                });
+        // The healthy updates did not wait for the backoff of the failing one
+        assertThat(confirmations.subList(0, 6))
+                .containsExactly("DOWN0001", "P0000001", "P0000002", "P0000003", "P0000004", "P0000005");
+    }
+
+    private void send(String message) {
+        kafkaTemplate.send(Constants.TOPIC_BANK_TRANSFER_PAYMENT_UPDATE, message);
+    }
+
+    private static String paymentUpdate(String transactionDescription) {
+        return "{\"paymentId\":\"" + transactionDescription.hashCode() + "\",\"transactionDescription\":\"" + transactionDescription + "\"}";
+    }
+
+    private double deadLetters(String exception) {
+        Counter counter = meterRegistry.find(PaymentUpdateListener.DEAD_LETTERS_METRIC).tag("exception", exception).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -0,0 +1,62 @@
+package com.marvel.reservation.listener;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(ProcessedPaymentUpdateStore.class)
+class ProcessedPaymentUpdateStoreIntegrationTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant EXPIRES_AT = NOW.plus(Duration.ofHours(24));
+
+    @Autowired
+    private ProcessedPaymentUpdateStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM processed_payment_update");
+    }
+
+    @Test
+    void isProcessed_shouldBeTrueUntilTheRowExpires() {
+        store.markProcessed("PAY-1", NOW, EXPIRES_AT);
+
+        assertThat(store.isProcessed("PAY-1", NOW)).isTrue();
+        assertThat(store.isProcessed("PAY-2", NOW)).isFalse();
+        assertThat(store.isProcessed("PAY-1", EXPIRES_AT.plusSeconds(1))).isFalse();
+    }
+
+    @Test
+    void markProcessed_shouldExtendAnExistingRow() {
+        store.markProcessed("PAY-1", NOW.minus(Duration.ofDays(2)), NOW.minus(Duration.ofDays(1)));
+
+        store.markProcessed("PAY-1", NOW, EXPIRES_AT);
+
+        assertThat(store.isProcessed("PAY-1", NOW)).isTrue();
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteOnlyExpiredRows() {
+        store.markProcessed("PAY-OLD", NOW.minus(Duration.ofDays(2)), NOW.minus(Duration.ofDays(1)));
+        store.markProcessed("PAY-NEW", NOW, EXPIRES_AT);
+
+        assertThat(store.purgeExpired(NOW)).isEqualTo(1);
+        assertThat(store.isProcessed("PAY-NEW", NOW)).isTrue();
+    }
+}
@@ -0,0 +1,63 @@
+package com.marvel.reservation.mapper;
+
+import com.marvel.reservation.dto.BatchReservationResult;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReservationMapperTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 10);
+
+    private final ReservationMapper mapper = new ReservationMapperImpl();
+
+    @Test
+    void toEntity_shouldCopyEveryRequestField() {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Tony Stark");
+        request.setRoomNumber("A101");
+        request.setStartDate(DAY);
+        request.setEndDate(DAY.plusDays(3));
+        request.setRoomSegment(RoomSegment.LARGE);
+        request.setPaymentMode(PaymentMode.CREDIT_CARD);
+        request.setPaymentReference("CC-1");
+
+        Reservation reservation = mapper.toEntity(request);
+
+        assertThat(reservation.getId()).isNull();
+        assertThat(reservation.getStatus()).isNull();
+        assertThat(reservation.getCustomerName()).isEqualTo("Tony Stark");
+        assertThat(reservation.getRoomNumber()).isEqualTo("A101");
+        assertThat(reservation.getStartDate()).isEqualTo(DAY);
+        assertThat(reservation.getEndDate()).isEqualTo(DAY.plusDays(3));
+        assertThat(reservation.getRoomSegment()).isEqualTo(RoomSegment.LARGE);
+        assertThat(reservation.getPaymentMode()).isEqualTo(PaymentMode.CREDIT_CARD);
+        assertThat(reservation.getPaymentReference()).isEqualTo("CC-1");
+        assertThat(reservation.getReservationDate()).isEqualTo(LocalDate.now());
+    }
+
+    @Test
+    void toResponseAndToResult_shouldCopyIdAndStatus() {
+        Reservation reservation = new Reservation();
+        reservation.setId(7L);
+        reservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+
+        ReservationResponse response = mapper.toResponse(reservation);
+        BatchReservationResult result = mapper.toResult(3, reservation);
+
+        assertThat(response.getReservationId()).isEqualTo(7L);
+        assertThat(response.getReservationStatus()).isEqualTo(ReservationStatus.PENDING_PAYMENT);
+        assertThat(result.getIndex()).isEqualTo(3);
+        assertThat(result.getReservationId()).isEqualTo(7L);
+        assertThat(result.getReservationStatus()).isEqualTo(ReservationStatus.PENDING_PAYMENT);
+        assertThat(result.getError()).isNull();
+    }
+}
@@ -0,0 +1,99 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.RoomReservationServiceApplication;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.service.ReservationService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances of the service, each its own application context and occupancy indexes, sharing one H2 file database.
+ * A room cancelled on one instance must be bookable and listed as available on the other.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OccupancyIndexClusterIntegrationTest {
+
+    private static final LocalDate START = LocalDate.now().plusDays(10);
+
+    @TempDir
+    static Path databaseDirectory;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void confirmReservation_shouldBookARoomThatAnotherInstanceCancelled() {
+        Long reservationId = nodeB.getBean(ReservationService.class).confirmReservation(bankTransfer("OC-1", "OCCUP001"))
+                .getReservationId();
+        nodeA.getBean(ReservationService.class).cancelReservation(reservationId);
+
+        // Still taken in the index of node B, free in the room night ledger
+        assertThat(nodeB.getBean(RoomOccupancyIndex.class).isAvailable("OC-1", START, START.plusDays(1))).isFalse();
+        ReservationStatus status = nodeB.getBean(ReservationService.class).confirmReservation(bankTransfer("OC-1", "OCCUP002"))
+                .getReservationStatus();
+
+        assertThat(status).isEqualTo(ReservationStatus.PENDING_PAYMENT);
+    }
+
+    @Test
+    void findAvailableRooms_shouldShowTheChangesOfAnotherInstanceAfterAResync() {
+        Long cancelledId = nodeB.getBean(ReservationService.class).confirmReservation(bankTransfer("OC-2", "OCCUP003"))
+                .getReservationId();
+        nodeA.getBean(ReservationService.class).cancelReservation(cancelledId);
+        nodeA.getBean(ReservationService.class).confirmReservation(bankTransfer("OC-3", "OCCUP004"));
+
+        nodeB.getBean(OccupancyIndexInitializer.class).resync();
+
+        assertThat(nodeB.getBean(ReservationService.class).findAvailableRooms(RoomSegment.SMALL, START, START.plusDays(1))
+                .getAvailableRooms()).contains("OC-2").doesNotContain("OC-3");
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(RoomReservationServiceApplication.class)
+                .profiles("test")
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("reservationdb"),
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "reservation.cancellation.node-id=" + nodeId,
+                        "reservation.inventory.rooms.SMALL=OC-1,OC-2,OC-3")
+                .run();
+    }
+
+    private static ReservationRequest bankTransfer(String roomNumber, String paymentReference) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Occupancy Test");
+        request.setRoomNumber(roomNumber);
+        request.setStartDate(START);
+        request.setEndDate(START.plusDays(1));
+        request.setRoomSegment(RoomSegment.SMALL);
+        request.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        request.setPaymentReference(paymentReference);
+        return request;
+    }
+}
@@ -0,0 +1,104 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(RoomNightLedger.class)
+class RoomNightLedgerIntegrationTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 10);
+
+    @Autowired
+    private RoomNightLedger roomNightLedger;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM room_night");
+    }
+
+    private Reservation reservation(long id, String room, LocalDate start, LocalDate end) {
+        Reservation reservation = new Reservation();
+        reservation.setId(id);
+        reservation.setRoomNumber(room);
+        reservation.setStartDate(start);
+        reservation.setEndDate(end);
+        return reservation;
+    }
+
+    private int countNights(long reservationId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM room_night WHERE reservation_id = ?", Integer.class, reservationId);
+    }
+
+    @Test
+    void bookNights_shouldWriteOneRowPerNight() {
+        roomNightLedger.bookNights(reservation(1L, "101", DAY, DAY.plusDays(2)));
+
+        assertThat(countNights(1L)).isEqualTo(3);
+    }
+
+    @Test
+    void bookNights_shouldThrowDuplicateKey_whenANightIsTaken() {
+        roomNightLedger.bookNights(reservation(1L, "101", DAY, DAY.plusDays(2)));
+
+        assertThatThrownBy(() -> roomNightLedger.bookNights(reservation(2L, "101", DAY.plusDays(2), DAY.plusDays(4))))
+                .isInstanceOf(DuplicateKeyException.class);
+    }
+
+    @Test
+    void bookNights_shouldAllowSameNightsForAnotherRoom() {
+        roomNightLedger.bookNights(reservation(1L, "101", DAY, DAY.plusDays(2)));
+        roomNightLedger.bookNights(reservation(2L, "102", DAY, DAY.plusDays(2)));
+
+        assertThat(countNights(2L)).isEqualTo(3);
+    }
+
+    @Test
+    void releaseNights_shouldFreeTheNights() {
+        roomNightLedger.bookNights(reservation(1L, "101", DAY, DAY.plusDays(2)));
+
+        roomNightLedger.releaseNights(1L);
+        roomNightLedger.bookNights(reservation(2L, "101", DAY, DAY.plusDays(2)));
+
+        assertThat(countNights(1L)).isZero();
+        assertThat(countNights(2L)).isEqualTo(3);
+    }
+
+    @Test
+    void releaseNights_shouldFreeTheNightsOfEveryGivenReservation() {
+        roomNightLedger.bookNights(List.of(reservation(1L, "101", DAY, DAY.plusDays(2)),
+                reservation(2L, "102", DAY, DAY.plusDays(1)), reservation(3L, "103", DAY, DAY)));
+
+        roomNightLedger.releaseNights(List.of(1L, 2L));
+
+        assertThat(countNights(1L)).isZero();
+        assertThat(countNights(2L)).isZero();
+        assertThat(countNights(3L)).isEqualTo(1);
+    }
+
+    @Test
+    void isFree_shouldBeFalse_whenAnyNightOfThePeriodIsBooked() {
+        roomNightLedger.bookNights(reservation(1L, "101", DAY, DAY.plusDays(2)));
+
+        assertThat(roomNightLedger.isFree("101", DAY.plusDays(2), DAY.plusDays(4))).isFalse();
+        assertThat(roomNightLedger.isFree("101", DAY.plusDays(3), DAY.plusDays(4))).isTrue();
+        assertThat(roomNightLedger.isFree("102", DAY, DAY.plusDays(2))).isTrue();
+    }
+}
@@ -0,0 +1,77 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RoomOccupancyIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 10);
+
+    private final RoomOccupancyIndex index = new RoomOccupancyIndex();
+
+    @Test
+    void tryReserve_shouldRejectOverlappingPeriods() {
+        assertThat(index.tryReserve("101", DAY, DAY.plusDays(4))).isTrue();
+
+        assertThat(index.tryReserve("101", DAY.minusDays(2), DAY)).isFalse();
+        assertThat(index.tryReserve("101", DAY.plusDays(1), DAY.plusDays(2))).isFalse();
+        assertThat(index.tryReserve("101", DAY.plusDays(4), DAY.plusDays(8))).isFalse();
+        assertThat(index.tryReserve("101", DAY.minusDays(5), DAY.plusDays(10))).isFalse();
+    }
+
+    @Test
+    void tryReserve_shouldAcceptAdjacentPeriodsAndOtherRooms() {
+        assertThat(index.tryReserve("101", DAY, DAY.plusDays(4))).isTrue();
+
+        assertThat(index.tryReserve("101", DAY.minusDays(3), DAY.minusDays(1))).isTrue();
+        assertThat(index.tryReserve("101", DAY.plusDays(5), DAY.plusDays(6))).isTrue();
+        assertThat(index.tryReserve("102", DAY, DAY.plusDays(4))).isTrue();
+        assertThat(index.size()).isEqualTo(4);
+    }
+
+    @Test
+    void release_shouldFreeThePeriod() {
+        index.tryReserve("101", DAY, DAY.plusDays(4));
+
+        index.release("101", DAY, DAY.plusDays(4));
+
+        assertThat(index.isAvailable("101", DAY, DAY.plusDays(4))).isTrue();
+        assertThat(index.tryReserve("101", DAY.plusDays(2), DAY.plusDays(3))).isTrue();
+    }
+
+    @Test
+    void rebuild_shouldReplaceExistingContent() {
+        index.tryReserve("101", DAY, DAY.plusDays(4));
+        Reservation reservation = new Reservation();
+        reservation.setRoomNumber("202");
+        reservation.setStartDate(DAY);
+        reservation.setEndDate(DAY.plusDays(1));
+
+        index.rebuild(List.of(reservation));
+
+        assertThat(index.isAvailable("101", DAY, DAY.plusDays(4))).isTrue();
+        assertThat(index.isAvailable("202", DAY.plusDays(1), DAY.plusDays(2))).isFalse();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void replaceRoom_shouldOnlyReplaceTheContentOfThatRoom() {
+        index.tryReserve("101", DAY, DAY.plusDays(4));
+        index.tryReserve("102", DAY, DAY.plusDays(4));
+        Reservation reservation = new Reservation();
+        reservation.setRoomNumber("101");
+        reservation.setStartDate(DAY.plusDays(6));
+        reservation.setEndDate(DAY.plusDays(7));
+
+        index.replaceRoom("101", List.of(reservation));
+
+        assertThat(index.isAvailable("101", DAY, DAY.plusDays(4))).isTrue();
+        assertThat(index.isAvailable("101", DAY.plusDays(7), DAY.plusDays(8))).isFalse();
+        assertThat(index.isAvailable("102", DAY, DAY.plusDays(4))).isFalse();
+    }
+}
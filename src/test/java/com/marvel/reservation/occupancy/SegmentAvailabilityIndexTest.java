@@ -0,0 +1,104 @@
+package com.marvel.reservation.occupancy;
+
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.RoomSegment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentAvailabilityIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 3, 10);
+
+    private SegmentAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SegmentAvailabilityIndex();
+        index.registerRoom("L-1", RoomSegment.LARGE);
+        index.registerRoom("L-2", RoomSegment.LARGE);
+        index.registerRoom("S-1", RoomSegment.SMALL);
+    }
+
+    private Reservation reservation(String room, RoomSegment segment, LocalDate start, LocalDate end) {
+        Reservation reservation = new Reservation();
+        reservation.setRoomNumber(room);
+        reservation.setRoomSegment(segment);
+        reservation.setStartDate(start);
+        reservation.setEndDate(end);
+        return reservation;
+    }
+
+    @Test
+    void findAvailableRooms_shouldExcludeRoomsOccupiedOnAnyDayOfThePeriod() {
+        index.markOccupied(reservation("L-1", RoomSegment.LARGE, DAY.plusDays(5), DAY.plusDays(6)));
+
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY, DAY.plusDays(4))).containsExactly("L-1", "L-2");
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY, DAY.plusDays(5))).containsExactly("L-2");
+        assertThat(index.findAvailableRooms(RoomSegment.SMALL, DAY, DAY.plusDays(5))).containsExactly("S-1");
+    }
+
+    @Test
+    void markFree_shouldMakeTheRoomAvailableAgain() {
+        Reservation reservation = reservation("L-2", RoomSegment.LARGE, DAY, DAY.plusDays(2));
+        index.markOccupied(reservation);
+
+        index.markFree(reservation);
+
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY, DAY.plusDays(2))).containsExactly("L-1", "L-2");
+    }
+
+    @Test
+    void markOccupied_shouldRegisterUnknownRoomsUnderTheirSegment() {
+        index.markOccupied(reservation("XL-9", RoomSegment.EXTRA_LARGE, DAY, DAY));
+
+        assertThat(index.findAvailableRooms(RoomSegment.EXTRA_LARGE, DAY, DAY)).isEmpty();
+        assertThat(index.findAvailableRooms(RoomSegment.EXTRA_LARGE, DAY.plusDays(1), DAY.plusDays(1))).containsExactly("XL-9");
+    }
+
+    @Test
+    void findAvailableRooms_shouldHandleRoomsBeyondTheFirstWord() {
+        IntStream.range(0, 200).forEach(i -> index.registerRoom("M-" + i, RoomSegment.MEDIUM));
+        IntStream.range(0, 200).filter(i -> i % 3 != 0)
+                .forEach(i -> index.markOccupied(reservation("M-" + i, RoomSegment.MEDIUM, DAY.plusDays(i % 30), DAY.plusDays(i % 30))));
+
+        List<String> available = index.findAvailableRooms(RoomSegment.MEDIUM, DAY, DAY.plusDays(29));
+
+        assertThat(available).hasSize(67).allMatch(room -> Integer.parseInt(room.substring(2)) % 3 == 0);
+    }
+
+    @Test
+    void rebuild_shouldKeepRoomsAndReplaceOccupancy() {
+        index.markOccupied(reservation("L-1", RoomSegment.LARGE, DAY, DAY));
+
+        index.rebuild(List.of(reservation("L-2", RoomSegment.LARGE, DAY, DAY)));
+
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY, DAY)).containsExactly("L-1");
+    }
+
+    @Test
+    void replaceRoom_shouldOnlyReplaceTheOccupancyOfThatRoom() {
+        index.markOccupied(reservation("L-1", RoomSegment.LARGE, DAY, DAY));
+        index.markOccupied(reservation("L-2", RoomSegment.LARGE, DAY, DAY));
+
+        index.replaceRoom("L-1", RoomSegment.LARGE, List.of(reservation("L-1", RoomSegment.LARGE, DAY.plusDays(1), DAY.plusDays(1))));
+
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY, DAY)).containsExactly("L-1");
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, DAY.plusDays(1), DAY.plusDays(1))).containsExactly("L-2");
+    }
+
+    @Test
+    void rebuild_shouldDropTheDaysBeforeToday() {
+        LocalDate today = LocalDate.now();
+
+        index.rebuild(List.of(reservation("L-1", RoomSegment.LARGE, today.minusDays(2), today)));
+
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, today.minusDays(2), today.minusDays(1))).containsExactly("L-1", "L-2");
+        assertThat(index.findAvailableRooms(RoomSegment.LARGE, today, today)).containsExactly("L-2");
+    }
+}
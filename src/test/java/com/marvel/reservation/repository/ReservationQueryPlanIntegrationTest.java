@@ -0,0 +1,137 @@
+package com.marvel.reservation.repository;
+
+import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Query plans of the reservation lookups on a table of 1,000,000 reservations. H2 names the index it reads in the
+ * plan comment, or {@code tableScan} when it reads the whole table.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.marvel.reservation.repository.ReservationQueryPlanIntegrationTest$RecordingStatementInspector")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReservationQueryPlanIntegrationTest {
+
+    private static final int ROWS = 1_000_000;
+    private static final String STATUS_MODE_DATE_INDEX = "IDX_RESERVATION_STATUS_MODE_DATE";
+
+    // One reservation in 100 is pending, spread over the three payment modes and 1000 reservation dates
+    private static final String INSERT_RESERVATIONS = """
+            INSERT INTO reservation (id, customer_name, room_number, start_date, end_date, room_segment,
+                                     payment_mode, payment_reference, status, reservation_date)
+            SELECT X, 'Plan Test', 'R' || MOD(X, 500), DATE '2026-01-01', DATE '2026-01-02', 'SMALL',
+                   CASE MOD(X, 3) WHEN 0 THEN 'CASH' WHEN 1 THEN 'CREDIT_CARD' ELSE 'BANK_TRANSFER' END,
+                   'P' || LPAD(CAST(X AS VARCHAR), 7, '0'),
+                   CASE WHEN MOD(X, 100) = 2 THEN 'PENDING_PAYMENT' WHEN MOD(X, 100) = 3 THEN 'CANCELLED' ELSE 'CONFIRMED' END,
+                   DATEADD(DAY, MOD(X, 1000), DATE '2023-01-01')
+            FROM SYSTEM_RANGE(1, ?)
+            """;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void insertReservations() {
+        jdbcTemplate.update(INSERT_RESERVATIONS, ROWS);
+        // Selectivity statistics for the optimizer, as a production database keeps them
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void deleteReservations() {
+        jdbcTemplate.execute("TRUNCATE TABLE reservation");
+    }
+
+    @Test
+    void overdueBankTransferLookup_shouldRangeScanTheStatusModeDateIndex() {
+        // The statement Hibernate generates for the sweep of one shard, explained with the values it was run with
+        RecordingStatementInspector.STATEMENTS.clear();
+        reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(ReservationStatus.PENDING_PAYMENT,
+                PaymentMode.BANK_TRANSFER, LocalDate.of(2024, 1, 1), 0, 2_000, Limit.of(1000));
+        String sql = RecordingStatementInspector.STATEMENTS.getLast();
+        assertThat(sql).containsIgnoringCase("id>=?").containsIgnoringCase("id<?").containsIgnoringCase("for update");
+
+        String plan = explain(sql, ReservationStatus.PENDING_PAYMENT.name(), PaymentMode.BANK_TRANSFER.name(),
+                LocalDate.of(2024, 1, 1), 0L, 2_000L, 1000);
+
+        assertThat(plan).contains(STATUS_MODE_DATE_INDEX).doesNotContainIgnoringCase("tableScan");
+        // Every condition on the index columns is an index condition, none is left for a filter over the fetched rows
+        String indexConditions = plan.substring(plan.indexOf("/*"), plan.indexOf("*/"));
+        assertThat(indexConditions).contains("STATUS = ", "PAYMENT_MODE = ", "RESERVATION_DATE < ");
+        // The shard bounds only filter the index rows, they do not send the lookup to the primary key
+        assertThat(indexConditions).doesNotContain("ID >= ");
+        assertThat(plan).contains("\"ID\" >= ?4", "\"ID\" < ?5").doesNotContain("PRIMARY_KEY");
+    }
+
+    @Test
+    void overdueBankTransferLookup_shouldReturnOnlyPendingBankTransfersBeforeTheCutoff() {
+        List<Long> ids = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                        ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, LocalDate.of(2024, 1, 1),
+                        Long.MIN_VALUE, Long.MAX_VALUE, Limit.unlimited())
+                .stream().map(Reservation::getId).toList();
+
+        // Pending when id % 100 == 2 and bank transfer when id % 3 == 2, i.e. id % 300 == 2; the first 365 of every
+        // 1000 ids fall before the cutoff
+        long expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM SYSTEM_RANGE(1, ?)"
+                + " WHERE MOD(X, 300) = 2 AND MOD(X, 1000) < 365", Long.class, ROWS);
+        assertThat(ids).hasSize((int) expected).allMatch(id -> id % 300 == 2 && id % 1000 < 365);
+    }
+
+    @Test
+    void paymentReferenceLookups_shouldSeekTheUniqueIndex() {
+        String single = explain("SELECT r.id, r.payment_reference, r.status FROM reservation r"
+                + " WHERE r.payment_reference = 'P0500000'");
+        String chunk = explain("SELECT r.id, r.payment_reference, r.status FROM reservation r"
+                + " WHERE r.payment_reference IN ('P0000001', 'P0500000', 'P9999999')");
+
+        assertThat(single).contains(Reservation.PAYMENT_REFERENCE_INDEX.toUpperCase()).doesNotContainIgnoringCase("tableScan");
+        assertThat(chunk).contains(Reservation.PAYMENT_REFERENCE_INDEX.toUpperCase()).doesNotContainIgnoringCase("tableScan");
+        assertThat(reservationRepository.findPaymentStatusByPaymentReference("P0500000"))
+                .hasValueSatisfying(reservation -> assertThat(reservation.getId()).isEqualTo(500_000L));
+    }
+
+    @Test
+    void unindexedLookup_shouldScanTheTable() {
+        // Control: the plan check does tell a scan from an index read
+        assertThat(explain("SELECT r.id FROM reservation r WHERE r.customer_name = 'Plan Test'")).containsIgnoringCase("tableScan");
+    }
+
+    private String explain(String sql, Object... args) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+
+    /**
+     * Keeps the SQL of the statements Hibernate prepares.
+     */
+    public static class RecordingStatementInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
@@ -8,14 +8,17 @@ import com.marvel.reservation.model.enums.RoomSegment;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.ActiveProfiles;
 
 import java.time.LocalDate;
-import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
 
 @DataJpaTest
 @ActiveProfiles("test")
@@ -25,13 +28,17 @@ class ReservationRepositoryIntegrationTest {
     private ReservationRepository reservationRepository;
 
     private Reservation createReservation(String ref, ReservationStatus status, LocalDate reservationDate) {
+        return createReservation(ref, PaymentMode.BANK_TRANSFER, status, reservationDate);
+    }
+
+    private Reservation createReservation(String ref, PaymentMode paymentMode, ReservationStatus status, LocalDate reservationDate) {
         Reservation reservation = new Reservation();
         reservation.setCustomerName("Repo Test");
         reservation.setRoomNumber("R101");
         reservation.setStartDate(LocalDate.now().plusDays(1));
         reservation.setEndDate(LocalDate.now().plusDays(2));
         reservation.setRoomSegment(RoomSegment.SMALL);
-        reservation.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        reservation.setPaymentMode(paymentMode);
         reservation.setPaymentReference(ref);
         reservation.setStatus(status);
         reservation.setReservationDate(reservationDate);
@@ -39,83 +46,215 @@ class ReservationRepositoryIntegrationTest {
     }
 
     @Test
-    void findByPaymentReference_shouldReturnReservation_whenFound() {
+    void findPaymentStatusByPaymentReference_shouldReturnReservation_whenFound() {
         // Arrange
         String paymentRef = "UNIQUE-REF-123";
         LocalDate cutoff = LocalDate.now();
         Reservation savedReservation = createReservation(paymentRef, ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(2));
 
         // Act
-        Optional<Reservation> foundReservation = reservationRepository.findByPaymentReference(paymentRef);
+        Optional<ReservationPaymentStatus> foundReservation = reservationRepository.findPaymentStatusByPaymentReference(paymentRef);
 
         // Assert
         assertThat(foundReservation).isPresent();
         assertThat(foundReservation.get().getId()).isEqualTo(savedReservation.getId());
         assertThat(foundReservation.get().getPaymentReference()).isEqualTo(paymentRef);
+        assertThat(foundReservation.get().getStatus()).isEqualTo(ReservationStatus.PENDING_PAYMENT);
     }
 
     @Test
-    void findByPaymentReference_shouldReturnEmpty_whenNotFound() {
+    void findPaymentStatusByPaymentReference_shouldReturnEmpty_whenNotFound() {
         // Act
-        Optional<Reservation> foundReservation = reservationRepository.findByPaymentReference("NON-EXISTENT");
+        Optional<ReservationPaymentStatus> foundReservation = reservationRepository.findPaymentStatusByPaymentReference("NON-EXISTENT");
 
         // Assert
         assertThat(foundReservation).isEmpty();
     }
 
     @Test
-    void findByStatusAndCreatedAtBefore_shouldReturnReservationsBeforeCutoff() {
+    void save_shouldReject_aPaymentReferenceThatIsAlreadyUsed() {
+        // Arrange
+        createReservation("REF-TAKEN", ReservationStatus.PENDING_PAYMENT, LocalDate.now());
+        reservationRepository.flush();
+
+        // Act & Assert
+        assertThatThrownBy(() -> {
+            createReservation("REF-TAKEN", ReservationStatus.PENDING_PAYMENT, LocalDate.now());
+            reservationRepository.flush();
+        }).isInstanceOf(DataIntegrityViolationException.class)
+                .hasMessageContaining(Reservation.PAYMENT_REFERENCE_INDEX.toUpperCase());
+    }
+
+    @Test
+    void lockByStatusAndPaymentModeAndReservationDateBefore_shouldReturnReservationsBeforeCutoff() {
         // Arrange
         LocalDate cutoff = LocalDate.now();
         Reservation overdue = createReservation("REF-OVERDUE", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(2));
         createReservation("REF-NOT-OVERDUE", ReservationStatus.PENDING_PAYMENT, cutoff.plusDays(1)); // after cutoff
         createReservation("REF-CONFIRMED", ReservationStatus.CONFIRMED, cutoff.minusDays(2)); // wrong status
+        createReservation("REF-CARD", PaymentMode.CREDIT_CARD, ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(2)); // wrong mode
 
         // Act
-        List<Reservation> result = reservationRepository.findByStatusAndCreatedAtBefore(
-                ReservationStatus.PENDING_PAYMENT, cutoff);
+        List<Reservation> result = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff, Long.MIN_VALUE, Long.MAX_VALUE, Limit.of(10));
 
         // Assert
-        assertThat(result)
-                .hasSize(1)
-                .extracting(Reservation::getPaymentReference)
-                .containsExactly("REF-OVERDUE");
+        assertThat(result).extracting(Reservation::getId).containsExactly(overdue.getId());
     }
 
     @Test
-    void findByStatusAndCreatedAtBefore_shouldReturnEmpty_whenNoMatch() {
+    void lockByStatusAndPaymentModeAndReservationDateBefore_shouldReturnEmpty_whenNoMatch() {
         // Arrange
         LocalDate cutoff = LocalDate.now();
         createReservation("REF-FUTURE", ReservationStatus.PENDING_PAYMENT, cutoff.plusDays(5));
         createReservation("REF-CONFIRMED", ReservationStatus.CONFIRMED, cutoff.minusDays(5));
 
         // Act
-        List<Reservation> result = reservationRepository.findByStatusAndCreatedAtBefore(
-                ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(1));
+        List<Reservation> result = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff.minusDays(1), Long.MIN_VALUE, Long.MAX_VALUE, Limit.of(10));
 
         // Assert
         assertThat(result).isEmpty();
     }
 
     @Test
-    void findByStatusAndCreatedAtBefore_shouldReturnMultipleMatchingReservations() {
+    void lockByStatusAndPaymentModeAndReservationDateBefore_shouldReturnMultipleMatchingReservations() {
         // Arrange
         LocalDate cutoff = LocalDate.now();
         Reservation r1 = createReservation("REF-1", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
         Reservation r2 = createReservation("REF-2", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(2));
 
         // Act
-        List<Reservation> result = reservationRepository.findByStatusAndCreatedAtBefore(
-                ReservationStatus.PENDING_PAYMENT, cutoff);
+        List<Reservation> result = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff, Long.MIN_VALUE, Long.MAX_VALUE, Limit.of(10));
+
+        // Assert
+        assertThat(result).extracting(Reservation::getId).containsExactlyInAnyOrder(r1.getId(), r2.getId());
+    }
+
+    @Test
+    void lockByStatusAndPaymentModeAndReservationDateBefore_shouldReturnAtMostTheLimit() {
+        // Arrange
+        LocalDate cutoff = LocalDate.now();
+        for (int i = 1; i <= 3; i++) {
+            createReservation("REF-" + i, ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(i + 2));
+        }
+
+        // Act
+        List<Reservation> result = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff, Long.MIN_VALUE, Long.MAX_VALUE, Limit.of(2));
+
+        // Assert
+        assertThat(result).hasSize(2);
+    }
+
+    @Test
+    void lockByStatusAndPaymentModeAndReservationDateBefore_shouldKeepToTheIdRange() {
+        // Arrange
+        LocalDate cutoff = LocalDate.now();
+        Reservation r1 = createReservation("REF-1", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
+        Reservation r2 = createReservation("REF-2", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
+        Reservation r3 = createReservation("REF-3", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
+
+        // Act
+        List<Reservation> result = reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff, r2.getId(), r3.getId(), Limit.of(10));
+
+        // Assert
+        assertThat(result).extracting(Reservation::getId).containsExactly(r2.getId());
+        assertThat(r1.getId()).isLessThan(r2.getId());
+    }
+
+    @Test
+    void lockByIdInAndStatusAndPaymentMode_shouldReturnOnlyTheReservationsStillPending() {
+        // Arrange
+        Reservation pending = createReservation("REF-1", ReservationStatus.PENDING_PAYMENT, LocalDate.now());
+        Reservation confirmed = createReservation("REF-2", ReservationStatus.CONFIRMED, LocalDate.now());
+
+        // Act
+        List<Reservation> result = reservationRepository.lockByIdInAndStatusAndPaymentMode(
+                List.of(pending.getId(), confirmed.getId()), ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER);
+
+        // Assert
+        assertThat(result).extracting(Reservation::getId).containsExactly(pending.getId());
+        assertThat(pending.getCreatedAt()).isNotNull();
+    }
+
+    @Test
+    void findIdRangeByStatusAndPaymentModeAndReservationDateBefore_shouldReturnLowestAndHighestId() {
+        // Arrange
+        LocalDate cutoff = LocalDate.now();
+        Reservation r1 = createReservation("REF-1", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
+        createReservation("REF-CONFIRMED", ReservationStatus.CONFIRMED, cutoff.minusDays(3));
+        Reservation r2 = createReservation("REF-2", ReservationStatus.PENDING_PAYMENT, cutoff.minusDays(3));
+        createReservation("REF-RECENT", ReservationStatus.PENDING_PAYMENT, cutoff);
+
+        // Act
+        ReservationIdRange range = reservationRepository.findIdRangeByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, cutoff);
+        ReservationIdRange none = reservationRepository.findIdRangeByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.CASH, cutoff);
+
+        // Assert
+        assertThat(range.getLowest()).isEqualTo(r1.getId());
+        assertThat(range.getHighest()).isEqualTo(r2.getId());
+        assertThat(none.getLowest()).isNull();
+    }
+
+    @Test
+    void findPaymentStatusByPaymentReferenceIn_shouldReturnAllReferencedReservations() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        Reservation first = createReservation("P0000001", ReservationStatus.PENDING_PAYMENT, today);
+        Reservation second = createReservation("P0000002", ReservationStatus.CONFIRMED, today);
+        createReservation("P0000003", ReservationStatus.PENDING_PAYMENT, today);
+
+        // Act
+        List<ReservationPaymentStatus> result = reservationRepository.findPaymentStatusByPaymentReferenceIn(
+                List.of("P0000001", "P0000002", "P9999999"));
 
         // Assert
-        assertThat(result)
-                .hasSize(2)
-                .extracting(Reservation::getPaymentReference)
-                .containsExactlyInAnyOrder("REF-1", "REF-2");
+        assertThat(result).extracting(ReservationPaymentStatus::getId).containsExactlyInAnyOrder(first.getId(), second.getId());
     }
 
+    @Test
+    void updateStatus_shouldOnlyChangeReservationsInTheExpectedStatus() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        Reservation pending = createReservation("P0000001", ReservationStatus.PENDING_PAYMENT, today);
+        Reservation cancelled = createReservation("P0000002", ReservationStatus.CANCELLED, today);
+        reservationRepository.flush();
+
+        // Act
+        int updated = reservationRepository.updateStatus(List.of(pending.getId(), cancelled.getId()),
+                ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+
+        // Assert
+        assertThat(updated).isEqualTo(1);
+        assertThat(reservationRepository.findPaymentStatusByPaymentReferenceIn(List.of("P0000001", "P0000002")))
+                .extracting(ReservationPaymentStatus::getPaymentReference, ReservationPaymentStatus::getStatus)
+                .containsExactlyInAnyOrder(tuple("P0000001", ReservationStatus.CONFIRMED), tuple("P0000002", ReservationStatus.CANCELLED));
+    }
 
+    @Test
+    void findByStatusInAndEndDateGreaterThanEqual_shouldSkipReservationsThatEnded() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        Reservation ended = createReservation("REF-ENDED", ReservationStatus.CONFIRMED, today.minusDays(5));
+        ended.setStartDate(today.minusDays(3));
+        ended.setEndDate(today.minusDays(1));
+        Reservation endsToday = createReservation("REF-TODAY", ReservationStatus.CONFIRMED, today.minusDays(5));
+        endsToday.setStartDate(today.minusDays(1));
+        endsToday.setEndDate(today);
+        Reservation upcoming = createReservation("REF-UPCOMING", ReservationStatus.PENDING_PAYMENT, today);
+        createReservation("REF-CANCELLED", ReservationStatus.CANCELLED, today);
+        reservationRepository.flush();
 
+        // Act
+        List<Reservation> active = reservationRepository.findByStatusInAndEndDateGreaterThanEqual(
+                List.of(ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED), today);
 
+        // Assert
+        assertThat(active).extracting(Reservation::getId).containsExactlyInAnyOrder(endsToday.getId(), upcoming.getId());
+    }
 }
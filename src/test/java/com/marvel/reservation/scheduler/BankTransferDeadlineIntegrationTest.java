@@ -0,0 +1,94 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.service.BankTransferDeadlineWheel;
+import com.marvel.reservation.service.ReservationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Payment deadlines of bank transfer reservations made and confirmed through the service. The wheel is advanced by
+ * hand, two days ahead, so the context is not shared with other tests.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DirtiesContext
+class BankTransferDeadlineIntegrationTest {
+
+    private static final LocalDate START = LocalDate.now().plusDays(10);
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private BankTransferDeadlineWheel bankTransferDeadlineWheel;
+
+    @Autowired
+    private RoomOccupancyIndex roomOccupancyIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pendingBankTransfer_shouldBeCancelledAtItsDeadline_unlessConfirmed() {
+        Instant before = Instant.now();
+        Long unpaid = reservationService.confirmReservation(bankTransfer("DL1", "DLINE001")).getReservationId();
+        Long paid = reservationService.confirmReservation(bankTransfer("DL2", "DLINE002")).getReservationId();
+        reservationService.confirmBankTransferPayment("1401541457 DLINE002");
+
+        assertThat(bankTransferDeadlineWheel.advance(before.plus(BankTransferDeadlineWheel.PAYMENT_PERIOD).minusSeconds(1)))
+                .doesNotContain(unpaid);
+        List<Long> expired = bankTransferDeadlineWheel.advance(Instant.now().plus(BankTransferDeadlineWheel.PAYMENT_PERIOD).plusSeconds(1));
+        assertThat(expired).contains(unpaid).doesNotContain(paid);
+
+        assertThat(reservationService.cancelExpiredBankTransferReservations(expired)).contains(unpaid);
+        assertThat(status(unpaid)).isEqualTo(ReservationStatus.CANCELLED.name());
+        assertThat(status(paid)).isEqualTo(ReservationStatus.CONFIRMED.name());
+        assertThat(roomOccupancyIndex.isAvailable("DL1", START, START.plusDays(1))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM room_night WHERE reservation_id = ?", Long.class, unpaid)).isZero();
+    }
+
+    @Test
+    void rebuild_shouldScheduleThePendingBankTransfersOfTheTable() {
+        // Made before the creation time was recorded, overdue since the midnight after its second day
+        jdbcTemplate.update("""
+                INSERT INTO reservation (id, customer_name, room_number, start_date, end_date, room_segment,
+                                         payment_mode, payment_reference, status, reservation_date)
+                VALUES (900000001, 'Deadline Test', 'DL3', ?, ?, 'SMALL', 'BANK_TRANSFER', 'DLINE003', 'PENDING_PAYMENT', ?)
+                """, START, START, LocalDate.now().minusDays(5));
+
+        bankTransferDeadlineWheel.rebuild();
+
+        assertThat(bankTransferDeadlineWheel.advance(Instant.now())).contains(900000001L);
+    }
+
+    private String status(Long reservationId) {
+        return jdbcTemplate.queryForObject("SELECT status FROM reservation WHERE id = ?", String.class, reservationId);
+    }
+
+    private static ReservationRequest bankTransfer(String roomNumber, String paymentReference) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Deadline Test");
+        request.setRoomNumber(roomNumber);
+        request.setStartDate(START);
+        request.setEndDate(START.plusDays(1));
+        request.setRoomSegment(RoomSegment.SMALL);
+        request.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        request.setPaymentReference(paymentReference);
+        return request;
+    }
+}
@@ -0,0 +1,76 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.service.BankTransferDeadlineWheel;
+import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BankTransferDeadlineSchedulerTest {
+
+    @Mock
+    private BankTransferDeadlineWheel bankTransferDeadlineWheel;
+
+    @Mock
+    private ReservationService reservationService;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private BankTransferDeadlineScheduler scheduler;
+
+    @Test
+    void cancelExpiredBankTransferReservations_shouldCancelTheReservationsPastTheirDeadline() {
+        // Arrange
+        when(bankTransferDeadlineWheel.advance(any(Instant.class))).thenReturn(List.of(1L, 2L));
+        when(reservationService.cancelExpiredBankTransferReservations(List.of(1L, 2L))).thenReturn(List.of(1L));
+
+        // Act
+        scheduler.cancelExpiredBankTransferReservations();
+
+        // Assert
+        verify(reservationService).cancelExpiredBankTransferReservations(List.of(1L, 2L));
+        assertThat(meterRegistry.get(BankTransferDeadlineScheduler.EXPIRED_METRIC).counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void cancelExpiredBankTransferReservations_shouldNotTouchTheDatabase_whenNothingExpired() {
+        // Arrange
+        when(bankTransferDeadlineWheel.advance(any(Instant.class))).thenReturn(List.of());
+
+        // Act
+        scheduler.cancelExpiredBankTransferReservations();
+
+        // Assert
+        verifyNoInteractions(reservationService);
+    }
+
+    @Test
+    void cancelExpiredBankTransferReservations_shouldRescheduleTheReservations_whenTheCancellationFails() {
+        // Arrange
+        when(bankTransferDeadlineWheel.advance(any(Instant.class))).thenReturn(List.of(1L, 2L));
+        when(reservationService.cancelExpiredBankTransferReservations(anyList()))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        // Act
+        scheduler.cancelExpiredBankTransferReservations();
+
+        // Assert
+        verify(bankTransferDeadlineWheel).schedule(eq(1L), any(Instant.class));
+        verify(bankTransferDeadlineWheel).schedule(eq(2L), any(Instant.class));
+    }
+}
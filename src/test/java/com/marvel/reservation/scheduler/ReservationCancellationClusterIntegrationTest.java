@@ -0,0 +1,153 @@
+package com.marvel.reservation.scheduler;
+
+import com.marvel.reservation.RoomReservationServiceApplication;
+import com.marvel.reservation.config.CancellationSweepProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Three instances of the service, each its own application context, sharing one H2 file database as a cluster shares
+ * its database. All of them run the cancellation sweep at the same moment.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReservationCancellationClusterIntegrationTest {
+
+    private static final int NODES = 3;
+    private static final int BACKLOG = 20_000;
+    private static final long SHARD_SIZE = 2_000;
+
+    private static final String INSERT_BACKLOG = """
+            INSERT INTO reservation (id, customer_name, room_number, start_date, end_date, room_segment,
+                                     payment_mode, payment_reference, status, reservation_date)
+            SELECT X, 'Cluster Test', 'C' || MOD(X, 1000), DATEADD(DAY, 30, CURRENT_DATE), DATEADD(DAY, 30, CURRENT_DATE),
+                   'SMALL', 'BANK_TRANSFER', 'CLUSTER' || X, 'PENDING_PAYMENT', DATEADD(DAY, -3 - MOD(X, 30), CURRENT_DATE)
+            FROM SYSTEM_RANGE(1, ?)
+            """;
+
+    @TempDir
+    static Path databaseDirectory;
+
+    private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    void startNodes() {
+        for (int node = 1; node <= NODES; node++) {
+            nodes.add(new SpringApplicationBuilder(RoomReservationServiceApplication.class)
+                    .profiles("test")
+                    .properties(
+                            "spring.main.web-application-type=none",
+                            "spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("reservationdb"),
+                            "spring.jpa.hibernate.ddl-auto=update",
+                            "reservation.cancellation.node-id=node-" + node)
+                    .run());
+        }
+        jdbcTemplate = nodes.get(0).getBean(JdbcTemplate.class);
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodes.forEach(ConfigurableApplicationContext::close);
+    }
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM scheduler_lease");
+        jdbcTemplate.update("DELETE FROM room_night");
+        jdbcTemplate.update("DELETE FROM reservation");
+        jdbcTemplate.update(INSERT_BACKLOG, BACKLOG);
+        for (ConfigurableApplicationContext node : nodes) {
+            node.getBean(CancellationSweepProperties.class).setShardSize(0);
+            node.getBean(MeterRegistry.class).clear();
+        }
+    }
+
+    @Test
+    void leasedSweep_shouldRunOnExactlyOneNode() throws Exception {
+        runSchedulersAtOnce();
+
+        assertThat(cancelledRows()).isEqualTo(BACKLOG);
+        List<Double> cancelledPerNode = nodes.stream().map(node -> cancelled(node)).toList();
+        assertThat(cancelledPerNode).containsExactlyInAnyOrder((double) BACKLOG, 0.0, 0.0);
+        assertThat(nodes.stream().mapToDouble(node -> leases(node, "acquired")).sum()).isEqualTo(1);
+        assertThat(nodes.stream().mapToDouble(node -> leases(node, "held-elsewhere")).sum()).isEqualTo(NODES - 1);
+    }
+
+    @Test
+    void shardedSweep_shouldCancelEveryReservationOnce_sharedBetweenTheNodes() throws Exception {
+        nodes.forEach(node -> node.getBean(CancellationSweepProperties.class).setShardSize(SHARD_SIZE));
+        // Lease of a shard of an earlier sweep
+        jdbcTemplate.update("INSERT INTO scheduler_lease (name, owner, locked_at, lease_until) VALUES (?, 'node-1', ?, ?)",
+                ReservationCancellationScheduler.SWEEP_LEASE + "-shard-99", Timestamp.from(Instant.now().minusSeconds(86_400)),
+                Timestamp.from(Instant.now().minusSeconds(86_000)));
+
+        runSchedulersAtOnce();
+
+        assertThat(cancelledRows()).isEqualTo(BACKLOG);
+        // Every reservation counted by exactly one node, every shard run by exactly one node
+        assertThat(nodes.stream().mapToDouble(node -> cancelled(node)).sum()).isEqualTo(BACKLOG);
+        long shards = BACKLOG / SHARD_SIZE + 1;
+        assertThat(nodes.stream().mapToDouble(node -> leases(node, "acquired")).sum()).isEqualTo(shards);
+        assertThat(nodes.stream().filter(node -> cancelled(node) > 0).count()).isGreaterThan(1);
+        // The leases of this sweep are held for their minimum hold, the earlier one is purged
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM scheduler_lease", Long.class)).isEqualTo(shards);
+    }
+
+    private void runSchedulersAtOnce() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NODES);
+        try {
+            List<Future<?>> runs = nodes.stream()
+                    .map(node -> executor.submit(() -> {
+                        start.await();
+                        node.getBean(ReservationCancellationScheduler.class).cancelOverdueBankTransferReservations();
+                        return null;
+                    }))
+                    .collect(Collectors.toList());
+            start.countDown();
+            for (Future<?> run : runs) {
+                run.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long cancelledRows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM reservation WHERE status = 'CANCELLED'", Long.class);
+    }
+
+    private static double cancelled(ConfigurableApplicationContext node) {
+        Counter counter = node.getBean(MeterRegistry.class).find(ReservationCancellationScheduler.CANCELLED_METRIC).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private static double leases(ConfigurableApplicationContext node, String outcome) {
+        Counter counter = node.getBean(MeterRegistry.class).find(ReservationCancellationScheduler.LEASES_METRIC)
+                .tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+}
@@ -1,16 +1,24 @@
 package com.marvel.reservation.scheduler;
 
-import com.marvel.reservation.model.Reservation;
+import com.marvel.reservation.config.CancellationSweepProperties;
+import com.marvel.reservation.repository.ReservationIdRange;
 import com.marvel.reservation.service.ReservationService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Optional;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,42 +27,177 @@ class ReservationCancellationSchedulerTest {
     @Mock
     private ReservationService reservationService;
 
+    @Mock
+    private SchedulerLeaseStore schedulerLeaseStore;
+
+    @Spy
+    private CancellationSweepProperties properties = new CancellationSweepProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private ReservationCancellationScheduler scheduler;
 
     @Test
-    void cancelOverdueBankTransferReservations_shouldCancelAllOverdueReservations() {
+    void cancelOverdueBankTransferReservations_shouldCancelAllOverdueReservationsInOneSweep() {
         // Arrange
-        Reservation r1 = new Reservation();
-        r1.setId(1L);
-        Reservation r2 = new Reservation();
-        r2.setId(2L);
-
-        List<Reservation> overdueReservations = List.of(r1, r2);
-
-        when(reservationService.findPendingBankTransferReservations(any(LocalDate.class)))
-                .thenReturn(overdueReservations);
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE, true);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class)))
+                .thenReturn(List.of(1L, 2L));
 
         // Act
         scheduler.cancelOverdueBankTransferReservations();
 
         // Assert
-        verify(reservationService, times(1)).findPendingBankTransferReservations(any(LocalDate.class));
-        verify(reservationService, times(1)).cancelReservation(1L);
-        verify(reservationService, times(1)).cancelReservation(2L);
+        verify(reservationService, times(1)).cancelOverdueBankTransferReservations(any(LocalDate.class));
+        verify(reservationService, never()).cancelReservation(anyLong());
+        String nodeId = properties.getNodeId();
+        verify(schedulerLeaseStore).release(eq(ReservationCancellationScheduler.SWEEP_LEASE), eq(nodeId), any(Instant.class));
+        assertThat(meterRegistry.get(ReservationCancellationScheduler.CANCELLED_METRIC).counter().count()).isEqualTo(2);
+        assertThat(leases("acquired")).isEqualTo(1);
     }
 
     @Test
     void cancelOverdueBankTransferReservations_shouldDoNothing_whenNoReservationsAreOverdue() {
         // Arrange
-        when(reservationService.findPendingBankTransferReservations(any(LocalDate.class)))
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE, true);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class)))
                 .thenReturn(List.of());
 
         // Act
         scheduler.cancelOverdueBankTransferReservations();
 
         // Assert
-        verify(reservationService, times(1)).findPendingBankTransferReservations(any(LocalDate.class));
+        verify(reservationService, times(1)).cancelOverdueBankTransferReservations(any(LocalDate.class));
         verify(reservationService, never()).cancelReservation(anyLong());
     }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldSkipTheSweep_whenAnotherInstanceHoldsTheLease() {
+        // Arrange
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE, false);
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        verify(reservationService, never()).cancelOverdueBankTransferReservations(any(LocalDate.class));
+        verify(schedulerLeaseStore, never()).release(anyString(), anyString(), any(Instant.class));
+        assertThat(leases("held-elsewhere")).isEqualTo(1);
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldHoldTheLeaseForTheMinimumHold_afterASweep() {
+        // Arrange
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE, true);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class))).thenReturn(List.of(1L));
+        Instant before = Instant.now();
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        Instant minimumHold = before.plus(properties.getLease().getMinimumHold());
+        verify(schedulerLeaseStore).release(eq(ReservationCancellationScheduler.SWEEP_LEASE), anyString(),
+                argThat(until -> !until.isBefore(minimumHold)));
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldReleaseTheLeaseAtOnce_whenTheSweepFails() {
+        // Arrange
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE, true);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class)))
+                .thenThrow(new IllegalStateException("database down"));
+
+        // Act & Assert
+        assertThatThrownBy(() -> scheduler.cancelOverdueBankTransferReservations()).isInstanceOf(IllegalStateException.class);
+        Instant minimumHold = Instant.now().plus(properties.getLease().getMinimumHold());
+        verify(schedulerLeaseStore).release(eq(ReservationCancellationScheduler.SWEEP_LEASE), anyString(),
+                argThat(until -> until.isBefore(minimumHold)));
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldRunWithoutALease_whenLeasesAreDisabled() {
+        // Arrange
+        properties.getLease().setEnabled(false);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class))).thenReturn(List.of(1L));
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        verify(reservationService).cancelOverdueBankTransferReservations(any(LocalDate.class));
+        verifyNoInteractions(schedulerLeaseStore);
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldCancelTheShardsWhoseLeaseItGets() {
+        // Arrange
+        properties.setShardSize(100);
+        ReservationIdRange range = mock(ReservationIdRange.class);
+        when(range.getLowest()).thenReturn(150L);
+        when(range.getHighest()).thenReturn(420L);
+        when(reservationService.findOverdueBankTransferIdRange(any(LocalDate.class))).thenReturn(Optional.of(range));
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-1", true);
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-2", false);
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-3", true);
+        givenLease(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-4", true);
+        when(reservationService.cancelOverdueBankTransferReservations(any(LocalDate.class), anyLong(), anyLong()))
+                .thenAnswer(invocation -> List.of((long) invocation.getArgument(1) + 50));
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        verify(reservationService).cancelOverdueBankTransferReservations(any(LocalDate.class), eq(100L), eq(200L));
+        verify(reservationService, never()).cancelOverdueBankTransferReservations(any(LocalDate.class), eq(200L), eq(300L));
+        verify(reservationService).cancelOverdueBankTransferReservations(any(LocalDate.class), eq(300L), eq(400L));
+        verify(reservationService).cancelOverdueBankTransferReservations(any(LocalDate.class), eq(400L), eq(500L));
+        verify(reservationService, never()).cancelOverdueBankTransferReservations(any(LocalDate.class));
+        assertThat(meterRegistry.get(ReservationCancellationScheduler.CANCELLED_METRIC).counter().count()).isEqualTo(3);
+        assertThat(leases("acquired")).isEqualTo(3);
+        assertThat(leases("held-elsewhere")).isEqualTo(1);
+        verify(schedulerLeaseStore).purgeExpired(eq(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-"), any(Instant.class));
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldTakeNoShardLease_whenNothingIsOverdue() {
+        // Arrange
+        properties.setShardSize(100);
+        when(reservationService.findOverdueBankTransferIdRange(any(LocalDate.class))).thenReturn(Optional.empty());
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        verify(schedulerLeaseStore, never()).tryAcquire(anyString(), anyString(), any(Instant.class), any(Instant.class));
+        verify(reservationService, never()).cancelOverdueBankTransferReservations(any(LocalDate.class), anyLong(), anyLong());
+        // The leases of the shards of earlier sweeps still go
+        verify(schedulerLeaseStore).purgeExpired(eq(ReservationCancellationScheduler.SWEEP_LEASE + "-shard-"), any(Instant.class));
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldPurgeNoShardLease_whenLeasesAreDisabled() {
+        // Arrange
+        properties.setShardSize(100);
+        properties.getLease().setEnabled(false);
+        when(reservationService.findOverdueBankTransferIdRange(any(LocalDate.class))).thenReturn(Optional.empty());
+
+        // Act
+        scheduler.cancelOverdueBankTransferReservations();
+
+        // Assert
+        verifyNoInteractions(schedulerLeaseStore);
+    }
+
+    private void givenLease(String name, boolean acquired) {
+        String nodeId = properties.getNodeId();
+        when(schedulerLeaseStore.tryAcquire(eq(name), eq(nodeId), any(Instant.class), any(Instant.class)))
+                .thenReturn(acquired);
+    }
+
+    private double leases(String outcome) {
+        return meterRegistry.get(ReservationCancellationScheduler.LEASES_METRIC).tag("outcome", outcome).counter().count();
+    }
 }
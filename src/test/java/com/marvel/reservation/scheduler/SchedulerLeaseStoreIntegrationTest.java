@@ -0,0 +1,84 @@
+package com.marvel.reservation.scheduler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(SchedulerLeaseStore.class)
+class SchedulerLeaseStoreIntegrationTest {
+
+    private static final Instant NOW = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    private static final Instant LEASE_UNTIL = NOW.plus(Duration.ofMinutes(30));
+
+    @Autowired
+    private SchedulerLeaseStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM scheduler_lease");
+    }
+
+    @Test
+    void tryAcquire_shouldGrantAFreeLeaseToOneOwnerOnly() {
+        assertThat(store.tryAcquire("sweep", "node-1", NOW, LEASE_UNTIL)).isTrue();
+
+        assertThat(store.tryAcquire("sweep", "node-2", NOW, LEASE_UNTIL)).isFalse();
+        assertThat(store.tryAcquire("sweep", "node-1", NOW, LEASE_UNTIL)).isFalse();
+        assertThat(store.tryAcquire("other-sweep", "node-2", NOW, LEASE_UNTIL)).isTrue();
+    }
+
+    @Test
+    void tryAcquire_shouldTakeOverAnExpiredLease() {
+        store.tryAcquire("sweep", "node-1", NOW, LEASE_UNTIL);
+
+        assertThat(store.tryAcquire("sweep", "node-2", LEASE_UNTIL, LEASE_UNTIL.plus(Duration.ofMinutes(30)))).isTrue();
+        assertThat(jdbcTemplate.queryForObject("SELECT owner FROM scheduler_lease WHERE name = 'sweep'", String.class))
+                .isEqualTo("node-2");
+    }
+
+    @Test
+    void release_shouldFreeTheLeaseAtTheGivenTime_forItsOwnerOnly() {
+        store.tryAcquire("sweep", "node-1", NOW, LEASE_UNTIL);
+
+        store.release("sweep", "node-2", NOW);
+        assertThat(store.tryAcquire("sweep", "node-2", NOW, LEASE_UNTIL)).isFalse();
+
+        store.release("sweep", "node-1", NOW.plusSeconds(60));
+        assertThat(store.tryAcquire("sweep", "node-2", NOW, LEASE_UNTIL)).isFalse();
+        assertThat(store.tryAcquire("sweep", "node-2", NOW.plusSeconds(60), LEASE_UNTIL)).isTrue();
+    }
+
+    @Test
+    void purgeExpired_shouldDeleteTheExpiredLeasesOfThePrefixOnly() {
+        store.tryAcquire("sweep-shard-1", "node-1", NOW, NOW.plusSeconds(60));
+        store.tryAcquire("sweep-shard-2", "node-1", NOW, LEASE_UNTIL);
+        store.tryAcquire("sweep-shard-3", "node-2", NOW, LEASE_UNTIL);
+        store.release("sweep-shard-3", "node-2", NOW);
+        store.tryAcquire("sweep", "node-1", NOW, NOW);
+
+        assertThat(store.purgeExpired("sweep-shard-", NOW.plusSeconds(60))).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM scheduler_lease ORDER BY name", String.class))
+                .containsExactly("sweep", "sweep-shard-1", "sweep-shard-2");
+
+        assertThat(store.purgeExpired("sweep-shard-", NOW.plusSeconds(61))).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForList("SELECT name FROM scheduler_lease ORDER BY name", String.class))
+                .containsExactly("sweep", "sweep-shard-2");
+        // A purged lease is free again
+        assertThat(store.tryAcquire("sweep-shard-3", "node-1", NOW.plusSeconds(61), LEASE_UNTIL)).isTrue();
+    }
+}
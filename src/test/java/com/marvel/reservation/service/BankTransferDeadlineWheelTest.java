@@ -0,0 +1,196 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.config.CancellationSweepProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class BankTransferDeadlineWheelTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CancellationSweepProperties properties = new CancellationSweepProperties();
+
+    private BankTransferDeadlineWheel wheel() {
+        return new BankTransferDeadlineWheel(jdbcTemplate, meterRegistry, properties);
+    }
+
+    // A whole second after the wheel was created, so every deadline is a tick of its own
+    private static Instant start() {
+        return Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+    }
+
+    @Test
+    void advance_shouldExpireAReservationAtItsDeadline_notBefore() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant deadline = start().plus(BankTransferDeadlineWheel.PAYMENT_PERIOD);
+        wheel.schedule(1L, deadline);
+
+        assertThat(wheel.advance(deadline.minusMillis(1))).isEmpty();
+        assertThat(wheel.advance(deadline)).containsExactly(1L);
+        assertThat(wheel.advance(deadline.plusSeconds(60))).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void advance_shouldFollowTheReservationsThroughTheDay() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant start = start();
+        // One reservation an hour for a day
+        for (long hour = 0; hour < 24; hour++) {
+            wheel.schedule(hour, start.plus(Duration.ofHours(hour)).plus(BankTransferDeadlineWheel.PAYMENT_PERIOD));
+        }
+
+        // Two days later they expire one an hour, not together at midnight
+        Instant now = start.plus(BankTransferDeadlineWheel.PAYMENT_PERIOD);
+        for (long hour = 0; hour < 24; hour++) {
+            assertThat(wheel.advance(now.plus(Duration.ofHours(hour)))).containsExactly(hour);
+        }
+    }
+
+    @Test
+    void cancel_shouldRemoveTheReservation() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant deadline = start().plus(BankTransferDeadlineWheel.PAYMENT_PERIOD);
+        wheel.schedule(1L, deadline);
+        wheel.schedule(2L, deadline);
+        wheel.schedule(3L, deadline);
+
+        wheel.cancel(2L);
+        wheel.cancel(List.of(3L, 4L));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(deadline)).containsExactly(1L);
+    }
+
+    @Test
+    void schedule_shouldReplaceTheDeadlineOfAScheduledReservation() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant start = start();
+        wheel.schedule(1L, start.plus(Duration.ofHours(1)));
+
+        wheel.schedule(1L, start.plus(Duration.ofHours(2)));
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(start.plus(Duration.ofHours(1)))).isEmpty();
+        assertThat(wheel.advance(start.plus(Duration.ofHours(2)))).containsExactly(1L);
+    }
+
+    @Test
+    void schedule_shouldExpireAPassedDeadlineAtTheNextAdvance() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant now = start();
+        wheel.advance(now);
+
+        wheel.schedule(1L, now.minus(Duration.ofDays(1)));
+
+        assertThat(wheel.advance(now)).containsExactly(1L);
+    }
+
+    @Test
+    void advance_shouldKeepDeadlinesBeyondTheRangeOfTheTopLevel() {
+        BankTransferDeadlineWheel wheel = wheel();
+        // 64^4 one second ticks are about 194 days
+        Instant deadline = start().plus(Duration.ofDays(300));
+        wheel.schedule(1L, deadline);
+
+        assertThat(wheel.advance(deadline.minusSeconds(1))).isEmpty();
+        assertThat(wheel.advance(deadline)).containsExactly(1L);
+    }
+
+    @Test
+    void advance_shouldExpireEveryReservationOnce_withinATickOfItsDeadline() {
+        BankTransferDeadlineWheel wheel = wheel();
+        Instant start = start();
+        Random random = new Random(42);
+        Map<Long, Instant> deadlines = new HashMap<>();
+        for (long id = 1; id <= 20_000; id++) {
+            Instant deadline = start.plusMillis(random.nextLong(Duration.ofDays(3).toMillis()));
+            deadlines.put(id, deadline);
+            wheel.schedule(id, deadline);
+        }
+        List<Long> cancelled = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id += 7) {
+            wheel.cancel(id);
+            cancelled.add(id);
+        }
+
+        List<Long> expired = new ArrayList<>();
+        Instant previous = start;
+        Instant end = start.plus(Duration.ofDays(3)).plusSeconds(1);
+        while (previous.isBefore(end)) {
+            Instant now = previous.plusSeconds(1 + random.nextInt(600));
+            Instant since = previous;
+            List<Long> batch = wheel.advance(now);
+            assertThat(batch).allSatisfy(id -> {
+                assertThat(deadlines.get(id)).isBeforeOrEqualTo(now);
+                // Would have expired at an earlier advance if its deadline was at least a tick before it
+                assertThat(deadlines.get(id)).isAfter(since.minusSeconds(1));
+            });
+            expired.addAll(batch);
+            previous = now;
+        }
+
+        assertThat(expired).doesNotHaveDuplicates().hasSize(deadlines.size() - cancelled.size()).doesNotContainAnyElementsOf(cancelled);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void rebuild_shouldScheduleThePendingBankTransfersOfTheTable() throws Exception {
+        Instant start = start();
+        LocalDate today = LocalDate.now();
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet resultSet = mock(ResultSet.class);
+            when(resultSet.getLong("id")).thenReturn(1L, 2L);
+            when(resultSet.getTimestamp("created_at")).thenReturn(Timestamp.from(start), (Timestamp) null);
+            when(resultSet.getDate("reservation_date")).thenReturn(Date.valueOf(today));
+            handler.processRow(resultSet);
+            handler.processRow(resultSet);
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        BankTransferDeadlineWheel wheel = wheel();
+
+        wheel.rebuild();
+
+        assertThat(meterRegistry.get(BankTransferDeadlineWheel.SCHEDULED_METRIC).gauge().value()).isEqualTo(2);
+        assertThat(wheel.advance(start.plus(BankTransferDeadlineWheel.PAYMENT_PERIOD))).containsExactly(1L);
+        // Without a creation time the deadline is the midnight the sweep would cancel it at
+        Instant midnight = today.plusDays(3).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        assertThat(wheel.advance(midnight.minusSeconds(1))).isEmpty();
+        assertThat(wheel.advance(midnight)).containsExactly(2L);
+    }
+
+    @Test
+    void disabledWheel_shouldNeverQueryNorExpire() {
+        properties.getDeadlineWheel().setEnabled(false);
+        BankTransferDeadlineWheel wheel = wheel();
+
+        wheel.rebuild();
+        wheel.schedule(1L, Instant.now().minusSeconds(1));
+
+        assertThat(wheel.advance(Instant.now())).isEmpty();
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
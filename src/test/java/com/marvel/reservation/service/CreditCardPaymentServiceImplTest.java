@@ -0,0 +1,506 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.config.CreditCardPaymentClientConfig;
+import com.marvel.reservation.config.CreditCardPaymentClientProperties;
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.exception.PaymentException;
+import com.marvel.reservation.exception.PaymentServiceUnavailableException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CreditCardPaymentServiceImplTest {
+
+    private final CreditCardPaymentClientConfig clientConfig = new CreditCardPaymentClientConfig();
+    private final CreditCardPaymentClientProperties properties = new CreditCardPaymentClientProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger receivedCalls = new AtomicInteger();
+    private final List<Integer> receivedBatchSizes = new CopyOnWriteArrayList<>();
+
+    private HttpServer cardService;
+    private volatile long responseDelayMillis;
+    private volatile int responseCode = 200;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CreditCardPaymentClientConfig.DeadlineExecChainHandler deadlineHandler;
+    private CloseableHttpClient httpClient;
+    private CreditCardPaymentServiceImpl paymentService;
+    private PaymentStatusBatcher paymentStatusBatcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        cardService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        cardService.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        cardService.createContext("/api/v1/payment-status", this::respond);
+        cardService.createContext("/api/v1/payment-status/batch", this::respondToBatch);
+        cardService.start();
+
+        properties.setReadTimeout(Duration.ofMillis(500));
+        properties.setTotalDeadline(Duration.ofSeconds(1));
+        properties.getCircuitBreaker().setSlidingWindowSize(10);
+        properties.getCircuitBreaker().setMinimumNumberOfCalls(5);
+        properties.getCircuitBreaker().setSlowCallDuration(Duration.ofMillis(200));
+        properties.getCircuitBreaker().setWaitInOpenState(Duration.ofMillis(300));
+        properties.getCircuitBreaker().setPermittedCallsInHalfOpenState(2);
+        properties.getBulkhead().setMaxConcurrentCalls(2);
+        properties.getStatusCache().setNegativeTtl(Duration.ofMillis(200));
+        connectionManager = clientConfig.creditCardConnectionManager(properties);
+        deadlineHandler = clientConfig.creditCardDeadlineHandler(properties);
+        httpClient = clientConfig.creditCardHttpClient(connectionManager, deadlineHandler, properties);
+        clientConfig.creditCardConnectionPoolMetrics(connectionManager).bindTo(meterRegistry);
+        createPaymentService();
+    }
+
+    private void createPaymentService() {
+        String baseUrl = "http://localhost:" + cardService.getAddress().getPort() + "/api/v1/payment-status";
+        RestTemplate restTemplate = clientConfig.restTemplate(httpClient);
+        paymentStatusBatcher = new PaymentStatusBatcher(restTemplate, properties, meterRegistry, baseUrl + "/batch");
+        paymentStatusBatcher.start();
+        paymentService = new CreditCardPaymentServiceImpl(restTemplate,
+                clientConfig.creditCardCircuitBreaker(properties, meterRegistry),
+                clientConfig.creditCardBulkhead(properties, meterRegistry),
+                meterRegistry,
+                clientConfig.creditCardPaymentStatusCache(properties, meterRegistry),
+                paymentStatusBatcher);
+        ReflectionTestUtils.setField(paymentService, "paymentStatusUrl", baseUrl);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        paymentStatusBatcher.stop();
+        httpClient.close();
+        deadlineHandler.close();
+        cardService.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        receivedCalls.incrementAndGet();
+        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        try {
+            Thread.sleep(responseDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        String status = body.contains("\"paymentReference\":\"CC-OK") ? "CONFIRMED" : "REJECTED";
+        byte[] response = ("{\"lastUpdateDate\":\"2030-01-01T10:00:00Z\",\"status\":\"" + status + "\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(responseCode, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    private void respondToBatch(HttpExchange exchange) throws IOException {
+        receivedCalls.incrementAndGet();
+        JsonNode references = new ObjectMapper().readTree(exchange.getRequestBody()).get("paymentReferences");
+        receivedBatchSizes.add(references.size());
+        try {
+            Thread.sleep(responseDelayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        StringBuilder payments = new StringBuilder();
+        for (JsonNode reference : references) {
+            if (!reference.asText().contains("UNKNOWN")) {
+                String status = reference.asText().startsWith("CC-OK") ? "CONFIRMED" : "REJECTED";
+                payments.append(payments.isEmpty() ? "" : ",")
+                        .append("{\"paymentReference\":\"").append(reference.asText()).append("\",\"status\":\"").append(status).append("\"}");
+            }
+        }
+        byte[] response = ("{\"payments\":[" + payments + "]}").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(responseCode, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldReadTheStatusOfTheCardService() {
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-1")).isTrue();
+        assertThat(paymentService.isPaymentConfirmed("CC-NOK-1")).isFalse();
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldReusePooledConnections() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(paymentService.isPaymentConfirmed("CC-OK-" + i)).isTrue();
+        }
+
+        assertThat(clientPorts).hasSize(1);
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", "credit-card-payment").tag("state", "available").gauge().value()).isEqualTo(1);
+        assertThat(meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value()).isEqualTo(100);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldGiveUpAfterTheReadTimeout() {
+        responseDelayMillis = 2_000;
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-SLOW"))
+                .isInstanceOf(PaymentServiceUnavailableException.class)
+                .hasMessage(Constants.CARD_SERVICE_UNREACHABLE);
+
+        assertThat(rejected("unreachable")).isEqualTo(1);
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(1_500));
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldGiveUpAtTheTotalDeadline_whenTheResponseTrickles() throws Exception {
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-WARMUP")).isTrue();
+        try (ServerSocket tricklingService = new ServerSocket(0)) {
+            Thread.ofVirtual().start(() -> trickleHeaders(tricklingService));
+            ReflectionTestUtils.setField(paymentService, "paymentStatusUrl",
+                    "http://localhost:" + tricklingService.getLocalPort() + "/api/v1/payment-status");
+
+            long started = System.nanoTime();
+            assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-TRICKLE"))
+                    .isInstanceOf(PaymentServiceUnavailableException.class);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - started)).isLessThan(Duration.ofMillis(1_800));
+        }
+    }
+
+    // Sends a header line every 200 ms: the read timeout never fires, only the total deadline stops the call
+    private static void trickleHeaders(ServerSocket server) {
+        try (Socket socket = server.accept()) {
+            OutputStream out = socket.getOutputStream();
+            out.write("HTTP/1.1 200 OK\r\n".getBytes(StandardCharsets.US_ASCII));
+            for (int i = 0; i < 50; i++) {
+                Thread.sleep(200);
+                out.write(("X-Wait-" + i + ": 1\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client gave up
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldReportAnOutage_whenTheCardServiceIsDown() {
+        cardService.stop(0);
+
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-DOWN"))
+                .isInstanceOf(PaymentServiceUnavailableException.class)
+                .hasMessage(Constants.CARD_SERVICE_UNREACHABLE);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldReportAnOutage_onAServerError() {
+        responseCode = 503;
+
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-503"))
+                .isInstanceOf(PaymentServiceUnavailableException.class)
+                .hasMessage(Constants.CARD_SERVICE_UNREACHABLE);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldFailFast_whenTheCircuitIsOpenAfterErrors() {
+        responseCode = 500;
+        for (int i = 0; i < 5; i++) {
+            String paymentReference = "CC-OK-ERROR-" + i;
+            assertThatThrownBy(() -> paymentService.isPaymentConfirmed(paymentReference))
+                    .hasMessage(Constants.CARD_SERVICE_UNREACHABLE);
+        }
+        int callsBeforeOpen = receivedCalls.get();
+
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-OPEN"))
+                .isInstanceOf(PaymentServiceUnavailableException.class)
+                .isInstanceOf(PaymentException.class)
+                .hasMessage(Constants.CARD_SERVICE_CIRCUIT_OPEN);
+
+        assertThat(receivedCalls).hasValue(callsBeforeOpen);
+        assertThat(circuitState("open")).isEqualTo(1);
+        assertThat(rejected("circuit-open")).isEqualTo(1);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldOpenTheCircuit_whenCallsAreSlow() {
+        responseDelayMillis = 300;
+        for (int i = 0; i < 5; i++) {
+            assertThat(paymentService.isPaymentConfirmed("CC-OK-SLOW-" + i)).isTrue();
+        }
+
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-OPEN"))
+                .isInstanceOf(PaymentServiceUnavailableException.class);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldProbeAndCloseTheCircuit_whenTheCardServiceRecovers() throws InterruptedException {
+        responseCode = 500;
+        for (int i = 0; i < 5; i++) {
+            String paymentReference = "CC-OK-ERROR-" + i;
+            assertThatThrownBy(() -> paymentService.isPaymentConfirmed(paymentReference))
+                    .isInstanceOf(PaymentServiceUnavailableException.class);
+        }
+        responseCode = 200;
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-OPEN"))
+                .isInstanceOf(PaymentServiceUnavailableException.class);
+
+        Thread.sleep(400);
+
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-PROBE-1")).isTrue();
+        assertThat(circuitState("half_open")).isEqualTo(1);
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-PROBE-2")).isTrue();
+        assertThat(circuitState("closed")).isEqualTo(1);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldNotOpenTheCircuit_forUnknownPaymentReferences() {
+        responseCode = 404;
+        for (int i = 0; i < 10; i++) {
+            assertThat(paymentService.isPaymentConfirmed("CC-UNKNOWN-" + i)).isFalse();
+        }
+
+        assertThat(circuitState("closed")).isEqualTo(1);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldRejectCallsBeyondTheBulkhead() throws Exception {
+        responseDelayMillis = 150;
+        List<Callable<Boolean>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            String paymentReference = "CC-OK-CONCURRENT-" + i;
+            calls.add(() -> paymentService.isPaymentConfirmed(paymentReference));
+        }
+
+        int confirmed = 0;
+        int busy = 0;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Boolean> result : callers.invokeAll(calls)) {
+                try {
+                    confirmed += result.get() ? 1 : 0;
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(PaymentServiceUnavailableException.class)
+                            .hasMessage(Constants.CARD_SERVICE_BUSY);
+                    busy++;
+                }
+            }
+        }
+
+        assertThat(confirmed).isBetween(2, 5);
+        assertThat(busy).isEqualTo(6 - confirmed);
+        assertThat(rejected("bulkhead-full")).isEqualTo(busy);
+        assertThat(meterRegistry.get("resilience4j.bulkhead.max.allowed.concurrent.calls").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldAnswerRetriesOfAConfirmedPaymentFromTheCache() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(paymentService.isPaymentConfirmed("CC-OK-RETRIED")).isTrue();
+        }
+
+        assertThat(receivedCalls).hasValue(1);
+        assertThat(cacheGets("hit")).isEqualTo(9);
+        assertThat(cacheGets("miss")).isEqualTo(1);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldAskAgainForARejectedPayment_afterTheNegativeTtl() throws InterruptedException {
+        assertThat(paymentService.isPaymentConfirmed("CC-NOK-RETRIED")).isFalse();
+        assertThat(paymentService.isPaymentConfirmed("CC-NOK-RETRIED")).isFalse();
+        assertThat(receivedCalls).hasValue(1);
+
+        Thread.sleep(300);
+
+        assertThat(paymentService.isPaymentConfirmed("CC-NOK-RETRIED")).isFalse();
+        assertThat(receivedCalls).hasValue(2);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldNotCacheFailedCalls() {
+        responseCode = 500;
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-FLAKY"))
+                .isInstanceOf(PaymentServiceUnavailableException.class);
+
+        responseCode = 200;
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-FLAKY")).isTrue();
+        assertThat(receivedCalls).hasValue(2);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldShareOneRemoteCallBetweenConcurrentCallersOfAReference() throws Exception {
+        responseDelayMillis = 150;
+        int callers = 20;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return paymentService.isPaymentConfirmed("CC-OK-DOUBLE-CLICK");
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThat(result.get()).isTrue();
+            }
+        }
+
+        assertThat(receivedCalls).hasValue(1);
+        assertThat(lookups("remote")).isEqualTo(1);
+        assertThat(lookups("coalesced")).isPositive();
+        assertThat(lookups("coalesced") + lookups("cached")).isEqualTo(callers - 1);
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldShareTheFailureOfTheRemoteCall() throws Exception {
+        responseDelayMillis = 150;
+        responseCode = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return paymentService.isPaymentConfirmed("CC-OK-FAILING");
+                }));
+            }
+            start.countDown();
+            for (Future<Boolean> result : results) {
+                assertThatThrownBy(result::get).hasCauseInstanceOf(PaymentServiceUnavailableException.class);
+            }
+        }
+
+        assertThat(receivedCalls.get()).isLessThan(5);
+        responseCode = 200;
+        responseDelayMillis = 0;
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-FAILING")).isTrue();
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldSendConcurrentLookupsAsBatches_whenBatchingIsEnabled() throws Exception {
+        enableBatching();
+        responseDelayMillis = 20;
+        List<Callable<Boolean>> lookups = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String paymentReference = (i % 4 == 0 ? "CC-NOK-BATCH-" : "CC-OK-BATCH-") + i;
+            lookups.add(() -> paymentService.isPaymentConfirmed(paymentReference));
+        }
+
+        List<Boolean> confirmed = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Future<Boolean> result : callers.invokeAll(lookups)) {
+                confirmed.add(result.get());
+            }
+        }
+
+        for (int i = 0; i < 40; i++) {
+            assertThat(confirmed.get(i)).isEqualTo(i % 4 != 0);
+        }
+        assertThat(receivedBatchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(40);
+        assertThat(receivedCalls.get()).isLessThan(40);
+        assertThat(receivedBatchSizes).allMatch(size -> size <= 10);
+        assertThat(meterRegistry.get(PaymentStatusBatcher.BATCH_SIZE_METRIC).summary().count()).isEqualTo(receivedCalls.get());
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldTreatReferencesMissingFromTheBatchAsUnconfirmed() {
+        enableBatching();
+
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-UNKNOWN")).isFalse();
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-KNOWN")).isTrue();
+    }
+
+    @Test
+    void isPaymentConfirmed_shouldFailEveryLookupOfAFailedBatch() {
+        enableBatching();
+        responseCode = 500;
+
+        assertThatThrownBy(() -> paymentService.isPaymentConfirmed("CC-OK-BATCH-ERROR"))
+                .isInstanceOf(PaymentServiceUnavailableException.class)
+                .hasMessage(Constants.CARD_SERVICE_UNREACHABLE);
+
+        responseCode = 200;
+        assertThat(paymentService.isPaymentConfirmed("CC-OK-BATCH-ERROR")).isTrue();
+    }
+
+    @Test
+    void stop_shouldFailTheLookupsOfTheBatchBeingCollected() throws Exception {
+        enableBatching();
+        paymentStatusBatcher.stop();
+        properties.getBatch().setMaxWait(Duration.ofSeconds(10));
+        createPaymentService();
+        CompletableFuture<String> lookup = CompletableFuture.supplyAsync(() -> paymentStatusBatcher.lookUp("CC-OK-STOPPED"));
+        // Taken by the collector, which then waits for more references
+        Thread.sleep(200);
+
+        paymentStatusBatcher.stop();
+
+        assertThatThrownBy(() -> lookup.get(2, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(paymentStatusBatcher.isRunning()).isFalse();
+        assertThat(receivedCalls.get()).isZero();
+    }
+
+    private void enableBatching() {
+        paymentStatusBatcher.stop();
+        properties.getBatch().setEnabled(true);
+        properties.getBatch().setMaxSize(10);
+        properties.getBatch().setMaxWait(Duration.ofMillis(10));
+        // Only widens the caller timeout of the batcher, the client was built with the one second deadline: the first
+        // batch of the JVM takes longer to serialize, and its callers would report an outage
+        properties.setTotalDeadline(Duration.ofSeconds(3));
+        createPaymentService();
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.counter(CreditCardPaymentServiceImpl.LOOKUP_METRIC, "result", result).count();
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", CreditCardPaymentClientConfig.STATUS_CACHE_NAME)
+                .tag("result", result).functionCounter().count();
+    }
+
+    private double circuitState(String state) {
+        return meterRegistry.get("resilience4j.circuitbreaker.state")
+                .tag("name", CreditCardPaymentClientConfig.POOL_NAME).tag("state", state).gauge().value();
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.counter(CreditCardPaymentServiceImpl.REJECTED_METRIC, "reason", reason).count();
+    }
+}
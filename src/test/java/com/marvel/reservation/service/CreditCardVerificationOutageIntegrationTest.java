@@ -0,0 +1,124 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.repository.ReservationRepository;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Background card checks through the real payment client, against a card service that answers after the read
+ * timeout. Without the {@code test} profile, so the client is not replaced by {@link MockCreditCardPaymentService}.
+ */
+@SpringBootTest(properties = {
+        "reservation.credit-card.async.enabled=true",
+        "credit.card.payment.client.read-timeout=1s",
+        "credit.card.payment.client.total-deadline=1500ms",
+        // The first retry comes long after the test
+        "reservation.credit-card.async.retry.backoff=1h"
+})
+class CreditCardVerificationOutageIntegrationTest {
+
+    private static final HttpServer SLOW_CARD_SERVICE = startSlowCardService();
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private RoomOccupancyIndex roomOccupancyIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @DynamicPropertySource
+    static void cardServiceUrl(DynamicPropertyRegistry registry) {
+        registry.add("credit.card.payment.service.url",
+                () -> "http://localhost:" + SLOW_CARD_SERVICE.getAddress().getPort() + "/api/v1/payment-status");
+    }
+
+    @AfterAll
+    static void stopCardService() {
+        SLOW_CARD_SERVICE.stop(0);
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldStayPending_whenTheCardServiceTimesOut() {
+        LocalDate start = LocalDate.now().plusDays(20);
+        Long reservationId = reservationService.acceptReservation(creditCard("OUTAGE-1", "CC-TIMEOUT-1", start))
+                .getReservationId();
+
+        await().atMost(Duration.ofSeconds(15)).until(() -> unreachable() >= 1);
+
+        assertThat(reservationRepository.findById(reservationId).orElseThrow().getStatus())
+                .isEqualTo(ReservationStatus.PENDING_PAYMENT);
+        assertThat(roomOccupancyIndex.isAvailable("OUTAGE-1", start, start.plusDays(1))).isFalse();
+    }
+
+    private double unreachable() {
+        return meterRegistry.counter(CreditCardPaymentServiceImpl.REJECTED_METRIC, "reason", "unreachable").count();
+    }
+
+    // Confirms every payment, five seconds late
+    private static HttpServer startSlowCardService() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+            server.createContext("/api/v1/payment-status", exchange -> {
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] response = "{\"lastUpdateDate\":\"2030-01-01T10:00:00Z\",\"status\":\"CONFIRMED\"}"
+                        .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                } catch (IOException e) {
+                    // the client gave up
+                }
+            });
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ReservationRequest creditCard(String roomNumber, String paymentReference, LocalDate start) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Outage Test");
+        request.setRoomNumber(roomNumber);
+        request.setStartDate(start);
+        request.setEndDate(start.plusDays(1));
+        request.setRoomSegment(RoomSegment.SMALL);
+        request.setPaymentMode(PaymentMode.CREDIT_CARD);
+        request.setPaymentReference(paymentReference);
+        return request;
+    }
+}
@@ -1,5 +1,7 @@
 package com.marvel.reservation.service;
 
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.exception.PaymentServiceUnavailableException;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Service;
@@ -11,6 +13,10 @@ public class MockCreditCardPaymentService implements CreditCardPaymentService {
 
     @Override
     public boolean isPaymentConfirmed(String paymentReference) {
+        // Mock logic: the card service circuit is open for references containing "UNAVAILABLE"
+        if (paymentReference != null && paymentReference.contains("UNAVAILABLE")) {
+            throw new PaymentServiceUnavailableException(Constants.CARD_SERVICE_CIRCUIT_OPEN);
+        }
         // Mock logic: Assume payment is confirmed if the reference contains "SUCCESS"
         return paymentReference != null && paymentReference.contains("SUCCESS");
     }
@@ -0,0 +1,111 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.RoomReservationServiceApplication;
+import com.marvel.reservation.dto.ReservationRequest;
+import com.marvel.reservation.model.enums.PaymentMode;
+import com.marvel.reservation.model.enums.ReservationStatus;
+import com.marvel.reservation.model.enums.RoomSegment;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two instances of the service, each its own application context and payment reference filter, sharing one H2 file
+ * database. A reservation made on one instance after the other built its filter must still be confirmed there.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PaymentReferenceFilterClusterIntegrationTest {
+
+    private static final LocalDate START = LocalDate.now().plusDays(10);
+
+    @TempDir
+    static Path databaseDirectory;
+
+    private ConfigurableApplicationContext nodeA;
+    private ConfigurableApplicationContext nodeB;
+
+    @BeforeAll
+    void startNodes() {
+        nodeA = startNode("node-a");
+        nodeB = startNode("node-b");
+    }
+
+    @AfterAll
+    void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void bankTransferUpdate_shouldConfirmAReservationMadeByAnotherInstanceSinceTheFilterWasBuilt() {
+        Long reservationId = nodeA.getBean(ReservationService.class).confirmReservation(bankTransfer("PF1", "PFILT001"))
+                .getReservationId();
+        assertThat(nodeB.getBean(PaymentReferenceFilter.class).mightContain("PFILT001")).isFalse();
+        double recentMatches = recentMatches(nodeB);
+
+        nodeB.getBean(ReservationService.class).confirmBankTransferPayment("1401541457 PFILT001");
+
+        assertThat(status(reservationId)).isEqualTo(ReservationStatus.CONFIRMED.name());
+        assertThat(recentMatches(nodeB) - recentMatches).isEqualTo(1);
+        // Known from now on, without asking the database again
+        assertThat(nodeB.getBean(PaymentReferenceFilter.class).mightContain("PFILT001")).isTrue();
+    }
+
+    @Test
+    void bankTransferUpdates_shouldConfirmReservationsMadeByAnotherInstanceSinceTheFilterWasBuilt() {
+        Long reservationId = nodeA.getBean(ReservationService.class).confirmReservation(bankTransfer("PF2", "PFILT002"))
+                .getReservationId();
+        double recentMatches = recentMatches(nodeB);
+
+        int confirmed = nodeB.getBean(ReservationService.class)
+                .confirmBankTransferPayments(List.of("1401541458 PFILT002", "1401541459 OTHER001"));
+
+        assertThat(confirmed).isEqualTo(1);
+        assertThat(status(reservationId)).isEqualTo(ReservationStatus.CONFIRMED.name());
+        assertThat(recentMatches(nodeB) - recentMatches).isEqualTo(1);
+    }
+
+    private ConfigurableApplicationContext startNode(String nodeId) {
+        return new SpringApplicationBuilder(RoomReservationServiceApplication.class)
+                .profiles("test")
+                .properties(
+                        "spring.main.web-application-type=none",
+                        "spring.datasource.url=jdbc:h2:file:" + databaseDirectory.resolve("reservationdb"),
+                        "spring.jpa.hibernate.ddl-auto=update",
+                        "reservation.cancellation.node-id=" + nodeId)
+                .run();
+    }
+
+    private String status(Long reservationId) {
+        return nodeA.getBean(JdbcTemplate.class)
+                .queryForObject("SELECT status FROM reservation WHERE id = ?", String.class, reservationId);
+    }
+
+    private static double recentMatches(ConfigurableApplicationContext node) {
+        return node.getBean(MeterRegistry.class).counter(PaymentReferenceFilter.RECENT_MATCHES_METRIC).count();
+    }
+
+    private static ReservationRequest bankTransfer(String roomNumber, String paymentReference) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName("Filter Test");
+        request.setRoomNumber(roomNumber);
+        request.setStartDate(START);
+        request.setEndDate(START.plusDays(1));
+        request.setRoomSegment(RoomSegment.SMALL);
+        request.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        request.setPaymentReference(paymentReference);
+        return request;
+    }
+}
@@ -0,0 +1,188 @@
+package com.marvel.reservation.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PaymentReferenceFilterTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private PaymentReferenceFilter filter(boolean enabled, long expectedReferences) {
+        return new PaymentReferenceFilter(jdbcTemplate, meterRegistry, enabled, expectedReferences, 0.01);
+    }
+
+    // The reservation table as seen by the rebuild; duringRead runs once the first row has been read
+    private void givenTable(List<String> references, Consumer<String> duringRead) throws Exception {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn((long) references.size());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet resultSet = mock(ResultSet.class);
+            for (String reference : references) {
+                when(resultSet.getString(1)).thenReturn(reference);
+                handler.processRow(resultSet);
+                duringRead.accept(reference);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+    }
+
+    private static List<String> references(String prefix, int count) {
+        List<String> references = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            references.add(String.format("%s%07d", prefix, i));
+        }
+        return references;
+    }
+
+    @Test
+    void mightContain_shouldLetEverythingThrough_beforeTheFirstBuild() {
+        PaymentReferenceFilter filter = filter(true, 1000);
+
+        assertThat(filter.mightContain("P0000001")).isTrue();
+    }
+
+    @Test
+    void mightContain_shouldKnowEveryReferenceOfTheTable_andRejectMostUnknownOnes() throws Exception {
+        List<String> known = references("P", 10_000);
+        givenTable(known, reference -> { });
+        PaymentReferenceFilter filter = filter(true, 10_000);
+
+        filter.rebuild();
+
+        assertThat(known).allMatch(filter::mightContain);
+        long falsePositives = references("X", 100_000).stream().filter(filter::mightContain).count();
+        // Sized for 20,000 references at 1%, so 10,000 give well under 1%
+        assertThat(falsePositives).isLessThan(1_000);
+        assertThat(meterRegistry.get(PaymentReferenceFilter.SKIPPED_METRIC).counter().count()).isEqualTo(100_000 - falsePositives);
+        assertThat(meterRegistry.get(PaymentReferenceFilter.EXPECTED_FALSE_POSITIVE_RATE_METRIC).gauge().value()).isLessThan(0.01);
+        assertThat(meterRegistry.get(PaymentReferenceFilter.REFERENCES_METRIC).gauge().value()).isEqualTo(10_000);
+    }
+
+    @Test
+    void add_shouldMakeANewReferenceKnown() throws Exception {
+        givenTable(List.of(), reference -> { });
+        PaymentReferenceFilter filter = filter(true, 1000);
+        filter.rebuild();
+        assertThat(filter.mightContain("P4145478")).isFalse();
+
+        filter.add("P4145478");
+
+        assertThat(filter.mightContain("P4145478")).isTrue();
+    }
+
+    @Test
+    void rebuild_shouldKeepReferencesSavedWhileTheTableIsRead() throws Exception {
+        PaymentReferenceFilter filter = filter(true, 1000);
+        givenTable(references("P", 10), reference -> filter.add("N" + reference.substring(1)));
+
+        filter.rebuild();
+
+        assertThat(references("N", 10)).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void notCreatedBefore_shouldLimitTheLookupOfAnUnknownReference_toTheReservationsMadeSinceTheBuild() throws Exception {
+        givenTable(List.of("P0000001"), reference -> { });
+        PaymentReferenceFilter filter = filter(true, 1000);
+        Instant beforeBuild = Instant.now();
+
+        filter.rebuild();
+
+        assertThat(filter.notCreatedBefore("P0000001")).isNull();
+        assertThat(filter.notCreatedBefore("P4145478"))
+                .isBetween(beforeBuild.minus(PaymentReferenceFilter.CREATION_LAG), Instant.now().minus(PaymentReferenceFilter.CREATION_LAG));
+    }
+
+    @Test
+    void add_shouldNeverLoseAReference_whileTheFilterIsRebuilt() throws Exception {
+        // The reservation table: a writer adds its reference before and after its commit, like the service does
+        Queue<String> committed = new ConcurrentLinkedQueue<>();
+        AtomicReference<String> row = new AtomicReference<>();
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getString(1)).thenAnswer(invocation -> row.get());
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenAnswer(invocation -> (long) committed.size());
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String reference : committed) {
+                row.set(reference);
+                handler.processRow(resultSet);
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+        PaymentReferenceFilter filter = filter(true, 1000);
+        filter.rebuild();
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService threads = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> rebuilds = threads.submit(() -> {
+                while (writing.get()) {
+                    filter.rebuild();
+                }
+            });
+            List<Future<?>> writers = new ArrayList<>();
+            for (String prefix : List.of("A", "B")) {
+                writers.add(threads.submit(() -> {
+                    for (String reference : references(prefix, 5_000)) {
+                        filter.add(reference);
+                        committed.add(reference);
+                        filter.add(reference);
+                    }
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+            writing.set(false);
+            rebuilds.get(1, TimeUnit.MINUTES);
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertThat(committed).hasSize(10_000).allMatch(filter::mightContain);
+    }
+
+    @Test
+    void recordFalsePositives_shouldCountThem() {
+        PaymentReferenceFilter filter = filter(true, 1000);
+
+        filter.recordFalsePositives(2);
+        filter.recordFalsePositives(0);
+
+        assertThat(meterRegistry.get(PaymentReferenceFilter.FALSE_POSITIVES_METRIC).counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void disabledFilter_shouldNeverQueryNorReject() {
+        PaymentReferenceFilter filter = filter(false, 1000);
+
+        filter.rebuild();
+
+        assertThat(filter.mightContain("P4145478")).isTrue();
+        verifyNoInteractions(jdbcTemplate);
+    }
+}
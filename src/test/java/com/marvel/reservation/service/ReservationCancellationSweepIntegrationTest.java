@@ -0,0 +1,87 @@
+package com.marvel.reservation.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The overdue bank transfer sweep of {@link ReservationServiceImpl} on a backlog of 100,000 overdue reservations, each
+ * holding a room night. On this in-memory H2 the sweep takes about as long as one UPDATE and one DELETE over the whole
+ * backlog, while cancelling reservation by reservation costs about 2 ms each.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservationCancellationSweepIntegrationTest {
+
+    private static final int BACKLOG = 100_000;
+    // Far above the ids the reservation sequence hands out to the other tests of this context
+    private static final long FIRST_ID = 100_000_000L;
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 15);
+
+    // Overdue pending bank transfers with one night each, then one reservation for each reason to be left alone
+    private static final String INSERT_BACKLOG = """
+            INSERT INTO reservation (id, customer_name, room_number, start_date, end_date, room_segment,
+                                     payment_mode, payment_reference, status, reservation_date)
+            SELECT ? + X, 'Sweep Test', 'S' || MOD(X, 1000), DATE '2030-07-01', DATE '2030-07-01', 'SMALL',
+                   'BANK_TRANSFER', 'SWEEP' || X, 'PENDING_PAYMENT', DATEADD(DAY, -3 - MOD(X, 30), DATE '2030-06-15')
+            FROM SYSTEM_RANGE(1, ?)
+            """;
+    private static final String INSERT_NIGHTS = """
+            INSERT INTO room_night (room_number, night, reservation_id)
+            SELECT 'S' || MOD(X, 1000), DATEADD(DAY, X / 1000, DATE '2030-07-01'), ? + X FROM SYSTEM_RANGE(1, ?)
+            """;
+    private static final String INSERT_KEPT = """
+            INSERT INTO reservation (id, customer_name, room_number, start_date, end_date, room_segment,
+                                     payment_mode, payment_reference, status, reservation_date)
+            VALUES (?, 'Sweep Test', 'K1', DATE '2030-07-01', DATE '2030-07-01', 'SMALL', ?, ?, ?, ?)
+            """;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM room_night WHERE reservation_id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM reservation WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldCancelTheWholeBacklogInSeconds() {
+        jdbcTemplate.update(INSERT_BACKLOG, FIRST_ID, BACKLOG);
+        jdbcTemplate.update(INSERT_NIGHTS, FIRST_ID, BACKLOG);
+        long kept = FIRST_ID + BACKLOG;
+        // Within the two days, paid, and paid by card
+        jdbcTemplate.update(INSERT_KEPT, kept + 1, "BANK_TRANSFER", "KEPT1", "PENDING_PAYMENT", TODAY.minusDays(2));
+        jdbcTemplate.update(INSERT_KEPT, kept + 2, "BANK_TRANSFER", "KEPT2", "CONFIRMED", TODAY.minusDays(10));
+        jdbcTemplate.update(INSERT_KEPT, kept + 3, "CREDIT_CARD", "KEPT3", "PENDING_PAYMENT", TODAY.minusDays(10));
+
+        long start = System.nanoTime();
+        List<Long> cancelled = reservationService.cancelOverdueBankTransferReservations(TODAY);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(cancelled).hasSize(BACKLOG).doesNotHaveDuplicates().allMatch(id -> id > FIRST_ID && id <= kept);
+        assertThat(count("SELECT COUNT(*) FROM reservation WHERE id >= ? AND status = 'CANCELLED'")).isEqualTo(BACKLOG);
+        assertThat(count("SELECT COUNT(*) FROM room_night WHERE reservation_id >= ?")).isZero();
+        assertThat(jdbcTemplate.queryForList("SELECT status FROM reservation WHERE id > ? ORDER BY id", String.class, kept))
+                .containsExactly("PENDING_PAYMENT", "CONFIRMED", "PENDING_PAYMENT");
+        // 100 transactions of one SELECT FOR UPDATE, one UPDATE and one batch of deletes, instead of 200,000 statements
+        // and as many commits, which take over 3 minutes here
+        assertThat(elapsed).isLessThan(Duration.ofSeconds(40));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class, FIRST_ID);
+    }
+}
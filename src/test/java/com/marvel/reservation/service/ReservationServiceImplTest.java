@@ -1,25 +1,57 @@
 package com.marvel.reservation.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.marvel.reservation.config.CreditCardVerificationRetryProperties;
+import com.marvel.reservation.constant.Constants;
+import com.marvel.reservation.dto.BatchReservationResponse;
 import com.marvel.reservation.dto.ReservationRequest;
 import com.marvel.reservation.dto.ReservationResponse;
+import com.marvel.reservation.dto.RoomAvailabilityResponse;
 import com.marvel.reservation.exception.PaymentException;
+import com.marvel.reservation.exception.PaymentServiceUnavailableException;
+import com.marvel.reservation.exception.ReservationConflictException;
+import com.marvel.reservation.exception.ReservationNotFoundException;
 import com.marvel.reservation.exception.ValidationException;
+import com.marvel.reservation.mapper.ReservationMapper;
+import com.marvel.reservation.mapper.ReservationMapperImpl;
 import com.marvel.reservation.model.Reservation;
 import com.marvel.reservation.model.enums.PaymentMode;
 import com.marvel.reservation.model.enums.ReservationStatus;
 import com.marvel.reservation.model.enums.RoomSegment;
+import com.marvel.reservation.occupancy.OccupancyIndexInitializer;
+import com.marvel.reservation.occupancy.RoomNightLedger;
+import com.marvel.reservation.occupancy.RoomOccupancyIndex;
+import com.marvel.reservation.occupancy.SegmentAvailabilityIndex;
+import com.marvel.reservation.repository.ReservationIdRange;
+import com.marvel.reservation.repository.ReservationPaymentStatus;
 import com.marvel.reservation.repository.ReservationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Limit;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -37,8 +69,41 @@ class ReservationServiceImplTest {
     @Mock
     private CreditCardPaymentService creditCardPaymentService;
 
+    @Spy
+    private ReservationMapper reservationMapper = new ReservationMapperImpl();
+
+    @Spy
+    private RoomOccupancyIndex roomOccupancyIndex = new RoomOccupancyIndex();
+
+    @Spy
+    private SegmentAvailabilityIndex segmentAvailabilityIndex = new SegmentAvailabilityIndex();
+
+    @Mock
+    private RoomNightLedger roomNightLedger;
+
+    @Mock
+    private OccupancyIndexInitializer occupancyIndexInitializer;
+
     @Mock
-    private ObjectMapper objectMapper; // Mock ObjectMapper
+    private PaymentReferenceFilter paymentReferenceFilter;
+
+    @Mock
+    private BankTransferDeadlineWheel bankTransferDeadlineWheel;
+
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private CreditCardVerificationRetryProperties creditCardVerificationRetryProperties = new CreditCardVerificationRetryProperties();
+
+    @Spy
+    private TaskExecutor creditCardVerificationExecutor = new SyncTaskExecutor();
 
     @InjectMocks
     private ReservationServiceImpl reservationService;
@@ -63,14 +128,11 @@ class ReservationServiceImplTest {
         savedReservation.setEndDate(baseRequest.getEndDate());
         savedReservation.setRoomSegment(baseRequest.getRoomSegment());
 
-        lenient().when(objectMapper.convertValue(any(ReservationRequest.class), eq(Reservation.class)))
-                .thenReturn(savedReservation);
+        creditCardVerificationRetryProperties.setBackoff(Duration.ofMillis(10));
     }
 
     @Test
     void confirmReservation_CASH_shouldConfirmImmediately() {
-        lenient().when(objectMapper.convertValue(any(ReservationRequest.class), eq(Reservation.class)))
-                .thenReturn(savedReservation);
 
         baseRequest.setPaymentMode(PaymentMode.CASH);
         savedReservation.setStatus(ReservationStatus.CONFIRMED);
@@ -100,6 +162,24 @@ class ReservationServiceImplTest {
         verify(reservationRepository, times(1)).save(any(Reservation.class));
     }
 
+    @Test
+    void confirmReservation_shouldCheckCreditCardBeforeOpeningTransaction() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.CONFIRMED);
+
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123")).thenReturn(true);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        reservationService.confirmReservation(baseRequest);
+
+        var inOrder = inOrder(creditCardPaymentService, transactionTemplate, reservationRepository);
+        inOrder.verify(creditCardPaymentService).isPaymentConfirmed("CC-REF-123");
+        inOrder.verify(transactionTemplate).execute(any());
+        inOrder.verify(reservationRepository).save(any(Reservation.class));
+        assertThat(meterRegistry.get("reservation.write.transaction").tag("operation", "confirm").timer().count()).isEqualTo(1);
+    }
+
     @Test
     void confirmReservation_CREDIT_CARD_shouldThrowException_whenPaymentIsNotConfirmed() {
         baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
@@ -111,6 +191,7 @@ class ReservationServiceImplTest {
 
         verify(creditCardPaymentService, times(1)).isPaymentConfirmed("CC-REF-123");
         verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(transactionTemplate, never()).execute(any());
     }
 
     @Test
@@ -139,6 +220,35 @@ class ReservationServiceImplTest {
         assertEquals(ReservationStatus.PENDING_PAYMENT, response.getReservationStatus());
         verify(reservationRepository, times(1)).save(any(Reservation.class));
         verify(creditCardPaymentService, never()).isPaymentConfirmed(anyString());
+        verify(paymentReferenceFilter, atLeastOnce()).add("P4145478");
+        verify(bankTransferDeadlineWheel).schedule(1L,
+                BankTransferDeadlineWheel.paymentDeadline(null, savedReservation.getReservationDate()));
+    }
+
+    @Test
+    void confirmReservation_BANK_TRANSFER_shouldScheduleTheDeadlineTwoDaysAfterTheReservation() {
+        baseRequest.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        baseRequest.setPaymentReference("P4145478");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        savedReservation.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        savedReservation.setCreatedAt(Instant.parse("2025-01-10T15:30:00Z"));
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        reservationService.confirmReservation(baseRequest);
+
+        verify(bankTransferDeadlineWheel).schedule(1L, Instant.parse("2025-01-12T15:30:00Z"));
+    }
+
+    @Test
+    void confirmReservation_CASH_shouldNotScheduleADeadline() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        savedReservation.setStatus(ReservationStatus.CONFIRMED);
+        savedReservation.setPaymentMode(PaymentMode.CASH);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        reservationService.confirmReservation(baseRequest);
+
+        verifyNoInteractions(bankTransferDeadlineWheel);
     }
 
     @Test
@@ -151,36 +261,101 @@ class ReservationServiceImplTest {
         verify(reservationRepository, never()).save(any(Reservation.class));
     }
 
+    @Test
+    void confirmReservation_shouldThrowConflict_whenRoomIsAlreadyReserved() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        roomOccupancyIndex.tryReserve(baseRequest.getRoomNumber(), baseRequest.getEndDate(), baseRequest.getEndDate().plusDays(2));
+        when(roomNightLedger.isFree(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).thenReturn(false);
+
+        assertThrows(ReservationConflictException.class, () -> reservationService.confirmReservation(baseRequest));
+
+        verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(occupancyIndexInitializer, never()).resyncRoom(any(), any());
+    }
+
+    @Test
+    void confirmReservation_shouldReloadTheRoom_whenTheLedgerHasTheTakenPeriodFree() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        savedReservation.setStatus(ReservationStatus.CONFIRMED);
+        // Cancelled by another instance: still taken here, free in the database
+        roomOccupancyIndex.tryReserve(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate());
+        when(roomNightLedger.isFree(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).thenReturn(true);
+        doAnswer(invocation -> {
+            roomOccupancyIndex.replaceRoom(baseRequest.getRoomNumber(), List.of());
+            return null;
+        }).when(occupancyIndexInitializer).resyncRoom(baseRequest.getRoomNumber(), baseRequest.getRoomSegment());
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        ReservationResponse response = reservationService.confirmReservation(baseRequest);
+
+        assertEquals(ReservationStatus.CONFIRMED, response.getReservationStatus());
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isFalse();
+    }
+
+    @Test
+    void confirmReservation_shouldThrowConflict_whenNightIsTakenInLedger() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        doThrow(new DuplicateKeyException("uk_room_night")).when(roomNightLedger).bookNights(savedReservation);
+
+        assertThrows(ReservationConflictException.class, () -> reservationService.confirmReservation(baseRequest));
+
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+    }
+
+    @Test
+    void confirmReservation_shouldThrowConflict_whenPaymentReferenceIsAlreadyUsed() {
+        baseRequest.setPaymentMode(PaymentMode.BANK_TRANSFER);
+        baseRequest.setPaymentReference("P4145478");
+        // The insert fails at commit, with the message of the database
+        doThrow(new DataIntegrityViolationException("could not execute statement",
+                new IllegalStateException("Unique index or primary key violation: \"PUBLIC.UK_RESERVATION_PAYMENT_REFERENCE ON PUBLIC.RESERVATION(PAYMENT_REFERENCE)\"")))
+                .when(transactionTemplate).execute(any());
+
+        ReservationConflictException conflict = assertThrows(ReservationConflictException.class,
+                () -> reservationService.confirmReservation(baseRequest));
+
+        assertThat(conflict.getMessage()).isEqualTo(String.format(Constants.PAYMENT_REFERENCE_ALREADY_USED, "P4145478"));
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+    }
+
+    @Test
+    void confirmReservation_shouldReleaseRoom_whenSaveFails() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        when(reservationRepository.save(any(Reservation.class))).thenThrow(new IllegalStateException("db down"));
+
+        assertThrows(IllegalStateException.class, () -> reservationService.confirmReservation(baseRequest));
+
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+    }
+
     @Test
     void confirmBankTransferPayment_shouldConfirmReservation_whenPending() {
         String paymentRef = "P4145478";
         String transactionDesc = "1401541457 " + paymentRef;
-        Reservation pendingReservation = new Reservation();
-        pendingReservation.setId(1L);
-        pendingReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
-
-        when(reservationRepository.findByPaymentReference(paymentRef)).thenReturn(Optional.of(pendingReservation));
-        when(reservationRepository.save(any(Reservation.class))).thenReturn(pendingReservation);
+        when(reservationRepository.findPaymentStatusByPaymentReference(paymentRef))
+                .thenReturn(Optional.of(paymentStatus(1L, paymentRef, ReservationStatus.PENDING_PAYMENT)));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED))
+                .thenReturn(1);
 
         reservationService.confirmBankTransferPayment(transactionDesc);
 
-        assertEquals(ReservationStatus.CONFIRMED, pendingReservation.getStatus());
-        verify(reservationRepository, times(1)).save(pendingReservation);
+        verify(reservationRepository, times(1))
+                .updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+        verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(bankTransferDeadlineWheel).cancel(1L);
     }
 
     @Test
     void confirmBankTransferPayment_shouldDoNothing_whenAlreadyConfirmed() {
         String paymentRef = "P4145478";
         String transactionDesc = "1401541457 " + paymentRef;
-        Reservation confirmedReservation = new Reservation();
-        confirmedReservation.setId(1L);
-        confirmedReservation.setStatus(ReservationStatus.CONFIRMED);
-
-        when(reservationRepository.findByPaymentReference(paymentRef)).thenReturn(Optional.of(confirmedReservation));
+        when(reservationRepository.findPaymentStatusByPaymentReference(paymentRef))
+                .thenReturn(Optional.of(paymentStatus(1L, paymentRef, ReservationStatus.CONFIRMED)));
 
         reservationService.confirmBankTransferPayment(transactionDesc);
 
-        verify(reservationRepository, never()).save(confirmedReservation);
+        verify(reservationRepository, never()).updateStatus(anyCollection(), any(), any());
     }
 
     @Test
@@ -188,42 +363,184 @@ class ReservationServiceImplTest {
         String paymentRef = "P4145478";
         String transactionDesc = "1401541457 " + paymentRef;
 
-        when(reservationRepository.findByPaymentReference(paymentRef)).thenReturn(Optional.empty());
+        when(reservationRepository.findPaymentStatusByPaymentReference(paymentRef)).thenReturn(Optional.empty());
 
         reservationService.confirmBankTransferPayment(transactionDesc);
 
-        verify(reservationRepository, never()).save(any(Reservation.class));
+        verify(reservationRepository, never()).updateStatus(anyCollection(), any(), any());
+    }
+
+    @Test
+    void confirmBankTransferPayment_shouldOnlyLookUpRecentReservations_whenTheReferenceIsUnknown() {
+        Instant builtFrom = Instant.now().minusSeconds(600);
+        when(paymentReferenceFilter.notCreatedBefore("P4145478")).thenReturn(builtFrom);
+
+        reservationService.confirmBankTransferPayment("1401541457 P4145478");
+
+        verify(reservationRepository).existsByPaymentReferenceAndCreatedAtGreaterThanEqual("P4145478", builtFrom);
+        verifyNoMoreInteractions(reservationRepository);
+        verify(transactionTemplate, never()).execute(any());
     }
 
     @Test
-    void findPendingBankTransferReservations_shouldReturnOverdueReservations() {
+    void confirmBankTransferPayment_shouldConfirm_whenAnotherInstanceMadeTheReservationSinceTheFilterWasBuilt() {
+        Instant builtFrom = Instant.now().minusSeconds(600);
+        when(paymentReferenceFilter.notCreatedBefore("P4145478")).thenReturn(builtFrom);
+        when(reservationRepository.existsByPaymentReferenceAndCreatedAtGreaterThanEqual("P4145478", builtFrom)).thenReturn(true);
+        when(reservationRepository.findPaymentStatusByPaymentReference("P4145478"))
+                .thenReturn(Optional.of(paymentStatus(1L, "P4145478", ReservationStatus.PENDING_PAYMENT)));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED))
+                .thenReturn(1);
+
+        reservationService.confirmBankTransferPayment("1401541457 P4145478");
+
+        verify(reservationRepository).updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+        verify(paymentReferenceFilter).add("P4145478");
+        verify(paymentReferenceFilter).recordRecentMatches(1);
+        verify(bankTransferDeadlineWheel).cancel(1L);
+    }
+
+    @Test
+    void confirmBankTransferPayment_shouldRecordAFalsePositive_whenAPassedReferenceIsNotFound() {
+        when(reservationRepository.findPaymentStatusByPaymentReference("P4145478")).thenReturn(Optional.empty());
+
+        reservationService.confirmBankTransferPayment("1401541457 P4145478");
+
+        verify(paymentReferenceFilter).recordFalsePositives(1);
+    }
+
+    @Test
+    void confirmBankTransferPayments_shouldLookUpUnknownReferencesOnlyAmongRecentReservations() {
+        Instant builtFrom = Instant.now().minusSeconds(600);
+        lenient().when(paymentReferenceFilter.notCreatedBefore("P0000009")).thenReturn(builtFrom);
+        when(reservationRepository.findPaymentReferencesCreatedSince(List.of("P0000009"), builtFrom)).thenReturn(List.of());
+        when(reservationRepository.findPaymentStatusByPaymentReferenceIn(List.of("P0000001"))).thenReturn(List.of());
+
+        reservationService.confirmBankTransferPayments(List.of("1401541457 P0000001", "1401541458 P0000009"));
+
+        verify(reservationRepository).findPaymentStatusByPaymentReferenceIn(List.of("P0000001"));
+        verify(paymentReferenceFilter).recordFalsePositives(1);
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "not-found").count()).isEqualTo(2);
+    }
+
+    @Test
+    void confirmBankTransferPayments_shouldConfirmUnknownReferencesOfReservationsMadeSinceTheFilterWasBuilt() {
+        Instant builtFrom = Instant.now().minusSeconds(600);
+        lenient().when(paymentReferenceFilter.notCreatedBefore("P0000009")).thenReturn(builtFrom);
+        lenient().when(paymentReferenceFilter.notCreatedBefore("X0000001")).thenReturn(builtFrom);
+        when(reservationRepository.findPaymentReferencesCreatedSince(List.of("P0000009", "X0000001"), builtFrom))
+                .thenReturn(List.of("P0000009"));
+        when(reservationRepository.findPaymentStatusByPaymentReferenceIn(List.of("P0000001", "P0000009")))
+                .thenReturn(List.of(paymentStatus(1L, "P0000001", ReservationStatus.PENDING_PAYMENT),
+                        paymentStatus(9L, "P0000009", ReservationStatus.PENDING_PAYMENT)));
+        when(reservationRepository.updateStatus(List.of(1L, 9L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED))
+                .thenReturn(2);
+
+        int result = reservationService.confirmBankTransferPayments(
+                List.of("1401541457 P0000001", "1401541458 P0000009", "1401541459 X0000001"));
+
+        assertThat(result).isEqualTo(2);
+        verify(paymentReferenceFilter).add("P0000009");
+        verify(paymentReferenceFilter).recordRecentMatches(1);
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "not-found").count()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmBankTransferPayments_shouldConfirmPendingReservationsWithOneLookup() {
+        when(reservationRepository.findPaymentStatusByPaymentReferenceIn(List.of("P0000001", "P0000002", "P0000003")))
+                .thenReturn(List.of(paymentStatus(1L, "P0000001", ReservationStatus.PENDING_PAYMENT),
+                        paymentStatus(2L, "P0000002", ReservationStatus.CONFIRMED)));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED))
+                .thenReturn(1);
+
+        int result = reservationService.confirmBankTransferPayments(List.of(
+                "1401541457 P0000001", "1401541458 P0000002", "1401541459 P0000003", "1401541457 P0000001", "no-reference"));
+
+        assertThat(result).isEqualTo(1);
+        verify(reservationRepository, times(1)).findPaymentStatusByPaymentReferenceIn(anyList());
+        verify(reservationRepository, times(1)).updateStatus(anyCollection(), any(), any());
+        verify(reservationRepository, never()).findPaymentStatusByPaymentReference(anyString());
+        verify(bankTransferDeadlineWheel).cancel(List.of(1L));
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "confirmed").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "already-processed").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "not-found").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("reservation.bank-transfer.updates", "outcome", "invalid").count()).isEqualTo(1);
+    }
+
+    @Test
+    void confirmBankTransferPayments_shouldNotQuery_whenNoDescriptionIsValid() {
+        int result = reservationService.confirmBankTransferPayments(Arrays.asList("no-reference", null));
+
+        assertThat(result).isZero();
+        verifyNoInteractions(reservationRepository);
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldCancelInChunks_untilAChunkIsNotFull() {
         LocalDate today = LocalDate.of(2025, 1, 10);
-        LocalDate overdueDate = today.minusDays(3);
-        LocalDate notOverdueDate = today.minusDays(1);
+        List<Reservation> fullChunk = new ArrayList<>();
+        for (long id = 1; id <= 1000; id++) {
+            Reservation reservation = new Reservation();
+            reservation.setId(id);
+            fullChunk.add(reservation);
+        }
+        savedReservation.setId(1001L);
+        roomOccupancyIndex.tryReserve(savedReservation.getRoomNumber(), savedReservation.getStartDate(), savedReservation.getEndDate());
+        when(reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(
+                eq(ReservationStatus.PENDING_PAYMENT), eq(PaymentMode.BANK_TRANSFER), eq(today.minusDays(2)),
+                eq(Long.MIN_VALUE), eq(Long.MAX_VALUE), any(Limit.class)))
+                .thenReturn(fullChunk, List.of(savedReservation));
+
+        List<Long> cancelled = reservationService.cancelOverdueBankTransferReservations(today);
+
+        assertThat(cancelled).hasSize(1001).startsWith(1L).endsWith(1001L);
+        // Two transactions of one UPDATE and one batch of night deletions each, never a load or save per reservation
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(reservationRepository).updateStatus(fullChunk.stream().map(Reservation::getId).toList(),
+                ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED);
+        verify(reservationRepository).updateStatus(List.of(1001L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED);
+        verify(roomNightLedger).releaseNights(List.of(1001L));
+        verify(reservationRepository, never()).findById(anyLong());
+        verify(reservationRepository, never()).save(any(Reservation.class));
+        assertThat(roomOccupancyIndex.isAvailable(savedReservation.getRoomNumber(), savedReservation.getStartDate(), savedReservation.getEndDate())).isTrue();
+    }
+
+    @Test
+    void cancelOverdueBankTransferReservations_shouldNotUpdate_whenNothingIsOverdue() {
+        when(reservationRepository.lockByStatusAndPaymentModeAndReservationDateBefore(any(), any(), any(), anyLong(), anyLong(), any(Limit.class)))
+                .thenReturn(List.of());
 
-        Reservation overdueReservation = new Reservation();
-        overdueReservation.setId(1L);
-        overdueReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
-        overdueReservation.setPaymentMode(PaymentMode.BANK_TRANSFER);
-        overdueReservation.setReservationDate(overdueDate);
+        assertThat(reservationService.cancelOverdueBankTransferReservations(LocalDate.of(2025, 1, 10))).isEmpty();
 
-        Reservation notOverdueReservation = new Reservation();
-        notOverdueReservation.setId(2L);
-        notOverdueReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
-        notOverdueReservation.setPaymentMode(PaymentMode.BANK_TRANSFER);
-        notOverdueReservation.setReservationDate(notOverdueDate);
+        verify(reservationRepository, never()).updateStatus(anyCollection(), any(), any());
+        verify(roomNightLedger, never()).releaseNights(anyCollection());
+    }
 
-        when(reservationRepository.findByStatusAndCreatedAtBefore(
-                eq(ReservationStatus.PENDING_PAYMENT),
-                eq(today.minusDays(2))
-        )).thenReturn(List.of(overdueReservation));
+    @Test
+    void cancelExpiredBankTransferReservations_shouldCancelOnlyTheOnesStillPending() {
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        roomOccupancyIndex.tryReserve(savedReservation.getRoomNumber(), savedReservation.getStartDate(), savedReservation.getEndDate());
+        // Reservation 2 was confirmed since it was scheduled
+        when(reservationRepository.lockByIdInAndStatusAndPaymentMode(List.of(1L, 2L), ReservationStatus.PENDING_PAYMENT,
+                PaymentMode.BANK_TRANSFER)).thenReturn(List.of(savedReservation));
+
+        List<Long> cancelled = reservationService.cancelExpiredBankTransferReservations(List.of(1L, 2L));
+
+        assertThat(cancelled).containsExactly(1L);
+        verify(reservationRepository).updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED);
+        verify(roomNightLedger).releaseNights(List.of(1L));
+        verify(bankTransferDeadlineWheel).cancel(List.of(1L));
+        assertThat(roomOccupancyIndex.isAvailable(savedReservation.getRoomNumber(), savedReservation.getStartDate(), savedReservation.getEndDate())).isTrue();
+    }
 
-        List<Reservation> result = reservationService.findPendingBankTransferReservations(today);
+    @Test
+    void findOverdueBankTransferIdRange_shouldBeEmpty_whenNothingIsOverdue() {
+        ReservationIdRange none = mock(ReservationIdRange.class);
+        when(none.getLowest()).thenReturn(null);
+        when(reservationRepository.findIdRangeByStatusAndPaymentModeAndReservationDateBefore(
+                ReservationStatus.PENDING_PAYMENT, PaymentMode.BANK_TRANSFER, LocalDate.of(2025, 1, 8))).thenReturn(none);
 
-        assertThat(result)
-                .hasSize(1)
-                .extracting(Reservation::getId)
-                .containsExactly(1L);
+        assertThat(reservationService.findOverdueBankTransferIdRange(LocalDate.of(2025, 1, 10))).isEmpty();
     }
 
     @Test
@@ -233,12 +550,31 @@ class ReservationServiceImplTest {
         pendingReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
 
         when(reservationRepository.findById(1L)).thenReturn(Optional.of(pendingReservation));
-        when(reservationRepository.save(any(Reservation.class))).thenReturn(pendingReservation);
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED)).thenReturn(1);
 
         reservationService.cancelReservation(1L);
 
         assertEquals(ReservationStatus.CANCELLED, pendingReservation.getStatus());
-        verify(reservationRepository, times(1)).save(pendingReservation);
+        verify(reservationRepository, times(1)).updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED);
+    }
+
+    @Test
+    void cancelReservation_shouldReleaseRoom_whenPending() {
+        Reservation pendingReservation = new Reservation();
+        pendingReservation.setId(1L);
+        pendingReservation.setRoomNumber("101");
+        pendingReservation.setStartDate(baseRequest.getStartDate());
+        pendingReservation.setEndDate(baseRequest.getEndDate());
+        pendingReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        roomOccupancyIndex.tryReserve("101", baseRequest.getStartDate(), baseRequest.getEndDate());
+
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(pendingReservation));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED)).thenReturn(1);
+
+        reservationService.cancelReservation(1L);
+
+        assertThat(roomOccupancyIndex.isAvailable("101", baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+        verify(roomNightLedger, times(1)).releaseNights(1L);
     }
 
     @Test
@@ -251,6 +587,304 @@ class ReservationServiceImplTest {
 
         reservationService.cancelReservation(1L);
 
-        verify(reservationRepository, never()).save(confirmedReservation);
+        verify(reservationRepository, never()).updateStatus(anyCollection(), any(), any());
+    }
+
+    @Test
+    void confirmReservation_shouldMarkRoomOccupiedInSegmentIndex() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        savedReservation.setStatus(ReservationStatus.CONFIRMED);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        reservationService.confirmReservation(baseRequest);
+
+        RoomAvailabilityResponse availability = reservationService.findAvailableRooms(
+                RoomSegment.MEDIUM, baseRequest.getStartDate(), baseRequest.getEndDate());
+        assertThat(availability.getAvailableRooms()).isEmpty();
+    }
+
+    @Test
+    void findAvailableRooms_shouldThrowException_whenPeriodIsTooLong() {
+        LocalDate start = LocalDate.now();
+
+        assertThrows(ValidationException.class,
+                () -> reservationService.findAvailableRooms(RoomSegment.LARGE, start, start.plusDays(30)));
+    }
+
+    @Test
+    void findAvailableRooms_shouldThrowException_whenStartIsAfterEnd() {
+        LocalDate start = LocalDate.now();
+
+        assertThrows(ValidationException.class,
+                () -> reservationService.findAvailableRooms(RoomSegment.LARGE, start, start.minusDays(1)));
+    }
+
+    @Test
+    void confirmReservations_shouldReportResultPerItem() {
+        ReservationRequest cash = copyOf(baseRequest, PaymentMode.CASH, null);
+        ReservationRequest missingReference = copyOf(baseRequest, PaymentMode.BANK_TRANSFER, null);
+        missingReference.setRoomNumber("102");
+        ReservationRequest overlapping = copyOf(baseRequest, PaymentMode.CASH, null);
+        ReservationRequest invalid = copyOf(baseRequest, PaymentMode.CASH, null);
+        invalid.setRoomNumber("103");
+        invalid.setCustomerName("");
+        when(reservationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        BatchReservationResponse response = reservationService.confirmReservations(List.of(cash, missingReference, overlapping, invalid));
+
+        assertThat(response.getAccepted()).isEqualTo(1);
+        assertThat(response.getRejected()).isEqualTo(3);
+        assertThat(response.getResults().get(0).getReservationStatus()).isEqualTo(ReservationStatus.CONFIRMED);
+        assertThat(response.getResults().get(1).getError()).isEqualTo("Payment reference is required for Bank Transfer payment.");
+        assertThat(response.getResults().get(2).getError()).contains("already reserved");
+        assertThat(response.getResults().get(3).getError()).contains("customerName");
+        verify(roomNightLedger, times(1)).bookNights(anyList());
+    }
+
+    @Test
+    void confirmReservations_shouldRejectWholeBatch_whenLedgerReportsConflict() {
+        ReservationRequest first = copyOf(baseRequest, PaymentMode.CASH, null);
+        ReservationRequest second = copyOf(baseRequest, PaymentMode.CASH, null);
+        second.setRoomNumber("102");
+        when(reservationRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        doThrow(new DuplicateKeyException("uk_room_night")).when(roomNightLedger).bookNights(anyList());
+
+        assertThrows(ReservationConflictException.class, () -> reservationService.confirmReservations(List.of(first, second)));
+
+        assertThat(roomOccupancyIndex.size()).isZero();
+    }
+
+    @Test
+    void confirmReservations_shouldReleaseTheHeldRooms_whenAMiddleItemFailsUnexpectedly() {
+        ReservationRequest first = copyOf(baseRequest, PaymentMode.CASH, null);
+        ReservationRequest second = copyOf(baseRequest, PaymentMode.CASH, null);
+        second.setRoomNumber("102");
+        ReservationRequest third = copyOf(baseRequest, PaymentMode.CASH, null);
+        third.setRoomNumber("103");
+        doCallRealMethod().doThrow(new IllegalStateException("mapping failed")).doCallRealMethod()
+                .when(reservationMapper).toEntity(any(ReservationRequest.class));
+
+        assertThrows(IllegalStateException.class, () -> reservationService.confirmReservations(List.of(first, second, third)));
+
+        assertThat(roomOccupancyIndex.size()).isZero();
+        assertThat(roomOccupancyIndex.isAvailable(first.getRoomNumber(), first.getStartDate(), first.getEndDate())).isTrue();
+        verify(reservationRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void confirmReservations_shouldThrowException_whenBatchIsEmpty() {
+        assertThrows(ValidationException.class, () -> reservationService.confirmReservations(List.of()));
+    }
+
+    private ReservationRequest copyOf(ReservationRequest source, PaymentMode mode, String reference) {
+        ReservationRequest request = new ReservationRequest();
+        request.setCustomerName(source.getCustomerName());
+        request.setRoomNumber(source.getRoomNumber());
+        request.setStartDate(source.getStartDate());
+        request.setEndDate(source.getEndDate());
+        request.setRoomSegment(source.getRoomSegment());
+        request.setPaymentMode(mode);
+        request.setPaymentReference(reference);
+        return request;
+    }
+
+    private Reservation toReservation(ReservationRequest request) {
+        Reservation reservation = new Reservation();
+        reservation.setCustomerName(request.getCustomerName());
+        reservation.setRoomNumber(request.getRoomNumber());
+        reservation.setStartDate(request.getStartDate());
+        reservation.setEndDate(request.getEndDate());
+        reservation.setRoomSegment(request.getRoomSegment());
+        reservation.setPaymentMode(request.getPaymentMode());
+        reservation.setPaymentReference(request.getPaymentReference());
+        return reservation;
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldSavePendingAndConfirmInBackground() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        when(reservationRepository.save(any(Reservation.class))).thenAnswer(invocation -> {
+            Reservation reservation = invocation.getArgument(0);
+            return copyWithStatus(reservation, reservation.getStatus());
+        });
+        when(reservationRepository.findById(1L)).thenAnswer(invocation -> Optional.of(copyWithStatus(savedReservation, ReservationStatus.PENDING_PAYMENT)));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED)).thenReturn(1);
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123")).thenReturn(true);
+
+        ReservationResponse response = reservationService.acceptReservation(baseRequest);
+
+        assertEquals(ReservationStatus.PENDING_PAYMENT, response.getReservationStatus());
+        verify(creditCardVerificationExecutor, times(1)).execute(any(Runnable.class));
+        verify(reservationRepository).updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldCancelAndReleaseRoom_whenPaymentIsNotConfirmed() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(savedReservation));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED)).thenReturn(1);
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123")).thenReturn(false);
+
+        reservationService.acceptReservation(baseRequest);
+
+        assertEquals(ReservationStatus.CANCELLED, savedReservation.getStatus());
+        verify(roomNightLedger, times(1)).releaseNights(1L);
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldKeepTheRoom_whenAnotherInstanceCompletedTheCheckFirst() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(savedReservation));
+        // Confirmed by another instance between the read and the conditional update
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED)).thenReturn(0);
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123")).thenReturn(false);
+
+        reservationService.acceptReservation(baseRequest);
+
+        verify(roomNightLedger, never()).releaseNights(1L);
+        verify(bankTransferDeadlineWheel, never()).cancel(1L);
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isFalse();
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldRetryTheCheck_whenTheCardServiceRecovers() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(savedReservation));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED)).thenReturn(1);
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123"))
+                .thenThrow(new PaymentServiceUnavailableException(Constants.CARD_SERVICE_CIRCUIT_OPEN))
+                .thenReturn(true);
+
+        ReservationResponse response = reservationService.acceptReservation(baseRequest);
+
+        assertEquals(ReservationStatus.PENDING_PAYMENT, response.getReservationStatus());
+        verify(creditCardPaymentService, timeout(5000).times(2)).isPaymentConfirmed("CC-REF-123");
+        verify(reservationRepository, timeout(5000))
+                .updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+        assertEquals(ReservationStatus.CONFIRMED, savedReservation.getStatus());
+        verify(creditCardVerificationExecutor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldCancelAfterTheLastAttempt_whenTheCardServiceStaysUnavailable() {
+        creditCardVerificationRetryProperties.setMaxAttempts(3);
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(savedReservation));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CANCELLED)).thenReturn(1);
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123"))
+                .thenThrow(new PaymentServiceUnavailableException(Constants.CARD_SERVICE_CIRCUIT_OPEN));
+
+        reservationService.acceptReservation(baseRequest);
+
+        verify(roomNightLedger, timeout(5000)).releaseNights(1L);
+        // Released last, after the room occupancy
+        verify(bankTransferDeadlineWheel, timeout(5000)).cancel(1L);
+        verify(creditCardPaymentService, times(3)).isPaymentConfirmed("CC-REF-123");
+        assertEquals(ReservationStatus.CANCELLED, savedReservation.getStatus());
+        assertThat(roomOccupancyIndex.isAvailable(baseRequest.getRoomNumber(), baseRequest.getStartDate(), baseRequest.getEndDate())).isTrue();
+    }
+
+    @Test
+    void acceptReservation_CREDIT_CARD_shouldLeaveTheReservationPending_whenTheVerificationExecutorIsSaturated() {
+        baseRequest.setPaymentMode(PaymentMode.CREDIT_CARD);
+        baseRequest.setPaymentReference("CC-REF-123");
+        savedReservation.setPaymentReference("CC-REF-123");
+        savedReservation.setStatus(ReservationStatus.PENDING_PAYMENT);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+        when(reservationRepository.findById(1L)).thenReturn(Optional.of(savedReservation));
+        when(reservationRepository.updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED)).thenReturn(1);
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> checkedOn = new AtomicReference<>();
+        when(creditCardPaymentService.isPaymentConfirmed("CC-REF-123")).thenAnswer(invocation -> {
+            checkedOn.set(Thread.currentThread());
+            return true;
+        });
+        doThrow(new TaskRejectedException("saturated")).doCallRealMethod()
+                .when(creditCardVerificationExecutor).execute(any(Runnable.class));
+
+        ReservationResponse response = reservationService.acceptReservation(baseRequest);
+
+        assertEquals(ReservationStatus.PENDING_PAYMENT, response.getReservationStatus());
+        verify(reservationRepository, timeout(5000))
+                .updateStatus(List.of(1L), ReservationStatus.PENDING_PAYMENT, ReservationStatus.CONFIRMED);
+        assertEquals(ReservationStatus.CONFIRMED, savedReservation.getStatus());
+        assertThat(checkedOn.get()).isNotSameAs(caller);
+    }
+
+    @Test
+    void retryBackoff_shouldGrowExponentially_upToTheMaximum() {
+        CreditCardVerificationRetryProperties retry = new CreditCardVerificationRetryProperties();
+
+        assertThat(retry.backoff(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(retry.backoff(3)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(retry.backoff(10)).isEqualTo(Duration.ofMinutes(5));
+    }
+
+    @Test
+    void acceptReservation_CASH_shouldConfirmImmediately() {
+        baseRequest.setPaymentMode(PaymentMode.CASH);
+        savedReservation.setStatus(ReservationStatus.CONFIRMED);
+        when(reservationRepository.save(any(Reservation.class))).thenReturn(savedReservation);
+
+        ReservationResponse response = reservationService.acceptReservation(baseRequest);
+
+        assertEquals(ReservationStatus.CONFIRMED, response.getReservationStatus());
+        verify(creditCardVerificationExecutor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    void getReservation_shouldThrowNotFound_whenReservationDoesNotExist() {
+        when(reservationRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(ReservationNotFoundException.class, () -> reservationService.getReservation(99L));
+    }
+
+    private static ReservationPaymentStatus paymentStatus(Long id, String paymentReference, ReservationStatus status) {
+        return new ReservationPaymentStatus() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getPaymentReference() {
+                return paymentReference;
+            }
+
+            @Override
+            public ReservationStatus getStatus() {
+                return status;
+            }
+        };
+    }
+
+    private Reservation copyWithStatus(Reservation source, ReservationStatus status) {
+        Reservation copy = toReservation(new ReservationRequest());
+        copy.setId(1L);
+        copy.setRoomNumber(source.getRoomNumber());
+        copy.setStartDate(source.getStartDate());
+        copy.setEndDate(source.getEndDate());
+        copy.setPaymentReference(source.getPaymentReference());
+        copy.setStatus(status);
+        return copy;
     }
 }
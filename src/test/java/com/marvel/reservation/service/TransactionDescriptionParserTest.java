@@ -0,0 +1,41 @@
+package com.marvel.reservation.service;
+
+import com.marvel.reservation.exception.ValidationException;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionDescriptionParserTest {
+
+    // The parser must agree with the regex split it replaced
+    private static String splitReference(String description) {
+        String[] parts = description.trim().split("\\s+");
+        if (parts.length < 2 || parts[1].length() != 8) {
+            return null;
+        }
+        return parts[1];
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "1401541457 P4145478",
+            "  1401541457   P4145478  ",
+            "1401541457\tP4145478\n",
+            "1401541457 P4145478 trailing words",
+            "\u00011401541457 P4145478\u0001",
+            "X\r\nP4145478"
+    })
+    void paymentReference_shouldReturnTheSecondWord(String description) {
+        assertThat(TransactionDescriptionParser.paymentReference(description)).isEqualTo(splitReference(description));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "1401541457", "1401541457   ", "1401541457 P414547", "1401541457 P41454789"})
+    void paymentReference_shouldRejectDescriptionsWithoutAnEightCharacterSecondWord(String description) {
+        assertNull(splitReference(description));
+        assertThrows(ValidationException.class, () -> TransactionDescriptionParser.paymentReference(description));
+    }
+}